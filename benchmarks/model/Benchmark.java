@@ -0,0 +1,215 @@
+/*
+ * TCSS 305 - Project Tetris
+ */
+
+package model;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A small benchmark harness in the spirit of JMH.
+ * 
+ * Each benchmark is run for a number of timed warmup iterations, then for a
+ * number of timed measurement iterations. Every iteration reports the time per
+ * operation and, where the JVM supports it, the bytes allocated per operation by
+ * the benchmark thread (the equivalent of JMH's "-prof gc"). Results are kept
+ * so they can be written as CSV and compared across commits.
+ * 
+ * @author TCSS 305 Instructors
+ * @version Autumn 2016
+ */
+public final class Benchmark {
+
+    /** The header line of the CSV results. */
+    public static final String CSV_HEADER =
+        "label,benchmark,iterations,ops,ns_per_op,ns_per_op_stddev,ops_per_s,bytes_per_op";
+
+    /** Nanoseconds per millisecond. */
+    private static final long NANOS_PER_MILLI = 1000000L;
+
+    /** Nanoseconds per second. */
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    /** Operations run between two clock reads. */
+    private static final int BATCH = 64;
+
+    /**
+     * An operation to measure.
+     */
+    public interface Operation {
+
+        /**
+         * Performs the operation once.
+         * 
+         * @return a value that is consumed so the JIT cannot remove the work; may be null.
+         */
+        Object run();
+    }
+
+    /** The number of warmup iterations. */
+    private final int myWarmups;
+
+    /** The number of measurement iterations. */
+    private final int myIterations;
+
+    /** The length of every iteration in milliseconds. */
+    private final long myIterationMillis;
+
+    /** The label written with every result, such as a commit id. */
+    private final String myLabel;
+
+    /** The CSV lines of the results measured so far. */
+    private final List<String> myResults;
+
+    /** Per-thread allocation counters, or null if the JVM does not provide them. */
+    private final com.sun.management.ThreadMXBean myAllocations;
+
+    /** Consumes the values returned by operations. */
+    private int mySink;
+
+    /**
+     * Constructs a harness.
+     * 
+     * @param theWarmups the number of warmup iterations.
+     * @param theIterations the number of measurement iterations.
+     * @param theIterationMillis the length of every iteration in milliseconds.
+     * @param theLabel the label written with every result.
+     */
+    public Benchmark(final int theWarmups, final int theIterations,
+                     final long theIterationMillis, final String theLabel) {
+        myWarmups = theWarmups;
+        myIterations = theIterations;
+        myIterationMillis = theIterationMillis;
+        myLabel = theLabel;
+        myResults = new ArrayList<String>();
+        
+        final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean
+            && ((com.sun.management.ThreadMXBean) threads).isThreadAllocatedMemorySupported()) {
+            myAllocations = (com.sun.management.ThreadMXBean) threads;
+            myAllocations.setThreadAllocatedMemoryEnabled(true);
+        } else {
+            myAllocations = null;
+        }
+    }
+
+    /**
+     * Measures an operation and prints a summary line.
+     * 
+     * @param theName the name of the benchmark.
+     * @param theOperation the operation to measure.
+     */
+    public void measure(final String theName, final Operation theOperation) {
+        for (int i = 0; i < myWarmups; i++) {
+            iteration(theOperation);
+        }
+        
+        final double[] nanosPerOp = new double[myIterations];
+        long ops = 0;
+        long bytes = 0;
+        for (int i = 0; i < myIterations; i++) {
+            final long[] iteration = iteration(theOperation);
+            ops += iteration[0];
+            nanosPerOp[i] = (double) iteration[1] / iteration[0];
+            bytes += iteration[2];
+        }
+        
+        double mean = 0;
+        for (final double value : nanosPerOp) {
+            mean += value / myIterations;
+        }
+        double variance = 0;
+        for (final double value : nanosPerOp) {
+            variance += (value - mean) * (value - mean) / Math.max(1, myIterations - 1);
+        }
+        double bytesPerOp = -1;
+        if (myAllocations != null) {
+            bytesPerOp = (double) bytes / ops;
+        }
+        
+        final String line = String.format("%s,%s,%d,%d,%.3f,%.3f,%.1f,%.1f",
+                                          myLabel, theName, myIterations, ops, mean,
+                                          Math.sqrt(variance), NANOS_PER_SECOND / mean,
+                                          bytesPerOp);
+        myResults.add(line);
+        System.out.printf("%-32s %12.1f ns/op  +- %8.1f  %14.0f ops/s  %10.1f B/op%n",
+                          theName, mean, Math.sqrt(variance), NANOS_PER_SECOND / mean,
+                          bytesPerOp);
+    }
+
+    /**
+     * Writes the results measured so far as CSV.
+     * A header is written first if the file is new, so runs can be appended.
+     * 
+     * @param theFile the file to append to.
+     * @throws IOException if the file cannot be written.
+     */
+    public void writeCsv(final Path theFile) throws IOException {
+        final boolean header = !Files.exists(theFile);
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(
+                 theFile, StandardCharsets.UTF_8,
+                 StandardOpenOption.CREATE, StandardOpenOption.APPEND))) {
+            if (header) {
+                out.println(CSV_HEADER);
+            }
+            for (final String line : myResults) {
+                out.println(line);
+            }
+        }
+        if (mySink == 1) {
+            // Printing the sink only in an unlikely case keeps it observable.
+            System.out.println();
+        }
+    }
+
+    /**
+     * Runs one timed iteration.
+     * 
+     * @param theOperation the operation to measure.
+     * @return the number of operations, the elapsed nanoseconds and the allocated bytes.
+     */
+    private long[] iteration(final Operation theOperation) {
+        final long thread = Thread.currentThread().getId();
+        final long allocatedBefore = allocatedBytes(thread);
+        final long start = System.nanoTime();
+        final long deadline = start + myIterationMillis * NANOS_PER_MILLI;
+        long ops = 0;
+        long now;
+        int sink = mySink;
+        do {
+            for (int i = 0; i < BATCH; i++) {
+                final Object result = theOperation.run();
+                if (result != null) {
+                    sink += System.identityHashCode(result);
+                }
+            }
+            ops += BATCH;
+            now = System.nanoTime();
+        } while (now < deadline);
+        mySink = sink;
+        return new long[] {ops, now - start, allocatedBytes(thread) - allocatedBefore};
+    }
+
+    /**
+     * Returns the bytes allocated by a thread so far.
+     * 
+     * @param theThread the id of the thread.
+     * @return the allocated bytes, or 0 if allocation counting is unavailable.
+     */
+    private long allocatedBytes(final long theThread) {
+        long result = 0;
+        if (myAllocations != null) {
+            result = myAllocations.getThreadAllocatedBytes(theThread);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,377 @@
+/*
+ * TCSS 305 - Project Tetris
+ */
+
+package model;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+import ai.PlacementSearch;
+import ai.WeightedHeuristic;
+import sim.Command;
+import sim.GameRunner;
+import sim.ScriptedInputSource;
+
+/**
+ * Benchmarks of the model hot paths.
+ * 
+ * These live in the model package so that protected members such as
+ * MovableTetrisPiece.getBoardPoints() can be measured directly. Results are
+ * printed and appended as CSV to a file, by default bench-results.csv.
+ * 
+ * Options: -o file, -l label (for example a commit id), -w warmup iterations,
+ * -i measurement iterations, -t iteration milliseconds; any other argument
+ * selects the benchmarks whose name contains it.
+ * 
+ * @author TCSS 305 Instructors
+ * @version Autumn 2016
+ */
+public final class ModelBenchmarks {
+
+    /** Default number of warmup iterations. */
+    private static final int DEFAULT_WARMUPS = 5;
+
+    /** Default number of measurement iterations. */
+    private static final int DEFAULT_ITERATIONS = 5;
+
+    /** Default length of an iteration in milliseconds. */
+    private static final int DEFAULT_MILLIS = 500;
+
+    /** The largest number of rows a single piece can complete. */
+    private static final int MAX_CLEARED_ROWS = 4;
+
+    /** The piece limit of the scripted game benchmark. */
+    private static final int SCRIPTED_GAME_PIECES = 1000;
+
+    /** The benchmark harness. */
+    private final Benchmark myHarness;
+
+    /** Benchmarks whose name contains this text are run. */
+    private final String myFilter;
+
+    /**
+     * Constructs the benchmark suite.
+     * 
+     * @param theHarness the harness measuring the benchmarks.
+     * @param theFilter only benchmarks whose name contains this text are run.
+     */
+    private ModelBenchmarks(final Benchmark theHarness, final String theFilter) {
+        myHarness = theHarness;
+        myFilter = theFilter;
+    }
+
+    /**
+     * Runs the benchmarks.
+     * 
+     * @param theArgs Command line arguments, see the class comment.
+     * @throws IOException if the results cannot be written.
+     */
+    public static void main(final String[] theArgs) throws IOException {
+        Path output = Paths.get("bench-results.csv");
+        String label = "dev";
+        String filter = "";
+        int warmups = DEFAULT_WARMUPS;
+        int iterations = DEFAULT_ITERATIONS;
+        int millis = DEFAULT_MILLIS;
+        for (int i = 0; i < theArgs.length; i++) {
+            switch (theArgs[i]) {
+                case "-o":
+                    output = Paths.get(theArgs[++i]);
+                    break;
+                case "-l":
+                    label = theArgs[++i];
+                    break;
+                case "-w":
+                    warmups = Integer.parseInt(theArgs[++i]);
+                    break;
+                case "-i":
+                    iterations = Integer.parseInt(theArgs[++i]);
+                    break;
+                case "-t":
+                    millis = Integer.parseInt(theArgs[++i]);
+                    break;
+                default:
+                    filter = theArgs[i];
+                    break;
+            }
+        }
+        
+        final Benchmark harness = new Benchmark(warmups, iterations, millis, label);
+        new ModelBenchmarks(harness, filter).runAll();
+        harness.writeCsv(output);
+        System.out.println("Results appended to " + output.toAbsolutePath());
+    }
+
+    /**
+     * Runs every selected benchmark.
+     */
+    private void runAll() {
+        boardMoves();
+        boardDownAndDrop();
+        clearRows();
+        branching();
+        rendering();
+        pieceGeometry();
+        scriptedGame();
+        placementSearch();
+    }
+
+    /**
+     * Measures an operation if it is selected by the filter.
+     * 
+     * @param theName the name of the benchmark.
+     * @param theOperation the operation to measure.
+     */
+    private void measure(final String theName, final Benchmark.Operation theOperation) {
+        if (theName.contains(myFilter)) {
+            myHarness.measure(theName, theOperation);
+        }
+    }
+
+    /**
+     * Benchmarks of horizontal moves and rotation on an empty board.
+     */
+    private void boardMoves() {
+        final Board board = newBoard();
+        measure("board.leftRight", new Benchmark.Operation() {
+            private boolean myLeft;
+            
+            @Override
+            public Object run() {
+                myLeft = !myLeft;
+                if (myLeft) {
+                    board.left();
+                } else {
+                    board.right();
+                }
+                return null;
+            }
+        });
+        measure("board.rotate", new Benchmark.Operation() {
+            @Override
+            public Object run() {
+                board.rotate();
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Benchmarks of down and drop, starting a new game whenever the board fills up.
+     */
+    private void boardDownAndDrop() {
+        final Board board = newBoard();
+        final GameOverFlag over = new GameOverFlag();
+        board.addBoardListener(over, BoardEvent.Type.GAME_OVER);
+        measure("board.down", new Benchmark.Operation() {
+            @Override
+            public Object run() {
+                if (over.reset()) {
+                    board.newGame();
+                }
+                board.down();
+                return null;
+            }
+        });
+        measure("board.drop", new Benchmark.Operation() {
+            @Override
+            public Object run() {
+                if (over.reset()) {
+                    board.newGame();
+                }
+                board.drop();
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Benchmarks of full row detection and removal with 0 to 4 complete rows.
+     * Each operation copies a prepared board, completes the rows and clears the four
+     * rows a vertical I piece would touch; the bitboard.copy benchmark measures the
+     * copy alone.
+     */
+    private void clearRows() {
+        final BitBoard empty = new BitBoard(newBoard().getWidth(), newBoard().getHeight());
+        measure("bitboard.copy", new Benchmark.Operation() {
+            @Override
+            public Object run() {
+                return new BitBoard(empty);
+            }
+        });
+        for (int rows = 0; rows <= MAX_CLEARED_ROWS; rows++) {
+            final BitBoard template = new BitBoard(empty);
+            // Rows 0 to 3 are full except for column 0; rows 4 and 5 hold scattered blocks.
+            for (int y = 0; y < MAX_CLEARED_ROWS + 2; y++) {
+                for (int x = 1; x < template.getWidth(); x++) {
+                    if (y < MAX_CLEARED_ROWS || x % 2 == 0) {
+                        template.setBlock(x, y, Block.T);
+                    }
+                }
+            }
+            final int complete = rows;
+            measure("checkRows." + rows, new Benchmark.Operation() {
+                @Override
+                public Object run() {
+                    final BitBoard board = new BitBoard(template);
+                    for (int y = 0; y < complete; y++) {
+                        board.setBlock(0, y, Block.I);
+                    }
+                    return board.clearFullRows(0, MAX_CLEARED_ROWS - 1);
+                }
+            });
+        }
+    }
+
+    /**
+     * Benchmarks of making a variant of a board by locking a vertical I piece
+     * that completes four rows: on a copy of a bitboard, and on a persistent
+     * board sharing its untouched rows.
+     */
+    private void branching() {
+        final BitBoard template = new BitBoard(newBoard().getWidth(), newBoard().getHeight());
+        // Rows 0 to 3 are full except for column 0; rows 4 to 9 hold scattered blocks.
+        for (int y = 0; y < MAX_CLEARED_ROWS + 6; y++) {
+            for (int x = 1; x < template.getWidth(); x++) {
+                if (y < MAX_CLEARED_ROWS || (x + y) % 3 != 0) {
+                    template.setBlock(x, y, Block.T);
+                }
+            }
+        }
+        final PersistentBoard persistent = new PersistentBoard(template);
+        final int piece = PieceState.pack(TetrisPiece.I, Rotation.QUARTER, -2, 0);
+        measure("branch.bitboard", new Benchmark.Operation() {
+            @Override
+            public Object run() {
+                final BitBoard board = new BitBoard(template);
+                board.place(piece);
+                return board.clearFullRows(0, MAX_CLEARED_ROWS - 1);
+            }
+        });
+        measure("branch.persistent", new Benchmark.Operation() {
+            @Override
+            public Object run() {
+                return persistent.place(piece).clearFullRows(0, MAX_CLEARED_ROWS - 1);
+            }
+        });
+    }
+
+    /**
+     * Benchmark of the String form of the board.
+     */
+    private void rendering() {
+        final Board board = newBoard();
+        measure("board.toString", new Benchmark.Operation() {
+            @Override
+            public Object run() {
+                return board.toString();
+            }
+        });
+    }
+
+    /**
+     * Benchmark of the board points of a movable piece.
+     */
+    private void pieceGeometry() {
+        final MovableTetrisPiece[] pieces = new MovableTetrisPiece[TetrisPiece.values().length];
+        for (final TetrisPiece piece : TetrisPiece.values()) {
+            pieces[piece.ordinal()] =
+                new MovableTetrisPiece(piece, new Point(3, 10), Rotation.QUARTER);
+        }
+        measure("piece.getBoardPoints", new Benchmark.Operation() {
+            private int myIndex;
+            
+            @Override
+            public Object run() {
+                myIndex = (myIndex + 1) % pieces.length;
+                return pieces[myIndex].getBoardPoints();
+            }
+        });
+    }
+
+    /**
+     * Benchmark of a full scripted game with a fixed piece sequence.
+     */
+    private void scriptedGame() {
+        final Board board = newBoard();
+        board.setPieceSequence(Arrays.asList(TetrisPiece.values()));
+        final GameRunner runner = new GameRunner(board);
+        final Command[] script = {Command.LEFT, Command.LEFT, Command.LEFT, Command.DROP,
+                                  Command.ROTATE, Command.RIGHT, Command.RIGHT, Command.DROP,
+                                  Command.DROP, Command.ROTATE, Command.LEFT, Command.DOWN,
+                                  Command.DROP, Command.RIGHT, Command.RIGHT, Command.RIGHT,
+                                  Command.RIGHT, Command.DROP};
+        measure("game.scripted", new Benchmark.Operation() {
+            @Override
+            public Object run() {
+                return runner.play(new ScriptedInputSource(Arrays.asList(script), true),
+                                   SCRIPTED_GAME_PIECES);
+            }
+        });
+    }
+
+    /**
+     * Benchmarks of the bot choosing a placement with and without lookahead,
+     * on a board partly filled by a scripted opening.
+     */
+    private void placementSearch() {
+        final Board board = newBoard();
+        final Command[] opening = {Command.LEFT, Command.LEFT, Command.LEFT, Command.DROP,
+                                   Command.RIGHT, Command.RIGHT, Command.RIGHT, Command.DROP,
+                                   Command.ROTATE, Command.DROP, Command.ROTATE,
+                                   Command.LEFT, Command.DROP};
+        for (final Command command : opening) {
+            command.apply(board);
+        }
+        final PlacementSearch search = new PlacementSearch(new WeightedHeuristic());
+        for (int depth = 1; depth <= 2; depth++) {
+            final int lookahead = depth;
+            measure("search.depth" + depth, new Benchmark.Operation() {
+                @Override
+                public Object run() {
+                    return search.choose(board, lookahead);
+                }
+            });
+        }
+    }
+
+    /**
+     * Creates a standard board ready to play.
+     * 
+     * @return a new Board after newGame().
+     */
+    private static Board newBoard() {
+        final Board board = new Board();
+        board.setSeed(0);
+        board.newGame();
+        return board;
+    }
+
+    /**
+     * Remembers that a game ended.
+     */
+    private static final class GameOverFlag implements BoardListener {
+
+        /** If a game ended since the last reset. */
+        private boolean myOver;
+
+        /**
+         * Clears the flag.
+         * 
+         * @return true if a game ended since the last reset.
+         */
+        boolean reset() {
+            final boolean result = myOver;
+            myOver = false;
+            return result;
+        }
+
+        @Override
+        public void boardChanged(final BoardEvent theEvent) {
+            myOver = true;
+        }
+    }
+}
@@ -0,0 +1,495 @@
+/*
+ * TCSS 305 - Project Tetris
+ */
+
+package ai;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+
+import model.BitBoard;
+import model.Board;
+import model.BoardState;
+import model.TetrisPiece;
+import sim.Arguments;
+import sim.BatchRunner;
+import sim.Command;
+import sim.GeneratorKind;
+
+/**
+ * Plans over a window of upcoming pieces by beam search.
+ *
+ * The search places the pieces of the window one at a time. At each depth
+ * every reachable placement of the piece is tried on every board of the beam,
+ * and only the best scored boards are kept for the next depth. Boards that
+ * different placement orders lead to are identical positions; a shared
+ * TranspositionTable keyed by board hash keeps only the best of them. The
+ * boards of a depth are expanded in parallel on a fork/join pool.
+ *
+ * A BeamSearch runs one search at a time; its worker threads share its table.
+ *
+ * @author TCSS 305 Instructors
+ * @version Autumn 2016
+ */
+public final class BeamSearch implements Planner {
+
+    /** The default number of boards kept per depth. */
+    public static final int DEFAULT_BEAM_WIDTH = 32;
+
+    /** The default number of transposition table entries. */
+    public static final int DEFAULT_TABLE_SIZE = 1 << 14;
+
+    /** The number of boards expanded by one task. */
+    private static final int BATCH = 2;
+
+    /** The number of order bits of a placement index. */
+    private static final int PLACEMENT_BITS = 16;
+
+    /** Mixes the depth of a position into its hash. */
+    private static final long DEPTH_SALT = 0x9E3779B97F4A7C15L;
+
+    /** Default number of games played by main. */
+    private static final int DEFAULT_GAMES = 10;
+
+    /** Default lookahead window used by main. */
+    private static final int DEFAULT_DEPTH = 3;
+
+    /** Default piece limit per game used by main. */
+    private static final int DEFAULT_MAX_PIECES = 500;
+
+    /** Nanoseconds per second. */
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    /** Orders nodes by descending score, then by ascending order. */
+    private static final Comparator<Node> BEST_FIRST = new Comparator<Node>() {
+        @Override
+        public int compare(final Node theFirst, final Node theSecond) {
+            int result = Double.compare(theSecond.myScore, theFirst.myScore);
+            if (result == 0) {
+                result = Long.compare(theFirst.myOrder, theSecond.myOrder);
+            }
+            return result;
+        }
+    };
+
+    /** The heuristic scoring boards. */
+    private final Heuristic myHeuristic;
+
+    /** The number of boards kept per depth. */
+    private final int myBeamWidth;
+
+    /** The table of the best score of each position of the current search. */
+    private final TranspositionTable myTable;
+
+    /** The pool expanding the boards of a depth. */
+    private final ForkJoinPool myPool;
+
+    /** The number of boards scored. */
+    private final LongAdder myNodes = new LongAdder();
+
+    /** The time spent searching in nanoseconds. */
+    private final LongAdder myNanos = new LongAdder();
+
+    /**
+     * Constructs a search with the default beam width and table size on the
+     * common fork/join pool.
+     *
+     * @param theHeuristic the heuristic scoring boards.
+     */
+    public BeamSearch(final Heuristic theHeuristic) {
+        this(theHeuristic, DEFAULT_BEAM_WIDTH, new TranspositionTable(DEFAULT_TABLE_SIZE),
+             ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructs a search.
+     *
+     * @param theHeuristic the heuristic scoring boards.
+     * @param theBeamWidth the number of boards kept per depth.
+     * @param theTable the transposition table; cleared by every search.
+     * @param thePool the pool expanding the boards of a depth.
+     * @throws IllegalArgumentException if the beam width is not positive.
+     */
+    public BeamSearch(final Heuristic theHeuristic, final int theBeamWidth,
+                      final TranspositionTable theTable, final ForkJoinPool thePool) {
+        if (theBeamWidth < 1) {
+            throw new IllegalArgumentException("Beam width must be positive: "
+                                               + theBeamWidth);
+        }
+        myHeuristic = theHeuristic;
+        myBeamWidth = theBeamWidth;
+        myTable = theTable;
+        myPool = thePool;
+    }
+
+    @Override
+    public Placement choose(final Board theBoard, final int theDepth) {
+        if (theDepth < 1) {
+            throw new IllegalArgumentException("Depth must be at least 1: " + theDepth);
+        }
+        final BoardState state = theBoard.getState();
+        // One piece more than the window, for the spawn position of the last one.
+        return choose(state.getFrozenBlocks(), state.getCurrentPiece(),
+                      theBoard.getNextPieces(theDepth), theDepth);
+    }
+
+    /**
+     * Chooses where to place a piece.
+     *
+     * @param theBoard the frozen blocks; only read.
+     * @param thePiece the packed state of the piece to place, or PieceState.NONE.
+     * @param thePreview the pieces that play after it, in order.
+     * @param theDepth the number of pieces in the window; at most one more
+     *        than the number of previewed pieces are placed.
+     * @return the first placement of the best planned sequence, or null if the
+     *         piece cannot move.
+     * @throws IllegalArgumentException if the depth is less than 1.
+     */
+    public Placement choose(final BitBoard theBoard, final int thePiece,
+                            final List<TetrisPiece> thePreview, final int theDepth) {
+        if (theDepth < 1) {
+            throw new IllegalArgumentException("Depth must be at least 1: " + theDepth);
+        }
+        final long start = System.nanoTime();
+        myTable.clear();
+
+        // The placements of the current piece, with the commands to reach them.
+        final PlacementFinder finder = PlacementFinder.forBoard(theBoard);
+        final int count = finder.search(theBoard, thePiece);
+        final int[] roots = new int[count];
+        final Command[][] commands = new Command[count][];
+        final List<Node> nodes = new ArrayList<Node>(count);
+        final Node root = new Node(theBoard, 0, 0, 0, 0);
+        for (int i = 0; i < count; i++) {
+            roots[i] = finder.getPlacement(i);
+            commands[i] = finder.getCommands(i);
+            final Node node = expand(root, roots[i], i, 0);
+            if (node != null) {
+                nodes.add(node);
+            }
+        }
+        myNodes.add(count);
+        final List<Node> beam = new ArrayList<Node>(nodes.size());
+        for (final Node node : nodes) {
+            if (myTable.isBest(key(node.myBoard, 0), node.myScore, node.myOrder)) {
+                beam.add(node);
+            }
+        }
+
+        // The deepest beam with a survivor; the search stops where every node dies.
+        List<Node> best = select(beam);
+        final int depth = Math.min(theDepth - 1, thePreview.size());
+        boolean alive = !best.isEmpty();
+        for (int d = 1; d <= depth && alive; d++) {
+            TetrisPiece following = thePreview.get(d - 1);
+            if (d < thePreview.size()) {
+                following = thePreview.get(d);
+            }
+            final List<Node> next = select(expandAll(best, thePreview.get(d - 1), 
+                                                     following, d));
+            alive = !next.isEmpty();
+            if (alive) {
+                best = next;
+            }
+        }
+
+        Placement result = null;
+        if (!best.isEmpty()) {
+            final Node node = best.get(0);
+            result = new Placement(roots[node.myRoot], commands[node.myRoot], node.myScore);
+        } else if (count > 0) {
+            // Every placement of the current piece ends the game.
+            result = new Placement(roots[0], commands[0], Double.NEGATIVE_INFINITY);
+        }
+        myNanos.add(System.nanoTime() - start);
+        return result;
+    }
+
+    /**
+     * Returns the number of boards scored by all searches so far.
+     *
+     * @return the number of nodes.
+     */
+    public long getNodes() {
+        return myNodes.sum();
+    }
+
+    /**
+     * Returns the number of boards scored per second of search.
+     *
+     * @return the nodes per second.
+     */
+    public double getNodesPerSecond() {
+        return myNodes.sum() * NANOS_PER_SECOND / Math.max(1, myNanos.sum());
+    }
+
+    /**
+     * Returns the transposition table.
+     *
+     * @return the table.
+     */
+    public TranspositionTable getTable() {
+        return myTable;
+    }
+
+    /**
+     * Places a piece on the board of a node and scores the result.
+     *
+     * @param theParent the node.
+     * @param thePlacement the packed state the piece locks in.
+     * @param theIndex the index of the placement among the placements of the parent.
+     * @param theDepth the depth of the new node.
+     * @return the new node, or null if the placement ends the game.
+     */
+    private Node expand(final Node theParent, final int thePlacement, final int theIndex,
+                        final int theDepth) {
+        final BitBoard board = new BitBoard(theParent.myBoard);
+        Node result = null;
+        if (board.place(thePlacement)) {
+            final int lines = theParent.myLines + board.clearFullRows().length;
+            final double score = myHeuristic.evaluate(board, lines);
+            // Parents are ordered best first, so orders follow the beam order.
+            final long order = theParent.myOrder << PLACEMENT_BITS | theIndex;
+            int root = theParent.myRoot;
+            if (theDepth == 0) {
+                root = theIndex;
+            }
+            result = new Node(board, lines, score, root, order);
+            myTable.offer(key(board, theDepth), score, order);
+        }
+        return result;
+    }
+
+    /**
+     * Places a piece on every board of a beam in parallel.
+     *
+     * @param theBeam the boards of the previous depth.
+     * @param thePiece the piece to place.
+     * @param theFollowing the piece previewed after it.
+     * @param theDepth the depth of the new nodes.
+     * @return the new nodes, which the table has the best score for, in beam order.
+     */
+    private List<Node> expandAll(final List<Node> theBeam, final TetrisPiece thePiece,
+                                 final TetrisPiece theFollowing, final int theDepth) {
+        final List<List<Node>> children =
+            new ArrayList<List<Node>>(Collections.<List<Node>>nCopies(theBeam.size(), null));
+        final Expansion task = new Expansion(theBeam, 0, theBeam.size(), thePiece,
+                                             theFollowing, theDepth, children);
+        if (ForkJoinTask.getPool() == myPool) {
+            task.invoke();
+        } else {
+            myPool.invoke(task);
+        }
+        final List<Node> result = new ArrayList<Node>();
+        for (final List<Node> list : children) {
+            for (final Node child : list) {
+                if (myTable.isBest(key(child.myBoard, theDepth), child.myScore,
+                                   child.myOrder)) {
+                    result.add(child);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the transposition table key of a position.
+     *
+     * @param theBoard the frozen blocks.
+     * @param theDepth the number of pieces placed since the root.
+     * @return the key.
+     */
+    private static long key(final BitBoard theBoard, final int theDepth) {
+        // The same blocks at another depth have other pieces left to place.
+        return theBoard.getHash() ^ theDepth * DEPTH_SALT;
+    }
+
+    /**
+     * Keeps the best nodes of a depth.
+     *
+     * @param theNodes the nodes.
+     * @return at most the beam width of the best nodes, best first, renumbered
+     *         so that the orders of their children follow the beam order.
+     */
+    private List<Node> select(final List<Node> theNodes) {
+        Collections.sort(theNodes, BEST_FIRST);
+        final List<Node> result =
+            new ArrayList<Node>(theNodes.subList(0, Math.min(myBeamWidth, theNodes.size())));
+        for (int i = 0; i < result.size(); i++) {
+            result.get(i).myOrder = i;
+        }
+        return result;
+    }
+
+    /**
+     * Plays bot games with a beam search planner and reports the lines cleared
+     * and the nodes searched per second, so that piece generators can be
+     * compared by how well a strong player does with them.
+     *
+     * Arguments, all optional: piece generator ("uniform", "bag" or
+     * "history"), window depth, beam width, number of games, piece limit per
+     * game and random seed.
+     *
+     * @param theArgs Command line arguments.
+     */
+    public static void main(final String[] theArgs) {
+        final GeneratorKind kind = Arguments.kindArg(theArgs, 0);
+        final int depth = Arguments.intArg(theArgs, 1, DEFAULT_DEPTH);
+        final int beamWidth = Arguments.intArg(theArgs, 2, DEFAULT_BEAM_WIDTH);
+        final int games = Arguments.intArg(theArgs, 3, DEFAULT_GAMES);
+        final int maxPieces = Arguments.intArg(theArgs, 4, DEFAULT_MAX_PIECES);
+        final long seed = Arguments.longArg(theArgs, 5, 0);
+
+        final Board defaults = new Board();
+        final List<BeamSearch> searches =
+            Collections.synchronizedList(new ArrayList<BeamSearch>());
+        final BatchRunner runner = new BatchRunner(
+            defaults.getWidth(), defaults.getHeight(), theSeed -> {
+                final BeamSearch search =
+                    new BeamSearch(new WeightedHeuristic(), beamWidth,
+                                   new TranspositionTable(DEFAULT_TABLE_SIZE),
+                                   ForkJoinPool.commonPool());
+                searches.add(search);
+                return new BotInputSource(search, depth);
+            }, kind.create(0), ForkJoinPool.commonPool());
+        System.out.println(kind + ", depth " + depth + ", beam " + beamWidth + ": "
+                           + runner.run(games, seed, maxPieces));
+
+        long nodes = 0;
+        double rate = 0;
+        for (final BeamSearch search : searches) {
+            nodes += search.getNodes();
+            rate += search.getNodesPerSecond();
+        }
+        System.out.printf("%d nodes, %.0f nodes/s per search%n", nodes,
+                          rate / Math.max(1, searches.size()));
+    }
+
+    /**
+     * A board of the beam.
+     */
+    private static final class Node {
+
+        /** The frozen blocks. */
+        private final BitBoard myBoard;
+
+        /** The number of rows cleared since the root. */
+        private final int myLines;
+
+        /** The heuristic score of the board. */
+        private final double myScore;
+
+        /** The index of the placement of the current piece this board follows. */
+        private final int myRoot;
+
+        /** The order of the node among nodes of equal score; lower is preferred. */
+        private long myOrder;
+
+        /**
+         * Constructs a Node.
+         *
+         * @param theBoard the frozen blocks.
+         * @param theLines the number of rows cleared since the root.
+         * @param theScore the heuristic score of the board.
+         * @param theRoot the index of the first placement.
+         * @param theOrder the order of the node among nodes of equal score.
+         */
+        Node(final BitBoard theBoard, final int theLines, final double theScore,
+             final int theRoot, final long theOrder) {
+            myBoard = theBoard;
+            myLines = theLines;
+            myScore = theScore;
+            myRoot = theRoot;
+            myOrder = theOrder;
+        }
+    }
+
+    /**
+     * Expands a range of the boards of a beam, splitting it in halves.
+     */
+    private final class Expansion extends RecursiveAction {
+
+        /** Serialization version. */
+        private static final long serialVersionUID = -2915760446170539358L;
+
+        /** The boards of the previous depth. */
+        private final List<Node> myBeam;
+
+        /** The first board of the range. */
+        private final int myFrom;
+
+        /** The end of the range, exclusive. */
+        private final int myTo;
+
+        /** The piece to place. */
+        private final TetrisPiece myPiece;
+
+        /** The piece previewed after it. */
+        private final TetrisPiece myFollowing;
+
+        /** The depth of the new nodes. */
+        private final int myDepth;
+
+        /** The children of each board, filled in by index. */
+        private final List<List<Node>> myChildren;
+
+        /**
+         * Constructs an Expansion.
+         *
+         * @param theBeam the boards of the previous depth.
+         * @param theFrom the first board of the range.
+         * @param theTo the end of the range, exclusive.
+         * @param thePiece the piece to place.
+         * @param theFollowing the piece previewed after it.
+         * @param theDepth the depth of the new nodes.
+         * @param theChildren the children of each board, filled in by index.
+         */
+        Expansion(final List<Node> theBeam, final int theFrom, final int theTo,
+                  final TetrisPiece thePiece, final TetrisPiece theFollowing,
+                  final int theDepth, final List<List<Node>> theChildren) {
+            super();
+            myBeam = theBeam;
+            myFrom = theFrom;
+            myTo = theTo;
+            myPiece = thePiece;
+            myFollowing = theFollowing;
+            myDepth = theDepth;
+            myChildren = theChildren;
+        }
+
+        @Override
+        protected void compute() {
+            if (myTo - myFrom <= BATCH) {
+                for (int i = myFrom; i < myTo; i++) {
+                    final Node parent = myBeam.get(i);
+                    final PlacementFinder finder = PlacementFinder.forBoard(parent.myBoard);
+                    final int count = finder.search(parent.myBoard,
+                                                    parent.myBoard.spawnPosition(myPiece,
+                                                                                 myFollowing));
+                    final List<Node> children = new ArrayList<Node>(count);
+                    for (int j = 0; j < count; j++) {
+                        final Node child = expand(parent, finder.getPlacement(j), j, myDepth);
+                        if (child != null) {
+                            children.add(child);
+                        }
+                    }
+                    myNodes.add(count);
+                    // Each task sets its own indices of the presized list.
+                    myChildren.set(i, children);
+                }
+            } else {
+                final int middle = (myFrom + myTo) >>> 1;
+                invokeAll(new Expansion(myBeam, myFrom, middle, myPiece, myFollowing,
+                                        myDepth, myChildren),
+                          new Expansion(myBeam, middle, myTo, myPiece, myFollowing,
+                                        myDepth, myChildren));
+            }
+        }
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * TCSS 305 - Project Tetris
+ */
+
+package ai;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+
+import model.Board;
+import sim.Arguments;
+import sim.BatchRunner;
+import sim.Command;
+import sim.InputSource;
+
+/**
+ * A bot that places every piece where a Planner chooses.
+ *
+ * @author TCSS 305 Instructors
+ * @version Autumn 2016
+ */
+public class BotInputSource implements InputSource {
+
+    /** Default number of games played by main. */
+    private static final int DEFAULT_GAMES = 20;
+
+    /** Default piece limit per game used by main. */
+    private static final int DEFAULT_MAX_PIECES = 1000;
+
+    /** Nanoseconds per millisecond. */
+    private static final double NANOS_PER_MILLI = 1e6;
+
+    /** The planner choosing placements. */
+    private final Planner myPlanner;
+
+    /** The number of pieces placed by each search. */
+    private final int myDepth;
+
+    /** The remaining commands planned for the current piece. */
+    private final Deque<Command> myPlan = new ArrayDeque<Command>();
+
+    /** The number of searches, shared by bots reporting together; may be null. */
+    private final LongAdder mySearches;
+
+    /** The time spent searching in nanoseconds, shared like mySearches; may be null. */
+    private final LongAdder mySearchNanos;
+
+    /**
+     * Constructs a bot.
+     *
+     * @param thePlanner the planner choosing placements.
+     * @param theDepth the number of pieces planned for by each search, see
+     *        Planner.choose(Board, int).
+     */
+    public BotInputSource(final Planner thePlanner, final int theDepth) {
+        this(thePlanner, theDepth, null, null);
+    }
+
+    /**
+     * Constructs a bot that adds up its searches and their time.
+     *
+     * @param thePlanner the planner choosing placements.
+     * @param theDepth the number of pieces planned for by each search.
+     * @param theSearches counts the searches, or null.
+     * @param theSearchNanos adds up the search time in nanoseconds, or null.
+     */
+    public BotInputSource(final Planner thePlanner, final int theDepth,
+                          final LongAdder theSearches, final LongAdder theSearchNanos) {
+        if (theDepth < 1) {
+            throw new IllegalArgumentException("Depth must be at least 1: " + theDepth);
+        }
+        myPlanner = thePlanner;
+        myDepth = theDepth;
+        mySearches = theSearches;
+        mySearchNanos = theSearchNanos;
+    }
+
+    @Override
+    public Command nextCommand(final Board theBoard) {
+        if (myPlan.isEmpty()) {
+            final long start = System.nanoTime();
+            final Placement placement = myPlanner.choose(theBoard, myDepth);
+            if (mySearches != null) {
+                mySearches.increment();
+                mySearchNanos.add(System.nanoTime() - start);
+            }
+            if (placement == null) {
+                myPlan.add(Command.DROP);
+            } else {
+                myPlan.addAll(placement.getCommands());
+            }
+        }
+        return myPlan.poll();
+    }
+
+    /**
+     * Plays a batch of bot games and reports the lines cleared and the time
+     * per search.
+     *
+     * Arguments, all optional: lookahead depth, number of games, piece limit
+     * per game and random seed.
+     *
+     * @param theArgs Command line arguments.
+     */
+    public static void main(final String[] theArgs) {
+        final int depth = Arguments.intArg(theArgs, 0, 1);
+        final int games = Arguments.intArg(theArgs, 1, DEFAULT_GAMES);
+        final int maxPieces = Arguments.intArg(theArgs, 2, DEFAULT_MAX_PIECES);
+        final long seed = Arguments.longArg(theArgs, 3, 0);
+
+        final Board defaults = new Board();
+        final PlacementSearch search = new PlacementSearch(new WeightedHeuristic());
+        final LongAdder searches = new LongAdder();
+        final LongAdder nanos = new LongAdder();
+        final BatchRunner runner =
+            new BatchRunner(defaults.getWidth(), defaults.getHeight(),
+                            theSeed -> new BotInputSource(search, depth, searches, nanos),
+                            ForkJoinPool.commonPool());
+        System.out.println("depth " + depth + ": " + runner.run(games, seed, maxPieces));
+        System.out.printf("%d searches, %.3f ms per search%n", searches.sum(),
+                          nanos.sum() / NANOS_PER_MILLI / Math.max(1, searches.sum()));
+    }
+}
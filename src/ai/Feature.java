@@ -0,0 +1,99 @@
+/*
+ * TCSS 305 - Project Tetris
+ */
+
+package ai;
+
+import model.BitBoard;
+
+/**
+ * The board features a WeightedHeuristic combines.
+ *
+ * @author TCSS 305 Instructors
+ * @version Autumn 2016
+ */
+public enum Feature {
+
+    /** The sum of the column heights. */
+    AGGREGATE_HEIGHT {
+        @Override
+        public double measure(final BitBoard theBoard, final int theLines) {
+            int result = 0;
+            for (int x = 0; x < theBoard.getWidth(); x++) {
+                result += theBoard.getColumnHeight(x);
+            }
+            return result;
+        }
+    },
+
+    /** The number of empty cells below the top of their column. */
+    HOLES {
+        @Override
+        public double measure(final BitBoard theBoard, final int theLines) {
+            int result = 0;
+            for (int x = 0; x < theBoard.getWidth(); x++) {
+                for (int y = theBoard.getColumnHeight(x) - 2; y >= 0; y--) {
+                    if (!theBoard.isOccupied(x, y)) {
+                        result++;
+                    }
+                }
+            }
+            return result;
+        }
+    },
+
+    /** The sum of the height differences of neighboring columns. */
+    BUMPINESS {
+        @Override
+        public double measure(final BitBoard theBoard, final int theLines) {
+            int result = 0;
+            for (int x = 1; x < theBoard.getWidth(); x++) {
+                result += Math.abs(theBoard.getColumnHeight(x)
+                                   - theBoard.getColumnHeight(x - 1));
+            }
+            return result;
+        }
+    },
+
+    /** The number of rows cleared. */
+    LINES {
+        @Override
+        public double measure(final BitBoard theBoard, final int theLines) {
+            return theLines;
+        }
+    },
+
+    /**
+     * The sum of the well depths, where a well is a column lower than both of
+     * its neighbors and the walls count as infinitely high neighbors.
+     */
+    WELLS {
+        @Override
+        public double measure(final BitBoard theBoard, final int theLines) {
+            final int last = theBoard.getWidth() - 1;
+            int result = 0;
+            for (int x = 0; last > 0 && x <= last; x++) {
+                final int neighbors;
+                if (x == 0) {
+                    neighbors = theBoard.getColumnHeight(1);
+                } else if (x == last) {
+                    neighbors = theBoard.getColumnHeight(last - 1);
+                } else {
+                    neighbors = Math.min(theBoard.getColumnHeight(x - 1),
+                                         theBoard.getColumnHeight(x + 1));
+                }
+                result += Math.max(0, neighbors - theBoard.getColumnHeight(x));
+            }
+            return result;
+        }
+    };
+
+    /**
+     * Measures this feature.
+     *
+     * @param theBoard the frozen blocks.
+     * @param theLines the number of rows cleared.
+     * @return the value of the feature.
+     */
+    public abstract double measure(BitBoard theBoard, int theLines);
+}
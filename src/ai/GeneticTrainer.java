@@ -0,0 +1,457 @@
+/*
+ * TCSS 305 - Project Tetris
+ */
+
+package ai;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.LongFunction;
+
+import model.Board;
+import sim.Arguments;
+import sim.BatchRunner;
+import sim.BatchStatistics;
+import sim.InputSource;
+
+/**
+ * Evolves the weights of a WeightedHeuristic with a genetic algorithm.
+ *
+ * Every candidate weight vector plays the same seeded headless games with a
+ * depth 1 PlacementSearch bot, and its fitness is the average number of lines
+ * it cleared. The games of a candidate run in parallel. Each generation keeps
+ * the best candidates and breeds the rest from tournament winners, by
+ * fitness weighted crossover and occasional mutation. Weight vectors are kept
+ * at unit length, since scaling the weights does not change the placements
+ * the bot chooses.
+ *
+ * The population is written to a checkpoint file after every generation.
+ * A run started with an existing checkpoint continues from it, and every
+ * random choice is derived from the seed and the generation number, so a
+ * resumed run evolves exactly as an uninterrupted one.
+ *
+ * @author TCSS 305 Instructors
+ * @version Autumn 2016
+ */
+public final class GeneticTrainer {
+
+    /** The first line of a checkpoint file. */
+    private static final String CHECKPOINT_HEADER = "# Tetris heuristic trainer checkpoint";
+
+    /** The checkpoint key of the seed. */
+    private static final String SEED_KEY = "seed";
+
+    /** The checkpoint key of the generation number. */
+    private static final String GENERATION_KEY = "generation";
+
+    /** The checkpoint key of a candidate. */
+    private static final String CANDIDATE_KEY = "candidate";
+
+    /** The default number of candidates per generation. */
+    private static final int DEFAULT_POPULATION = 50;
+
+    /** The default number of games per candidate. */
+    private static final int DEFAULT_GAMES = 20;
+
+    /** The default piece limit per game. */
+    private static final int DEFAULT_MAX_PIECES = 500;
+
+    /** The default number of generations. */
+    private static final int DEFAULT_GENERATIONS = 20;
+
+    /** The fraction of each generation kept unchanged. */
+    private static final double ELITE_FRACTION = 0.1;
+
+    /** The fraction of the population taking part in a tournament. */
+    private static final double TOURNAMENT_FRACTION = 0.1;
+
+    /** The probability that a child is mutated. */
+    private static final double MUTATION_RATE = 0.05;
+
+    /** The largest change of a weight by a mutation. */
+    private static final double MUTATION_STEP = 0.2;
+
+    /** Separates the random choices of consecutive generations. */
+    private static final long GENERATION_GAMMA = 0x9E3779B97F4A7C15L;
+
+    /** Nanoseconds per second. */
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    /** The number of weights of a candidate. */
+    private static final int WEIGHTS = Feature.values().length;
+
+    /** Orders candidates by descending fitness. */
+    private static final Comparator<Candidate> FITTEST_FIRST = new Comparator<Candidate>() {
+        @Override
+        public int compare(final Candidate theFirst, final Candidate theSecond) {
+            return Double.compare(theSecond.myFitness, theFirst.myFitness);
+        }
+    };
+
+    /** The file the population is saved to after every generation. */
+    private final Path myCheckpoint;
+
+    /** The number of games per candidate. */
+    private final int myGames;
+
+    /** The piece limit per game. */
+    private final int myMaxPieces;
+
+    /** Width of the boards. */
+    private final int myWidth;
+
+    /** Height of the boards. */
+    private final int myHeight;
+
+    /** The pool playing the games. */
+    private final ForkJoinPool myPool;
+
+    /** The seed every random choice is derived from. */
+    private long mySeed;
+
+    /** The number of the current generation. */
+    private int myGeneration;
+
+    /** The candidates of the current generation. */
+    private List<Candidate> myPopulation;
+
+    /**
+     * Constructs a trainer. The population is read from the checkpoint file if
+     * it exists, otherwise a random population is created from the seed.
+     *
+     * @param theCheckpoint the checkpoint file.
+     * @param thePopulationSize the number of candidates per generation of a new run.
+     * @param theGames the number of games per candidate.
+     * @param theMaxPieces the piece limit per game.
+     * @param theSeed the seed of a new run.
+     * @param thePool the pool playing the games.
+     * @throws IOException if the checkpoint exists but cannot be read.
+     * @throws IllegalArgumentException if the population has fewer than two
+     *         candidates or the number of games is not positive.
+     */
+    public GeneticTrainer(final Path theCheckpoint, final int thePopulationSize,
+                          final int theGames, final int theMaxPieces, final long theSeed,
+                          final ForkJoinPool thePool) throws IOException {
+        if (thePopulationSize < 2) {
+            throw new IllegalArgumentException("Population must have at least 2 candidates: "
+                                               + thePopulationSize);
+        }
+        if (theGames < 1) {
+            throw new IllegalArgumentException("Games must be positive: " + theGames);
+        }
+        myCheckpoint = theCheckpoint;
+        myGames = theGames;
+        myMaxPieces = theMaxPieces;
+        myPool = thePool;
+        final Board defaults = new Board();
+        myWidth = defaults.getWidth();
+        myHeight = defaults.getHeight();
+        if (Files.exists(theCheckpoint)) {
+            readCheckpoint();
+        } else {
+            mySeed = theSeed;
+            myPopulation = new ArrayList<Candidate>(thePopulationSize);
+            final SplittableRandom random = random();
+            for (int i = 0; i < thePopulationSize; i++) {
+                final double[] weights = new double[WEIGHTS];
+                for (int w = 0; w < WEIGHTS; w++) {
+                    weights[w] = random.nextDouble(-1, 1);
+                }
+                myPopulation.add(new Candidate(normalize(weights)));
+            }
+        }
+    }
+
+    /**
+     * Evolves the population until a generation is reached, saving a
+     * checkpoint after every generation.
+     *
+     * @param theGenerations the number of the last generation to evaluate.
+     * @return the fittest candidate of the last generation.
+     * @throws IOException if a checkpoint cannot be written.
+     */
+    public WeightedHeuristic train(final int theGenerations) throws IOException {
+        if (!isEvaluated()) {
+            evaluate();
+        }
+        while (myGeneration < theGenerations) {
+            breed();
+            evaluate();
+        }
+        return new WeightedHeuristic(myPopulation.get(0).myWeights);
+    }
+
+    /**
+     * Returns the number of the current generation.
+     *
+     * @return the generation number, 0 for the random population.
+     */
+    public int getGeneration() {
+        return myGeneration;
+    }
+
+    /**
+     * Plays the games of every candidate of the current generation, reports
+     * the generation and saves a checkpoint.
+     *
+     * @throws IOException if the checkpoint cannot be written.
+     */
+    private void evaluate() throws IOException {
+        final long start = System.nanoTime();
+        // Every candidate of a generation plays the same games.
+        final long gameSeed = random().nextLong();
+        final List<LongFunction<InputSource>> players = new ArrayList<>();
+        for (final Candidate candidate : myPopulation) {
+            final PlacementSearch search =
+                new PlacementSearch(new WeightedHeuristic(candidate.myWeights), myPool);
+            players.add(new LongFunction<InputSource>() {
+                @Override
+                public InputSource apply(final long theSeed) {
+                    return new BotInputSource(search, 1);
+                }
+            });
+        }
+        // One batch keeps the pool busy however few games each candidate plays.
+        final BatchStatistics[] statistics =
+            new BatchRunner(myWidth, myHeight, null, myPool)
+                .runEach(players, myGames, gameSeed, myMaxPieces);
+        double total = 0;
+        for (int i = 0; i < statistics.length; i++) {
+            final Candidate candidate = myPopulation.get(i);
+            candidate.myFitness = statistics[i].getAverageLines();
+            total += candidate.myFitness;
+        }
+        Collections.sort(myPopulation, FITTEST_FIRST);
+        final double seconds = (System.nanoTime() - start) / NANOS_PER_SECOND;
+        final int games = myGames * myPopulation.size();
+        System.out.printf("generation %d: best %.2f, average %.2f lines; "
+                          + "%d games in %.1f s: %.1f games/s; best weights %s%n",
+                          myGeneration, myPopulation.get(0).myFitness,
+                          total / myPopulation.size(), games, seconds, games / seconds,
+                          Arrays.toString(myPopulation.get(0).myWeights));
+        writeCheckpoint();
+    }
+
+    /**
+     * Replaces the evaluated population with the next generation.
+     */
+    private void breed() {
+        myGeneration++;
+        final SplittableRandom random = random();
+        final int size = myPopulation.size();
+        final int elites = Math.max(1, (int) (size * ELITE_FRACTION));
+        final int tournament = Math.max(2, (int) (size * TOURNAMENT_FRACTION));
+        final List<Candidate> next = new ArrayList<Candidate>(size);
+        for (int i = 0; i < elites; i++) {
+            next.add(new Candidate(myPopulation.get(i).myWeights));
+        }
+        while (next.size() < size) {
+            final Candidate[] parents = tournament(random, tournament);
+            final double[] weights = new double[WEIGHTS];
+            // Fitness weighted crossover; equal weighting if neither cleared a line.
+            final double first = Math.max(parents[0].myFitness, 0);
+            final double second = Math.max(parents[1].myFitness, 0);
+            double share = 1 / 2.0;
+            if (first + second > 0) {
+                share = first / (first + second);
+            }
+            for (int w = 0; w < WEIGHTS; w++) {
+                weights[w] = share * parents[0].myWeights[w]
+                             + (1 - share) * parents[1].myWeights[w];
+            }
+            if (random.nextDouble() < MUTATION_RATE) {
+                weights[random.nextInt(WEIGHTS)] += random.nextDouble(-MUTATION_STEP,
+                                                                      MUTATION_STEP);
+            }
+            next.add(new Candidate(normalize(weights)));
+        }
+        myPopulation = next;
+    }
+
+    /**
+     * Picks the two fittest of a random sample of the population.
+     *
+     * @param theRandom the random number generator.
+     * @param theSize the sample size.
+     * @return the two winners, fitter first.
+     */
+    private Candidate[] tournament(final SplittableRandom theRandom, final int theSize) {
+        final List<Candidate> sample = new ArrayList<Candidate>(theSize);
+        for (int i = 0; i < theSize; i++) {
+            sample.add(myPopulation.get(theRandom.nextInt(myPopulation.size())));
+        }
+        Collections.sort(sample, FITTEST_FIRST);
+        return new Candidate[] {sample.get(0), sample.get(1)};
+    }
+
+    /**
+     * Determines if every candidate of the current generation has a fitness.
+     *
+     * @return true if the generation was evaluated.
+     */
+    private boolean isEvaluated() {
+        boolean result = true;
+        for (final Candidate candidate : myPopulation) {
+            result &= !Double.isNaN(candidate.myFitness);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the random number generator of the current generation.
+     *
+     * @return a generator derived from the seed and the generation number.
+     */
+    private SplittableRandom random() {
+        return new SplittableRandom(mySeed + myGeneration * GENERATION_GAMMA);
+    }
+
+    /**
+     * Writes the population to the checkpoint file, replacing it in one step
+     * so that an interrupted write leaves the previous checkpoint intact.
+     *
+     * @throws IOException if the file cannot be written.
+     */
+    private void writeCheckpoint() throws IOException {
+        final Path directory = myCheckpoint.toAbsolutePath().getParent();
+        if (directory != null) {
+            Files.createDirectories(directory);
+        }
+        final Path temporary = Paths.get(myCheckpoint + ".tmp");
+        try (BufferedWriter out = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+            out.write(CHECKPOINT_HEADER);
+            out.newLine();
+            out.write(SEED_KEY + ' ' + mySeed);
+            out.newLine();
+            out.write(GENERATION_KEY + ' ' + myGeneration);
+            out.newLine();
+            for (final Candidate candidate : myPopulation) {
+                final StringBuilder line = new StringBuilder(CANDIDATE_KEY);
+                line.append(' ').append(candidate.myFitness);
+                for (final double weight : candidate.myWeights) {
+                    line.append(' ').append(weight);
+                }
+                out.write(line.toString());
+                out.newLine();
+            }
+        }
+        Files.move(temporary, myCheckpoint, StandardCopyOption.REPLACE_EXISTING,
+                   StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads the population from the checkpoint file.
+     *
+     * @throws IOException if the file cannot be read or is malformed.
+     */
+    private void readCheckpoint() throws IOException {
+        myPopulation = new ArrayList<Candidate>();
+        try (BufferedReader in = Files.newBufferedReader(myCheckpoint, StandardCharsets.UTF_8)) {
+            String line = in.readLine();
+            while (line != null) {
+                final String[] fields = line.trim().split("\\s+");
+                try {
+                    if (SEED_KEY.equals(fields[0])) {
+                        mySeed = Long.parseLong(fields[1]);
+                    } else if (GENERATION_KEY.equals(fields[0])) {
+                        myGeneration = Integer.parseInt(fields[1]);
+                    } else if (CANDIDATE_KEY.equals(fields[0])) {
+                        final double[] weights = new double[WEIGHTS];
+                        for (int w = 0; w < WEIGHTS; w++) {
+                            weights[w] = Double.parseDouble(fields[w + 2]);
+                        }
+                        final Candidate candidate = new Candidate(weights);
+                        candidate.myFitness = Double.parseDouble(fields[1]);
+                        myPopulation.add(candidate);
+                    }
+                } catch (final NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                    throw new IOException("Malformed checkpoint line: " + line, e);
+                }
+                line = in.readLine();
+            }
+        }
+        if (myPopulation.size() < 2) {
+            throw new IOException("Checkpoint has fewer than 2 candidates: " + myCheckpoint);
+        }
+    }
+
+    /**
+     * Scales a weight vector to unit length.
+     *
+     * @param theWeights the weights; changed in place.
+     * @return the weights.
+     */
+    private static double[] normalize(final double[] theWeights) {
+        double length = 0;
+        for (final double weight : theWeights) {
+            length += weight * weight;
+        }
+        length = Math.sqrt(length);
+        for (int i = 0; length > 0 && i < theWeights.length; i++) {
+            theWeights[i] /= length;
+        }
+        return theWeights;
+    }
+
+    /**
+     * Trains heuristic weights, resuming from the checkpoint if it exists.
+     *
+     * Arguments, all optional: checkpoint file (default trainer.checkpoint),
+     * last generation, population size, games per candidate, piece limit
+     * per game and random seed. The population size and seed of a resumed
+     * run come from the checkpoint.
+     *
+     * @param theArgs Command line arguments.
+     * @throws IOException if the checkpoint cannot be read or written.
+     */
+    public static void main(final String[] theArgs) throws IOException {
+        Path checkpoint = Paths.get("trainer.checkpoint");
+        if (theArgs.length > 0) {
+            checkpoint = Paths.get(theArgs[0]);
+        }
+        final int generations = Arguments.intArg(theArgs, 1, DEFAULT_GENERATIONS);
+        final int population = Arguments.intArg(theArgs, 2, DEFAULT_POPULATION);
+        final int games = Arguments.intArg(theArgs, 3, DEFAULT_GAMES);
+        final int maxPieces = Arguments.intArg(theArgs, 4, DEFAULT_MAX_PIECES);
+        final long seed = Arguments.longArg(theArgs, 5, 0);
+
+        final GeneticTrainer trainer = new GeneticTrainer(checkpoint, population, games,
+                                                          maxPieces, seed,
+                                                          ForkJoinPool.commonPool());
+        System.out.println("Best weights: " + trainer.train(generations));
+    }
+
+    /**
+     * A weight vector and the average number of lines it cleared.
+     */
+    private static final class Candidate {
+
+        /** The weights, in Feature order. */
+        private final double[] myWeights;
+
+        /** The average number of lines cleared, or NaN before the games are played. */
+        private double myFitness = Double.NaN;
+
+        /**
+         * Constructs a Candidate that has not played yet.
+         *
+         * @param theWeights the weights, in Feature order.
+         */
+        Candidate(final double[] theWeights) {
+            myWeights = theWeights;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+/*
+ * TCSS 305 - Project Tetris
+ */
+
+package ai;
+
+import model.BitBoard;
+
+/**
+ * Scores the board a placement leaves behind; higher scores are better.
+ *
+ * A heuristic is called concurrently from the threads of a search, so it must
+ * not keep state between calls.
+ *
+ * @author TCSS 305 Instructors
+ * @version Autumn 2016
+ * @see PlacementSearch
+ */
+@FunctionalInterface
+public interface Heuristic {
+
+    /**
+     * Scores a board.
+     *
+     * @param theBoard the frozen blocks after the placed pieces locked and
+     *        their complete rows were cleared; must not be changed.
+     * @param theLines the number of rows the placed pieces cleared.
+     * @return the score.
+     */
+    double evaluate(BitBoard theBoard, int theLines);
+}
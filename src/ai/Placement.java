@@ -0,0 +1,82 @@
+/*
+ * TCSS 305 - Project Tetris
+ */
+
+package ai;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import model.PieceState;
+import sim.Command;
+
+/**
+ * A place where the current piece can lock, with the commands that move it
+ * there and the score a search gave it.
+ *
+ * @author TCSS 305 Instructors
+ * @version Autumn 2016
+ */
+public final class Placement {
+
+    /** The packed state the piece locks in. */
+    private final int myState;
+
+    /** The commands moving the piece from its position to the lock. */
+    private final List<Command> myCommands;
+
+    /** The score of the placement. */
+    private final double myScore;
+
+    /**
+     * Constructs a Placement.
+     *
+     * @param theState the packed state the piece locks in.
+     * @param theCommands the commands moving the piece there and locking it.
+     * @param theScore the score of the placement.
+     */
+    public Placement(final int theState, final Command[] theCommands, final double theScore) {
+        myState = theState;
+        myCommands = Collections.unmodifiableList(Arrays.asList(theCommands.clone()));
+        myScore = theScore;
+    }
+
+    /**
+     * Returns the packed state the piece locks in.
+     *
+     * @return the packed piece state.
+     * @see PieceState
+     */
+    public int getState() {
+        return myState;
+    }
+
+    /**
+     * Returns the commands moving the piece from its position when the search
+     * started to the lock. The last command locks the piece.
+     *
+     * @return the commands.
+     */
+    public List<Command> getCommands() {
+        return myCommands;
+    }
+
+    /**
+     * Returns the score of the placement: the best heuristic score reachable
+     * through the searched lookahead, or negative infinity if the placement
+     * ends the game.
+     *
+     * @return the score.
+     */
+    public double getScore() {
+        return myScore;
+    }
+
+    @Override
+    public String toString() {
+        return PieceState.getPiece(myState) + " " + PieceState.getRotation(myState) + " at ("
+               + PieceState.getX(myState) + ", " + PieceState.getY(myState) + ") score "
+               + myScore + " via " + myCommands;
+    }
+}
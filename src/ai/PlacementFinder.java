@@ -0,0 +1,271 @@
+/*
+ * TCSS 305 - Project Tetris
+ */
+
+package ai;
+
+import model.BitBoard;
+import model.PieceState;
+import sim.Command;
+
+/**
+ * Finds every place a piece can lock by a breadth first search over the
+ * positions the commands of a Board can move it through, with the same wall
+ * kicks as the rotations of a Board. Soft drops let the piece slide under overhangs,
+ * and the commands found for each placement are among the shortest.
+ *
+ * A finder reuses its arrays from search to search, so each thread uses its
+ * own finder, and callers copy out the placements they need before anything
+ * else on the thread searches again.
+ *
+ * @author TCSS 305 Instructors
+ * @version Autumn 2016
+ */
+final class PlacementFinder {
+
+    /** The distance a piece position can be outside of the board on each side. */
+    private static final int MARGIN = 4;
+
+    /** The number of rotations. */
+    private static final int ROTATIONS = 4;
+
+    /** The commands moving a piece without locking it, in search order. */
+    private static final Command[] MOVES = {Command.LEFT, Command.RIGHT, Command.ROTATE,
+                                            Command.ROTATE_CCW, Command.ROTATE_180,
+                                            Command.DOWN};
+
+    /** The finder of each thread. */
+    private static final ThreadLocal<PlacementFinder> FINDERS =
+        new ThreadLocal<PlacementFinder>();
+
+    /** Width of the board. */
+    private final int myWidth;
+
+    /** Height of the board. */
+    private final int myHeight;
+
+    /** The number of piece columns in the index. */
+    private final int myColumns;
+
+    /** The number of piece rows in the index. */
+    private final int myRows;
+
+    /** The search that last visited each position. */
+    private final int[] myVisited;
+
+    /** The position each visited position was reached from. */
+    private final int[] myParent;
+
+    /** The command each visited position was reached by. */
+    private final byte[] myMove;
+
+    /** The search that last found each lock position. */
+    private final int[] myLocked;
+
+    /** The position each lock position was dropped from. */
+    private final int[] myDroppedFrom;
+
+    /** The positions to visit, in breadth first order. */
+    private final int[] myQueue;
+
+    /** The lock positions found by the last search. */
+    private final int[] myPlacements;
+
+    /** The number of lock positions found by the last search. */
+    private int myCount;
+
+    /** The number of the current search. */
+    private int mySearch;
+
+    /**
+     * Constructs a finder for boards of a size.
+     *
+     * @param theWidth Width of the board.
+     * @param theHeight Height of the board.
+     */
+    PlacementFinder(final int theWidth, final int theHeight) {
+        myWidth = theWidth;
+        myHeight = theHeight;
+        myColumns = theWidth + 2 * MARGIN;
+        myRows = theHeight + 2 * MARGIN;
+        final int size = ROTATIONS * myColumns * myRows;
+        myVisited = new int[size];
+        myParent = new int[size];
+        myMove = new byte[size];
+        myLocked = new int[size];
+        myDroppedFrom = new int[size];
+        myQueue = new int[size];
+        myPlacements = new int[size];
+    }
+
+    /**
+     * Returns the finder of the current thread for boards of a size.
+     *
+     * @param theBoard a board of the size to search.
+     * @return the finder.
+     */
+    static PlacementFinder forBoard(final BitBoard theBoard) {
+        PlacementFinder result = FINDERS.get();
+        if (result == null || result.myWidth != theBoard.getWidth()
+            || result.myHeight != theBoard.getHeight()) {
+            result = new PlacementFinder(theBoard.getWidth(), theBoard.getHeight());
+            FINDERS.set(result);
+        }
+        return result;
+    }
+
+    /**
+     * Finds every place a piece can lock.
+     *
+     * @param theBoard the frozen blocks.
+     * @param theStart the packed state of the piece before it moves.
+     * @return the number of lock positions; 0 if the piece does not fit.
+     */
+    int search(final BitBoard theBoard, final int theStart) {
+        mySearch++;
+        myCount = 0;
+        final int start = index(theStart);
+        if (start >= 0 && theBoard.fits(theStart)) {
+            myVisited[start] = mySearch;
+            myParent[start] = PieceState.NONE;
+            int head = 0;
+            int tail = 0;
+            myQueue[tail++] = theStart;
+            while (head < tail) {
+                final int state = myQueue[head++];
+                lock(theBoard.dropPosition(state), state);
+                for (final Command move : MOVES) {
+                    final int next = apply(theBoard, state, move);
+                    final int index = index(next);
+                    if (index >= 0 && myVisited[index] != mySearch) {
+                        myVisited[index] = mySearch;
+                        myParent[index] = state;
+                        myMove[index] = (byte) move.ordinal();
+                        myQueue[tail++] = next;
+                    }
+                }
+            }
+        }
+        return myCount;
+    }
+
+    /**
+     * Returns a lock position found by the last search.
+     *
+     * @param theIndex the index of the placement, less than the search result.
+     * @return the packed state the piece locks in.
+     */
+    int getPlacement(final int theIndex) {
+        return myPlacements[theIndex];
+    }
+
+    /**
+     * Returns the commands that move the piece of the last search from its
+     * start to a lock position and lock it there.
+     *
+     * @param theIndex the index of the placement, less than the search result.
+     * @return the commands, ending with Command.DROP.
+     */
+    Command[] getCommands(final int theIndex) {
+        final Command[] commands = Command.values();
+        int length = 1;
+        final int from = myDroppedFrom[index(myPlacements[theIndex])];
+        for (int state = from; myParent[index(state)] != PieceState.NONE;
+             state = myParent[index(state)]) {
+            length++;
+        }
+        final Command[] result = new Command[length];
+        result[--length] = Command.DROP;
+        for (int state = from; myParent[index(state)] != PieceState.NONE;
+             state = myParent[index(state)]) {
+            result[--length] = commands[myMove[index(state)]];
+        }
+        return result;
+    }
+
+    /**
+     * Records a lock position the first time it is found.
+     *
+     * @param theLocked the packed state the piece locks in.
+     * @param theFrom the position the piece is dropped from.
+     */
+    private void lock(final int theLocked, final int theFrom) {
+        final int index = index(theLocked);
+        if (index >= 0 && myLocked[index] != mySearch) {
+            myLocked[index] = mySearch;
+            myDroppedFrom[index] = theFrom;
+            myPlacements[myCount++] = theLocked;
+        }
+    }
+
+    /**
+     * Applies a move to a piece position.
+     *
+     * @param theBoard the frozen blocks.
+     * @param theState the packed state of the piece.
+     * @param theMove the move.
+     * @return the packed state after the move, or PieceState.NONE if it is blocked.
+     */
+    private static int apply(final BitBoard theBoard, final int theState,
+                             final Command theMove) {
+        int result;
+        switch (theMove) {
+            case LEFT:
+                result = fitting(theBoard, PieceState.move(theState, -1, 0));
+                break;
+            case RIGHT:
+                result = fitting(theBoard, PieceState.move(theState, 1, 0));
+                break;
+            case DOWN:
+                result = fitting(theBoard, PieceState.move(theState, 0, -1));
+                break;
+            case ROTATE:
+                result = theBoard.rotatePosition(
+                    theState, PieceState.getRotation(theState).clockwise());
+                break;
+            case ROTATE_CCW:
+                result = theBoard.rotatePosition(
+                    theState, PieceState.getRotation(theState).counterclockwise());
+                break;
+            default:
+                result = theBoard.rotatePosition(
+                    theState, PieceState.getRotation(theState).halfTurn());
+                break;
+        }
+        return result;
+    }
+
+    /**
+     * Checks that a moved piece position fits.
+     *
+     * @param theBoard the frozen blocks.
+     * @param theState the packed state of the piece.
+     * @return the state, or PieceState.NONE if it does not fit.
+     */
+    private static int fitting(final BitBoard theBoard, final int theState) {
+        int result = PieceState.NONE;
+        if (theBoard.fits(theState)) {
+            result = theState;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the index of a piece position in the search arrays.
+     *
+     * @param theState the packed state of the piece, or PieceState.NONE.
+     * @return the index, or -1 if the position is out of range.
+     */
+    private int index(final int theState) {
+        int result = -1;
+        if (theState != PieceState.NONE) {
+            final int x = PieceState.getX(theState) + MARGIN;
+            final int y = PieceState.getY(theState) + MARGIN;
+            if (x >= 0 && x < myColumns && y >= 0 && y < myRows) {
+                result = (PieceState.getRotation(theState).ordinal() * myRows + y)
+                         * myColumns + x;
+            }
+        }
+        return result;
+    }
+}
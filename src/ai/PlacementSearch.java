@@ -0,0 +1,273 @@
+/*
+ * TCSS 305 - Project Tetris
+ */
+
+package ai;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+import model.BitBoard;
+import model.Board;
+import model.BoardState;
+import model.TetrisPiece;
+import sim.Command;
+
+/**
+ * Chooses where to place the current piece of a Board.
+ *
+ * Every reachable placement of the current piece is tried on a copy of the
+ * frozen blocks. With a lookahead, every reachable placement of each previewed
+ * piece is tried on the result in turn, and a placement scores the best
+ * heuristic score it leads to. Placements that leave identical blocks behind
+ * are searched once. The subtrees of a lookahead search run in parallel on a
+ * fork/join pool; the live Board is only read, never changed.
+ *
+ * @author TCSS 305 Instructors
+ * @version Autumn 2016
+ */
+public final class PlacementSearch implements Planner {
+
+    /** The heuristic scoring the boards at the end of the lookahead. */
+    private final Heuristic myHeuristic;
+
+    /** The pool running the subtrees of a lookahead search. */
+    private final ForkJoinPool myPool;
+
+    /**
+     * Constructs a search running on the common fork/join pool.
+     *
+     * @param theHeuristic the heuristic scoring boards.
+     */
+    public PlacementSearch(final Heuristic theHeuristic) {
+        this(theHeuristic, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructs a search.
+     *
+     * @param theHeuristic the heuristic scoring boards.
+     * @param thePool the pool running the subtrees of lookahead searches.
+     */
+    public PlacementSearch(final Heuristic theHeuristic, final ForkJoinPool thePool) {
+        myHeuristic = theHeuristic;
+        myPool = thePool;
+    }
+
+    /**
+     * Chooses where to place the current piece of a board.
+     *
+     * @param theBoard the board; only read.
+     * @param theDepth the number of pieces to place: 1 for the current piece
+     *        alone, 2 to also place the next piece, and so on.
+     * @return the best placement, or null if there is no current piece or it
+     *         cannot move.
+     * @throws IllegalArgumentException if the depth is less than 1.
+     */
+    @Override
+    public Placement choose(final Board theBoard, final int theDepth) {
+        if (theDepth < 1) {
+            throw new IllegalArgumentException("Depth must be at least 1: " + theDepth);
+        }
+        final BoardState state = theBoard.getState();
+        // One piece more than the lookahead, for the spawn position of the last one.
+        return choose(state.getFrozenBlocks(), state.getCurrentPiece(),
+                      theBoard.getNextPieces(theDepth), theDepth);
+    }
+
+    /**
+     * Chooses where to place a piece.
+     *
+     * @param theBoard the frozen blocks; only read.
+     * @param thePiece the packed state of the piece to place, or PieceState.NONE.
+     * @param thePreview the pieces that play after it, in order.
+     * @param theDepth the number of pieces to place; at most one more than the
+     *        number of previewed pieces are placed.
+     * @return the best placement, or null if the piece cannot move.
+     * @throws IllegalArgumentException if the depth is less than 1.
+     */
+    public Placement choose(final BitBoard theBoard, final int thePiece,
+                            final List<TetrisPiece> thePreview, final int theDepth) {
+        if (theDepth < 1) {
+            throw new IllegalArgumentException("Depth must be at least 1: " + theDepth);
+        }
+        final List<TetrisPiece> preview =
+            new ArrayList<TetrisPiece>(thePreview.subList(0, Math.min(theDepth - 1,
+                                                                      thePreview.size())));
+        final PlacementFinder finder = PlacementFinder.forBoard(theBoard);
+        final int count = finder.search(theBoard, thePiece);
+        final List<Candidate> candidates = new ArrayList<Candidate>(count);
+        final Set<Long> seen = new HashSet<Long>();
+        for (int i = 0; i < count; i++) {
+            final BitBoard board = new BitBoard(theBoard);
+            final int placement = finder.getPlacement(i);
+            final boolean inside = board.place(placement);
+            final int lines = board.clearFullRows().length;
+            if (!inside || seen.add(board.getHash())) {
+                candidates.add(new Candidate(placement, finder.getCommands(i),
+                                             new Subtree(board, !inside, lines, preview, 0,
+                                                         thePreview)));
+            }
+        }
+
+        final List<Subtree> subtrees = new ArrayList<Subtree>(candidates.size());
+        for (final Candidate candidate : candidates) {
+            subtrees.add(candidate.mySubtree);
+        }
+        if (preview.isEmpty()) {
+            for (final Subtree subtree : subtrees) {
+                subtree.invoke();
+            }
+        } else if (ForkJoinTask.getPool() == myPool) {
+            ForkJoinTask.invokeAll(subtrees);
+        } else {
+            myPool.invoke(new RecursiveTask<Void>() {
+                /** Serialization version. */
+                private static final long serialVersionUID = -6203488611837204733L;
+
+                @Override
+                protected Void compute() {
+                    invokeAll(subtrees);
+                    return null;
+                }
+            });
+        }
+
+        Placement result = null;
+        for (final Candidate candidate : candidates) {
+            final double score = candidate.mySubtree.join();
+            if (result == null || score > result.getScore()) {
+                result = new Placement(candidate.myState, candidate.myCommands, score);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * A placement of the piece being chosen for, with its subtree.
+     */
+    private static final class Candidate {
+
+        /** The packed state the piece locks in. */
+        private final int myState;
+
+        /** The commands moving the piece there. */
+        private final Command[] myCommands;
+
+        /** The search of the board the placement leaves behind. */
+        private final Subtree mySubtree;
+
+        /**
+         * Constructs a Candidate.
+         *
+         * @param theState the packed state the piece locks in.
+         * @param theCommands the commands moving the piece there.
+         * @param theSubtree the search of the board the placement leaves behind.
+         */
+        Candidate(final int theState, final Command[] theCommands, final Subtree theSubtree) {
+            myState = theState;
+            myCommands = theCommands;
+            mySubtree = theSubtree;
+        }
+    }
+
+    /**
+     * Scores the board a placement leaves behind: by the heuristic at the end
+     * of the lookahead, otherwise by the best placement of the next previewed
+     * piece. Subtrees that place more than one further piece are forked.
+     */
+    private final class Subtree extends RecursiveTask<Double> {
+
+        /** Serialization version. */
+        private static final long serialVersionUID = 4528079318826934590L;
+
+        /** The frozen blocks after the placement. */
+        private final BitBoard myBoard;
+
+        /** If the placement ended the game. */
+        private final boolean myGameOver;
+
+        /** The number of rows cleared by the placements so far. */
+        private final int myLines;
+
+        /** The previewed pieces to place. */
+        private final List<TetrisPiece> myPieces;
+
+        /** The index of the next piece to place. */
+        private final int myIndex;
+
+        /** Every previewed piece, for the spawn position of the next piece. */
+        private final List<TetrisPiece> myPreview;
+
+        /**
+         * Constructs a Subtree.
+         *
+         * @param theBoard the frozen blocks after the placement.
+         * @param theGameOver if the placement ended the game.
+         * @param theLines the number of rows cleared by the placements so far.
+         * @param thePieces the previewed pieces to place.
+         * @param theIndex the index of the next piece to place.
+         * @param thePreview every previewed piece.
+         */
+        Subtree(final BitBoard theBoard, final boolean theGameOver, final int theLines,
+                final List<TetrisPiece> thePieces, final int theIndex,
+                final List<TetrisPiece> thePreview) {
+            super();
+            myBoard = theBoard;
+            myGameOver = theGameOver;
+            myLines = theLines;
+            myPieces = thePieces;
+            myIndex = theIndex;
+            myPreview = thePreview;
+        }
+
+        @Override
+        protected Double compute() {
+            double result = Double.NEGATIVE_INFINITY;
+            if (!myGameOver && myIndex == myPieces.size()) {
+                result = myHeuristic.evaluate(myBoard, myLines);
+            } else if (!myGameOver) {
+                final TetrisPiece piece = myPieces.get(myIndex);
+                TetrisPiece following = piece;
+                if (myIndex + 1 < myPreview.size()) {
+                    following = myPreview.get(myIndex + 1);
+                }
+                final PlacementFinder finder = PlacementFinder.forBoard(myBoard);
+                final int count = finder.search(myBoard,
+                                                myBoard.spawnPosition(piece, following));
+                // Copy the placements out, the finder is reused by forked subtrees.
+                final int[] placements = new int[count];
+                for (int i = 0; i < count; i++) {
+                    placements[i] = finder.getPlacement(i);
+                }
+                final List<Subtree> children = new ArrayList<Subtree>(count);
+                final Set<Long> seen = new HashSet<Long>();
+                for (final int placement : placements) {
+                    final BitBoard board = new BitBoard(myBoard);
+                    final boolean inside = board.place(placement);
+                    final int lines = board.clearFullRows().length;
+                    if (inside && seen.add(board.getHash())) {
+                        children.add(new Subtree(board, false, myLines + lines, myPieces,
+                                                 myIndex + 1, myPreview));
+                    }
+                }
+                if (myIndex + 1 < myPieces.size()) {
+                    invokeAll(children);
+                    for (final Subtree child : children) {
+                        result = Math.max(result, child.join());
+                    }
+                } else {
+                    for (final Subtree child : children) {
+                        result = Math.max(result, child.compute());
+                    }
+                }
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+/*
+ * TCSS 305 - Project Tetris
+ */
+
+package ai;
+
+import model.Board;
+
+/**
+ * Chooses where to place the current piece of a Board.
+ *
+ * @author TCSS 305 Instructors
+ * @version Autumn 2016
+ * @see BotInputSource
+ */
+@FunctionalInterface
+public interface Planner {
+
+    /**
+     * Chooses where to place the current piece of a board.
+     *
+     * @param theBoard the board; only read.
+     * @param theDepth the number of pieces to plan for: 1 for the current
+     *        piece alone, 2 to also place the next piece, and so on.
+     * @return the chosen placement, or null if there is no current piece or
+     *         it cannot move.
+     * @throws IllegalArgumentException if the depth is less than 1.
+     */
+    Placement choose(Board theBoard, int theDepth);
+}
@@ -0,0 +1,264 @@
+/*
+ * TCSS 305 - Project Tetris
+ */
+
+package ai;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A fixed size table of the best score found for each position of a search,
+ * keyed by the 64 bit hash of the position and shared by the worker threads.
+ *
+ * The table is split into buckets of a few entries; each bucket is guarded by
+ * one of a fixed number of locks, so threads only contend when they touch
+ * buckets of the same stripe. When a bucket is full, a new entry replaces its
+ * lowest scored entry, so the memory used never grows. Clearing the table
+ * takes constant time.
+ *
+ * Two entries with equal scores are ordered by a caller supplied order, lower
+ * first, so that the best entry of a position does not depend on the order
+ * the threads offered them in.
+ *
+ * @author TCSS 305 Instructors
+ * @version Autumn 2016
+ */
+public final class TranspositionTable {
+
+    /** The number of entries of a bucket. */
+    private static final int BUCKET_SIZE = 4;
+
+    /** The default number of lock stripes. */
+    private static final int DEFAULT_STRIPES = 64;
+
+    /** The mask selecting a bucket from a hash. */
+    private final int myBucketMask;
+
+    /** The mask selecting a lock stripe from a bucket. */
+    private final int myStripeMask;
+
+    /** The locks guarding the buckets. */
+    private final Object[] myLocks;
+
+    /** The hash of each entry. */
+    private final long[] myKeys;
+
+    /** The score of each entry. */
+    private final double[] myScores;
+
+    /** The order of each entry among entries of equal score. */
+    private final long[] myOrders;
+
+    /** The generation that stored each entry; older entries are empty. */
+    private final int[] myGenerations;
+
+    /** The current generation. */
+    private volatile int myGeneration = 1;
+
+    /** The number of offers of a position already in the table. */
+    private final LongAdder myHits = new LongAdder();
+
+    /** The number of offers that stored an entry. */
+    private final LongAdder myStores = new LongAdder();
+
+    /** The number of entries replaced by an entry of another position. */
+    private final LongAdder myEvictions = new LongAdder();
+
+    /**
+     * Constructs a table with the default number of lock stripes.
+     *
+     * @param theCapacity the number of entries; rounded up to a power of two.
+     * @throws IllegalArgumentException if the capacity is not positive.
+     */
+    public TranspositionTable(final int theCapacity) {
+        this(theCapacity, DEFAULT_STRIPES);
+    }
+
+    /**
+     * Constructs a table.
+     *
+     * @param theCapacity the number of entries; rounded up to a power of two.
+     * @param theStripes the number of locks; rounded up to a power of two.
+     * @throws IllegalArgumentException if the capacity or the number of locks
+     *         is not positive or the capacity is over 2^30.
+     */
+    public TranspositionTable(final int theCapacity, final int theStripes) {
+        if (theCapacity < 1 || theCapacity > 1 << (Integer.SIZE - 2)) {
+            throw new IllegalArgumentException("Capacity must be between 1 and 2^30: "
+                                               + theCapacity);
+        }
+        if (theStripes < 1) {
+            throw new IllegalArgumentException("Stripes must be positive: " + theStripes);
+        }
+        final int capacity = Math.max(BUCKET_SIZE, powerOfTwo(theCapacity));
+        final int buckets = capacity / BUCKET_SIZE;
+        myBucketMask = buckets - 1;
+        myStripeMask = Math.min(powerOfTwo(theStripes), buckets) - 1;
+        myLocks = new Object[myStripeMask + 1];
+        for (int i = 0; i < myLocks.length; i++) {
+            myLocks[i] = new Object();
+        }
+        myKeys = new long[capacity];
+        myScores = new double[capacity];
+        myOrders = new long[capacity];
+        myGenerations = new int[capacity];
+    }
+
+    /**
+     * Offers a score for a position. The score is stored if the position is
+     * not in the table, or if the score is better than the stored one.
+     *
+     * @param theKey the hash of the position.
+     * @param theScore the score.
+     * @param theOrder the order among equal scores, lower is better.
+     * @return true if the score was stored.
+     */
+    public boolean offer(final long theKey, final double theScore, final long theOrder) {
+        final int bucket = bucket(theKey);
+        final int generation = myGeneration;
+        boolean result = false;
+        synchronized (myLocks[bucket & myStripeMask]) {
+            final int start = bucket * BUCKET_SIZE;
+            int slot = -1;
+            int lowest = start;
+            for (int i = start; slot < 0 && i < start + BUCKET_SIZE; i++) {
+                if (myGenerations[i] != generation || myKeys[i] == theKey) {
+                    slot = i;
+                } else if (myScores[i] < myScores[lowest]) {
+                    lowest = i;
+                }
+            }
+            if (slot >= 0 && myGenerations[slot] == generation) {
+                myHits.increment();
+                result = isBetter(theScore, theOrder, myScores[slot], myOrders[slot]);
+            } else if (slot >= 0) {
+                result = true;
+            } else if (theScore > myScores[lowest]) {
+                myEvictions.increment();
+                slot = lowest;
+                result = true;
+            }
+            if (result) {
+                myKeys[slot] = theKey;
+                myScores[slot] = theScore;
+                myOrders[slot] = theOrder;
+                myGenerations[slot] = generation;
+                myStores.increment();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Determines if a score is the best offered for a position. A position
+     * that is not in the table, because it was never offered or its entry was
+     * replaced, has no better score.
+     *
+     * @param theKey the hash of the position.
+     * @param theScore the score.
+     * @param theOrder the order among equal scores.
+     * @return true unless the table holds a better score for the position.
+     */
+    public boolean isBest(final long theKey, final double theScore, final long theOrder) {
+        final int bucket = bucket(theKey);
+        final int generation = myGeneration;
+        boolean result = true;
+        synchronized (myLocks[bucket & myStripeMask]) {
+            final int start = bucket * BUCKET_SIZE;
+            for (int i = start; i < start + BUCKET_SIZE; i++) {
+                if (myGenerations[i] == generation && myKeys[i] == theKey) {
+                    result = !isBetter(myScores[i], myOrders[i], theScore, theOrder);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Empties the table. Must not be called while other threads use it.
+     */
+    public void clear() {
+        myGeneration++;
+    }
+
+    /**
+     * Returns the number of entries.
+     *
+     * @return the capacity.
+     */
+    public int getCapacity() {
+        return myKeys.length;
+    }
+
+    /**
+     * Returns the number of offers of a position that was already in the table.
+     *
+     * @return the number of hits.
+     */
+    public long getHits() {
+        return myHits.sum();
+    }
+
+    /**
+     * Returns the number of offers that stored an entry.
+     *
+     * @return the number of stores.
+     */
+    public long getStores() {
+        return myStores.sum();
+    }
+
+    /**
+     * Returns the number of entries replaced by an entry of another position.
+     *
+     * @return the number of evictions.
+     */
+    public long getEvictions() {
+        return myEvictions.sum();
+    }
+
+    @Override
+    public String toString() {
+        return getCapacity() + " entries, " + myLocks.length + " stripes: " + getHits()
+               + " hits, " + getStores() + " stores, " + getEvictions() + " evictions";
+    }
+
+    /**
+     * Returns the bucket of a hash.
+     *
+     * @param theKey the hash.
+     * @return the index of the bucket.
+     */
+    private int bucket(final long theKey) {
+        // The high bits of a Zobrist hash are as random as the low bits.
+        return (int) (theKey ^ theKey >>> Integer.SIZE) & myBucketMask;
+    }
+
+    /**
+     * Compares two scores with their orders.
+     *
+     * @param theScore the first score.
+     * @param theOrder the order of the first score.
+     * @param theOther the second score.
+     * @param theOtherOrder the order of the second score.
+     * @return true if the first score is better.
+     */
+    private static boolean isBetter(final double theScore, final long theOrder,
+                                    final double theOther, final long theOtherOrder) {
+        return theScore > theOther || theScore == theOther && theOrder < theOtherOrder;
+    }
+
+    /**
+     * Rounds up to a power of two.
+     *
+     * @param theValue a positive value of at most 2^30.
+     * @return the smallest power of two not less than the value.
+     */
+    private static int powerOfTwo(final int theValue) {
+        int result = 1;
+        while (result < theValue) {
+            result <<= 1;
+        }
+        return result;
+    }
+}
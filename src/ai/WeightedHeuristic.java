@@ -0,0 +1,88 @@
+/*
+ * TCSS 305 - Project Tetris
+ */
+
+package ai;
+
+import java.util.Arrays;
+
+import model.BitBoard;
+
+/**
+ * A heuristic scoring a board by a weighted sum of its features.
+ *
+ * @author TCSS 305 Instructors
+ * @version Autumn 2016
+ * @see Feature
+ */
+public final class WeightedHeuristic implements Heuristic {
+
+    /** The features, indexed by ordinal. */
+    private static final Feature[] FEATURES = Feature.values();
+
+    /**
+     * The default weights, in Feature order: weights that clear lines
+     * reliably on a standard board without any training.
+     */
+    private static final double[] DEFAULT_WEIGHTS = {-0.510066, -0.35663, -0.184483,
+                                                     0.760666, -0.05};
+
+    /** The weight of each feature, indexed by ordinal. */
+    private final double[] myWeights;
+
+    /**
+     * Constructs a heuristic with the default weights.
+     */
+    public WeightedHeuristic() {
+        this(DEFAULT_WEIGHTS);
+    }
+
+    /**
+     * Constructs a heuristic.
+     *
+     * @param theWeights the weight of each feature, in Feature order.
+     * @throws IllegalArgumentException if there is not one weight per feature.
+     */
+    public WeightedHeuristic(final double... theWeights) {
+        if (theWeights.length != FEATURES.length) {
+            throw new IllegalArgumentException("Expected " + FEATURES.length
+                                               + " weights: " + theWeights.length);
+        }
+        myWeights = theWeights.clone();
+    }
+
+    /**
+     * Returns the weights.
+     *
+     * @return a copy of the weight of each feature, in Feature order.
+     */
+    public double[] getWeights() {
+        return myWeights.clone();
+    }
+
+    /**
+     * Returns the weight of a feature.
+     *
+     * @param theFeature the feature.
+     * @return the weight.
+     */
+    public double getWeight(final Feature theFeature) {
+        return myWeights[theFeature.ordinal()];
+    }
+
+    @Override
+    public double evaluate(final BitBoard theBoard, final int theLines) {
+        double result = 0;
+        for (int i = 0; i < FEATURES.length; i++) {
+            if (myWeights[i] != 0) {
+                result += myWeights[i] * FEATURES[i].measure(theBoard, theLines);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(myWeights);
+    }
+}
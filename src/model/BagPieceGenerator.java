@@ -0,0 +1,85 @@
+/*
+ * TCSS 305 - Project Tetris
+ */
+
+package model;
+
+import java.util.SplittableRandom;
+
+/**
+ * Deals pieces from shuffled bags holding one of each TetrisPiece.
+ *
+ * Every group of seven consecutive pieces starting at a bag boundary contains
+ * each piece exactly once, so no piece is missing for more than 12 pieces and
+ * the same piece never appears more than twice in a row.
+ *
+ * @author TCSS 305 Instructors
+ * @version Autumn 2016
+ */
+public final class BagPieceGenerator extends PieceGenerator {
+
+    /**
+     * The pieces of the current bag; the first myDealt of them are dealt.
+     */
+    private final TetrisPiece[] myBag = TetrisPiece.values();
+
+    /**
+     * The number of pieces dealt from the current bag.
+     */
+    private int myDealt = myBag.length;
+
+    /**
+     * Constructs a generator with an arbitrary seed.
+     */
+    public BagPieceGenerator() {
+        this(new SplittableRandom().nextLong());
+    }
+
+    /**
+     * Constructs a seeded generator.
+     *
+     * @param theSeed the seed.
+     */
+    public BagPieceGenerator(final long theSeed) {
+        super(theSeed);
+    }
+
+    @Override
+    public PieceGenerator newGenerator(final long theSeed) {
+        return new BagPieceGenerator(theSeed);
+    }
+
+    @Override
+    protected TetrisPiece generate(final SplitMixRandom theRandom) {
+        if (myDealt == myBag.length) {
+            // Fisher-Yates shuffle of a new bag.
+            for (int i = myBag.length - 1; i > 0; i--) {
+                final int j = theRandom.nextInt(i + 1);
+                final TetrisPiece swap = myBag[i];
+                myBag[i] = myBag[j];
+                myBag[j] = swap;
+            }
+            myDealt = 0;
+        }
+        return myBag[myDealt++];
+    }
+
+    @Override
+    protected TetrisPiece[] getMemory() {
+        return myBag.clone();
+    }
+
+    @Override
+    protected int getMemoryPosition() {
+        return myDealt;
+    }
+
+    @Override
+    protected void setMemory(final TetrisPiece[] thePieces, final int thePosition) {
+        if (thePieces.length != myBag.length || thePosition > myBag.length) {
+            throw new IllegalArgumentException("Not the state of a bag generator");
+        }
+        System.arraycopy(thePieces, 0, myBag, 0, myBag.length);
+        myDealt = thePosition;
+    }
+}
@@ -0,0 +1,504 @@
+/*
+ * TCSS 305 - Project Tetris
+ */
+
+package model;
+
+import java.util.Arrays;
+
+/**
+ * Bitboard storage for the frozen blocks of a Tetris board.
+ *
+ * Each row is stored as a single long where bit x is set when column x is
+ * occupied, so collision tests and full row detection are mask operations.
+ * A parallel color plane keeps the Block type of every occupied cell.
+ * Row 0 is the bottom row of the board.
+ *
+ * @author TCSS 305 Instructors
+ * @version Autumn 2016
+ */
+public final class BitBoard {
+
+    /**
+     * The widest board that fits one row per machine word.
+     */
+    public static final int MAX_WIDTH = Long.SIZE;
+
+    /**
+     * The tallest board whose pieces keep their position in a PieceState:
+     * pieces spawn in the top row and may be kicked a few rows higher.
+     */
+    public static final int MAX_HEIGHT = PieceState.MAX_COORDINATE - 2 * PieceState.BLOCKS;
+
+    /**
+     * The Block types indexed by ordinal, cached to avoid copying values().
+     */
+    private static final Block[] BLOCKS = Block.values();
+
+    /**
+     * Width of the board.
+     */
+    private final int myWidth;
+
+    /**
+     * Height of the board.
+     */
+    private final int myHeight;
+
+    /**
+     * The mask of a row with every column occupied.
+     */
+    private final long myFullRow;
+
+    /**
+     * The occupied bits of each row.
+     */
+    private final long[] myRows;
+
+    /**
+     * The Block ordinal of every cell, stored row by row.
+     */
+    private final byte[] myColors;
+
+    /**
+     * The height of each column: one more than the row of its highest block,
+     * or 0 if the column is empty.
+     */
+    private final int[] myHeights;
+
+    /**
+     * The Zobrist hash of the occupied cells.
+     */
+    private long myHash;
+
+    /**
+     * Constructs an empty bitboard.
+     *
+     * @param theWidth Width of the board.
+     * @param theHeight Height of the board.
+     * @throws IllegalArgumentException if the width is not between 1 and MAX_WIDTH
+     *         or the height is not between 1 and MAX_HEIGHT.
+     */
+    public BitBoard(final int theWidth, final int theHeight) {
+        if (theWidth < 1 || theWidth > MAX_WIDTH) {
+            throw new IllegalArgumentException("Board width must be between 1 and "
+                                               + MAX_WIDTH + ": " + theWidth);
+        }
+        if (theHeight < 1 || theHeight > MAX_HEIGHT) {
+            throw new IllegalArgumentException("Board height must be between 1 and "
+                                               + MAX_HEIGHT + ": " + theHeight);
+        }
+        myWidth = theWidth;
+        myHeight = theHeight;
+        myFullRow = -1L >>> (MAX_WIDTH - theWidth);
+        myRows = new long[theHeight];
+        myColors = new byte[theWidth * theHeight];
+        myHeights = new int[theWidth];
+    }
+
+    /**
+     * Constructs a copy of another bitboard.
+     *
+     * @param theOther the bitboard to copy.
+     */
+    public BitBoard(final BitBoard theOther) {
+        myWidth = theOther.myWidth;
+        myHeight = theOther.myHeight;
+        myFullRow = theOther.myFullRow;
+        myRows = theOther.myRows.clone();
+        myColors = theOther.myColors.clone();
+        myHeights = theOther.myHeights.clone();
+        myHash = theOther.myHash;
+    }
+
+    // Queries
+
+    /**
+     * Get the width of the board.
+     *
+     * @return Width of the board.
+     */
+    public int getWidth() {
+        return myWidth;
+    }
+
+    /**
+     * Get the height of the board.
+     *
+     * @return Height of the board.
+     */
+    public int getHeight() {
+        return myHeight;
+    }
+
+    /**
+     * Returns the occupied bits of a row.
+     *
+     * @param theY the row index.
+     * @return the row mask, bit x set when column x is occupied.
+     */
+    public long getRow(final int theY) {
+        return myRows[theY];
+    }
+
+    /**
+     * Determines if a cell inside the board is occupied.
+     *
+     * @param theX the column.
+     * @param theY the row.
+     * @return true if the cell holds a frozen block.
+     */
+    public boolean isOccupied(final int theX, final int theY) {
+        return (myRows[theY] & (1L << theX)) != 0;
+    }
+
+    /**
+     * Returns the block stored in a cell inside the board.
+     *
+     * @param theX the column.
+     * @param theY the row.
+     * @return the Block at the cell or null if the cell is empty.
+     */
+    public Block getBlock(final int theX, final int theY) {
+        Block result = null;
+        if (isOccupied(theX, theY)) {
+            result = BLOCKS[myColors[theY * myWidth + theX]];
+        }
+        return result;
+    }
+
+    /**
+     * Returns the height of a column.
+     *
+     * @param theX the column.
+     * @return one more than the row of the highest block in the column, or 0 if empty.
+     */
+    public int getColumnHeight(final int theX) {
+        return myHeights[theX];
+    }
+
+    /**
+     * Returns the Zobrist hash of the occupied cells. The hash is kept up to
+     * date as cells change, so this takes constant time.
+     *
+     * @return the hash; 0 for an empty board.
+     */
+    public long getHash() {
+        return myHash;
+    }
+
+    /**
+     * Determines if every column of a row is occupied.
+     *
+     * @param theY the row index.
+     * @return true if the row is complete.
+     */
+    public boolean isRowFull(final int theY) {
+        return myRows[theY] == myFullRow;
+    }
+
+    /**
+     * Determines if a piece fits on the board. Blocks above the top of the board
+     * are legal, blocks outside of the walls or below the floor are not.
+     *
+     * @param theState the packed piece state to test.
+     * @return true if the piece is inside the walls and overlaps no frozen block.
+     */
+    public boolean fits(final int theState) {
+        final TetrisPiece piece = PieceState.getPiece(theState);
+        final Rotation rotation = PieceState.getRotation(theState);
+        final int x = PieceState.getX(theState);
+        final int y = PieceState.getY(theState);
+        final int left = x + piece.getMinX(rotation);
+        boolean result = left >= 0 && x + piece.getMaxX(rotation) < myWidth
+                         && y + piece.getMinY(rotation) >= 0;
+        final int top = Math.min(piece.getMaxY(rotation), myHeight - 1 - y);
+        for (int row = piece.getMinY(rotation); result && row <= top; row++) {
+            result = (myRows[y + row] & piece.getRowMask(rotation, row) << left) == 0;
+        }
+        return result;
+    }
+
+    /**
+     * Computes where a piece lands when dropped straight down.
+     *
+     * The landing row comes from the column heights and the bottom profile of
+     * the piece. A piece that is already below the surface of one of its columns,
+     * for example after sliding under an overhang, falls back to stepping down.
+     *
+     * @param theState the packed state of a piece that fits on the board.
+     * @return the packed state of the piece at its landing row.
+     */
+    public int dropPosition(final int theState) {
+        final TetrisPiece piece = PieceState.getPiece(theState);
+        final Rotation rotation = PieceState.getRotation(theState);
+        final int x = PieceState.getX(theState);
+        final int y = PieceState.getY(theState);
+        final int left = piece.getMinX(rotation);
+        final int right = piece.getMaxX(rotation);
+        
+        int result = theState;
+        if (x + left >= 0 && x + right < myWidth) {
+            int landing = Integer.MIN_VALUE;
+            boolean buried = false;
+            for (int column = left; column <= right; column++) {
+                final int bottom = piece.getBottom(rotation, column);
+                final int height = myHeights[x + column];
+                buried |= y + bottom < height;
+                landing = Math.max(landing, height - bottom);
+            }
+            
+            if (buried) {
+                while (fits(PieceState.move(result, 0, -1))) {
+                    result = PieceState.move(result, 0, -1);
+                }
+            } else {
+                result = PieceState.move(theState, 0, landing - y);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Computes where a rotation moves a piece: the rotated piece at the first
+     * wall kick offset where it fits. The O piece rotates in place.
+     *
+     * @param theState the packed state of the piece to rotate.
+     * @param theTarget the rotation to turn the piece to.
+     * @return the packed state after the rotation, or PieceState.NONE if the
+     *         piece fits at none of the offsets.
+     */
+    public int rotatePosition(final int theState, final Rotation theTarget) {
+        final TetrisPiece piece = PieceState.getPiece(theState);
+        final int rotated = PieceState.setRotation(theState, theTarget);
+        int result = PieceState.NONE;
+        if (piece == TetrisPiece.O) {
+            if (fits(rotated)) {
+                result = rotated;
+            }
+        } else {
+            final int[] kicks = WallKick.kicks(piece);
+            final Rotation from = PieceState.getRotation(theState);
+            final int start = WallKick.start(from, theTarget);
+            final int end = start + 2 * WallKick.count(from, theTarget);
+            for (int i = start; result == PieceState.NONE && i < end; i += 2) {
+                final int kicked = PieceState.move(rotated, kicks[i], kicks[i + 1]);
+                if (fits(kicked)) {
+                    result = kicked;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Computes where a new piece enters the board: on the top row, one row
+     * lower for the I piece, centered by the width of the piece previewed
+     * after it.
+     *
+     * @param thePiece the piece entering the board.
+     * @param theFollowing the piece previewed after it.
+     * @return the packed state of the new piece.
+     */
+    public int spawnPosition(final TetrisPiece thePiece, final TetrisPiece theFollowing) {
+        int y = myHeight - 1;
+        if (thePiece == TetrisPiece.I) {
+            y--;
+        }
+        return PieceState.pack(thePiece, Rotation.START,
+                               (myWidth - theFollowing.getWidth()) / 2, y);
+    }
+
+    // Commands
+
+    /**
+     * Stores the blocks of a piece. Blocks above the top of the board are dropped.
+     *
+     * @param theState the packed piece state to store.
+     * @return true if every block of the piece landed inside the board.
+     */
+    public boolean place(final int theState) {
+        final Block block = PieceState.getPiece(theState).getBlock();
+        boolean result = true;
+        for (int i = 0; i < PieceState.BLOCKS; i++) {
+            final int x = PieceState.getCellX(theState, i);
+            final int y = PieceState.getCellY(theState, i);
+            if (x >= 0 && x < myWidth && y >= 0 && y < myHeight) {
+                setBlock(x, y, block);
+            } else {
+                result = false;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Removes the blocks of a piece stored with place(). Blocks outside of the
+     * board are ignored.
+     *
+     * @param theState the packed piece state to remove.
+     */
+    public void remove(final int theState) {
+        for (int i = 0; i < PieceState.BLOCKS; i++) {
+            final int x = PieceState.getCellX(theState, i);
+            final int y = PieceState.getCellY(theState, i);
+            if (x >= 0 && x < myWidth && y >= 0 && y < myHeight) {
+                setBlock(x, y, null);
+            }
+        }
+    }
+
+    /**
+     * Stores a block in a cell inside the board.
+     *
+     * @param theX the column.
+     * @param theY the row.
+     * @param theBlock the Block to store, or null to empty the cell.
+     */
+    public void setBlock(final int theX, final int theY, final Block theBlock) {
+        final long bit = 1L << theX;
+        final boolean occupied = theBlock != null && theBlock != Block.EMPTY;
+        if ((myRows[theY] & bit) != 0 != occupied) {
+            myHash ^= Zobrist.cell(theX, theY);
+        }
+        if (!occupied) {
+            myRows[theY] &= ~bit;
+            myColors[theY * myWidth + theX] = 0;
+            if (myHeights[theX] == theY + 1) {
+                myHeights[theX] = columnTop(theX, theY);
+            }
+        } else {
+            myRows[theY] |= bit;
+            myColors[theY * myWidth + theX] = (byte) theBlock.ordinal();
+            myHeights[theX] = Math.max(myHeights[theX], theY + 1);
+        }
+    }
+
+    /**
+     * Removes every complete row, moving the rows above down in a single pass.
+     *
+     * @return the indices of the removed rows in ascending order.
+     */
+    public int[] clearFullRows() {
+        return clearFullRows(0, myHeight - 1);
+    }
+
+    /**
+     * Removes the complete rows within a range, moving the rows above down in a
+     * single pass. Only rows that just received blocks can have become complete,
+     * so after a piece locks only the rows it touched need to be passed.
+     *
+     * @param theLow the lowest row to check; rows below the board are ignored.
+     * @param theHigh the highest row to check; rows above the board are ignored.
+     * @return the indices of the removed rows in ascending order.
+     */
+    public int[] clearFullRows(final int theLow, final int theHigh) {
+        final int low = Math.max(theLow, 0);
+        final int high = Math.min(theHigh, myHeight - 1);
+        int count = 0;
+        for (int y = low; y <= high; y++) {
+            if (myRows[y] == myFullRow) {
+                count++;
+            }
+        }
+        final int[] cleared = new int[count];
+        if (count > 0) {
+            // Rows at or above the tallest column are already empty.
+            int top = 0;
+            for (int x = 0; x < myWidth; x++) {
+                top = Math.max(top, myHeights[x]);
+            }
+            int index = 0;
+            int target = low;
+            for (int y = low; y < top; y++) {
+                if (y <= high && myRows[y] == myFullRow) {
+                    cleared[index++] = y;
+                } else {
+                    if (target != y) {
+                        myHash ^= Zobrist.row(target, myRows[target] ^ myRows[y]);
+                        myRows[target] = myRows[y];
+                        System.arraycopy(myColors, y * myWidth,
+                                         myColors, target * myWidth, myWidth);
+                    }
+                    target++;
+                }
+            }
+            for (int y = target; y < top; y++) {
+                myHash ^= Zobrist.row(y, myRows[y]);
+            }
+            Arrays.fill(myRows, target, top, 0L);
+            Arrays.fill(myColors, target * myWidth, top * myWidth, (byte) 0);
+            for (int x = 0; x < myWidth; x++) {
+                // Every cleared row held a block of this column below its old top.
+                myHeights[x] = columnTop(x, myHeights[x] - count);
+            }
+        }
+        return cleared;
+    }
+
+    /**
+     * Overwrites every cell of this bitboard with the cells of another one.
+     *
+     * @param theOther the bitboard to copy.
+     * @throws IllegalArgumentException if the other bitboard has a different size.
+     */
+    public void copyFrom(final BitBoard theOther) {
+        if (theOther.myWidth != myWidth || theOther.myHeight != myHeight) {
+            throw new IllegalArgumentException("Cannot copy a " + theOther.myWidth + " x "
+                                               + theOther.myHeight + " board into a "
+                                               + myWidth + " x " + myHeight + " board");
+        }
+        System.arraycopy(theOther.myRows, 0, myRows, 0, myHeight);
+        System.arraycopy(theOther.myColors, 0, myColors, 0, myColors.length);
+        System.arraycopy(theOther.myHeights, 0, myHeights, 0, myWidth);
+        myHash = theOther.myHash;
+    }
+
+    /**
+     * Overwrites every cell of this bitboard with the cells of a persistent board.
+     *
+     * @param theOther the board to copy.
+     * @throws IllegalArgumentException if the other board has a different size.
+     */
+    public void copyFrom(final PersistentBoard theOther) {
+        if (theOther.getWidth() != myWidth || theOther.getHeight() != myHeight) {
+            throw new IllegalArgumentException("Cannot copy a " + theOther.getWidth() + " x "
+                                               + theOther.getHeight() + " board into a "
+                                               + myWidth + " x " + myHeight + " board");
+        }
+        for (int y = 0; y < myHeight; y++) {
+            myRows[y] = theOther.getRow(y);
+            theOther.copyColors(y, myColors, y * myWidth);
+        }
+        for (int x = 0; x < myWidth; x++) {
+            myHeights[x] = theOther.getColumnHeight(x);
+        }
+        myHash = theOther.getHash();
+    }
+
+    /**
+     * Empties every cell of the board.
+     */
+    public void clear() {
+        Arrays.fill(myRows, 0L);
+        Arrays.fill(myColors, (byte) 0);
+        Arrays.fill(myHeights, 0);
+        myHash = 0;
+    }
+
+    /**
+     * Finds the height of a column by scanning down from a row.
+     *
+     * @param theX the column.
+     * @param theLimit the scan starts below this row; no block of the column is above it.
+     * @return one more than the row of the highest block at or below the limit minus one.
+     */
+    private int columnTop(final int theX, final int theLimit) {
+        final long bit = 1L << theX;
+        int y = theLimit - 1;
+        while (y >= 0 && (myRows[y] & bit) == 0) {
+            y--;
+        }
+        return y + 1;
+    }
+}
@@ -4,11 +4,12 @@
 
 package model;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.LinkedList;
+import java.util.Deque;
 import java.util.List;
-import java.util.Observable;
-//import model.WallKick;
+import java.util.Objects;
+import java.util.concurrent.Executor;
 
 /**
  * Represents a Tetris board.
@@ -16,7 +17,7 @@ import java.util.Observable;
  * @author TCSS 305 Instructors
  * @version Autumn 2016
  */
-public class Board extends Observable {
+public class Board {
 
     // Class constants
     
@@ -30,6 +31,11 @@ public class Board extends Observable {
      */
     private static final int DEFAULT_HEIGHT = 20;
 
+    /**
+     * Number of rows above the board included in the String representation.
+     */
+    private static final int HIDDEN_ROWS = 4;
+
     
     // Instance fields
     
@@ -44,9 +50,32 @@ public class Board extends Observable {
     private final int myHeight;
     
     /**
-     * The frozen blocks on the board.
+     * The frozen blocks on the board, used for moving pieces. Out of date
+     * while myStaleBlocks is set; read them through frozenBlocks().
+     */
+    private final BitBoard myFrozenBlocks;
+
+    /**
+     * The frozen blocks on the board as an immutable value. Out of date
+     * while rows changed since it was built; read it through persistentBlocks().
+     */
+    private PersistentBoard myPersistentBlocks;
+
+    /**
+     * The lowest row of myFrozenBlocks changed since myPersistentBlocks was built.
      */
-    private final List<Block[]> myFrozenBlocks;
+    private int myChangedLow = Integer.MAX_VALUE;
+
+    /**
+     * The highest row of myFrozenBlocks changed since myPersistentBlocks was
+     * built, or -1 if none changed.
+     */
+    private int myChangedHigh = -1;
+
+    /**
+     * Whether myFrozenBlocks must be reloaded from myPersistentBlocks.
+     */
+    private boolean myStaleBlocks;
     
     /**
      * The game over state.
@@ -62,6 +91,11 @@ public class Board extends Observable {
      * The current index in the non random piece sequence.
      */
     private int mySequenceIndex;
+
+    /**
+     * The generator dealing random pieces, owned by this board.
+     */
+    private PieceGenerator myGenerator;
     
     /**
      * Piece that is next to play.
@@ -69,16 +103,41 @@ public class Board extends Observable {
     private TetrisPiece myNextPiece;
     
     /**
-     * Piece that is currently movable.
+     * Packed state of the piece that is currently movable.
+     * 
+     * @see PieceState
+     */
+    private int myCurrentPiece = PieceState.NONE;
+
+    /**
+     * The Zobrist keys of the current and next piece.
+     */
+    private long myPieceHash;
+    
+    /**
+     * The listeners of this board.
+     */
+    private final BoardEventBus myListeners = new BoardEventBus();
+
+    /**
+     * The most commands that can be undone; 0 when the journal is off.
+     */
+    private int myUndoLimit;
+
+    /**
+     * The commands that can be undone, the most recent last.
+     */
+    private final Deque<BoardDelta> myUndoJournal = new ArrayDeque<BoardDelta>();
+
+    /**
+     * The undone commands that can be redone, the most recently undone last.
      */
-    private MovableTetrisPiece myCurrentPiece;
+    private final Deque<BoardDelta> myRedoJournal = new ArrayDeque<BoardDelta>();
 
     /**
-     * A flag to indicate when moving a piece down is part of a drop operation.
-     * This is used to prevent the Board from notifying observers for each incremental
-     * down movement in the drop.
+     * The change the running command makes, or null if it is not journaled.
      */
-    private boolean myDrop;
+    private BoardDelta myDelta;
     
     // Constructors
 
@@ -95,15 +154,20 @@ public class Board extends Observable {
      * 
      * @param theWidth Width of the Tetris game board.
      * @param theHeight Height of the Tetris game board.
+     * @throws IllegalArgumentException if the width is wider than BitBoard.MAX_WIDTH,
+     *         the height is taller than BitBoard.MAX_HEIGHT or either dimension is
+     *         not positive.
      */
     public Board(final int theWidth, final int theHeight) {
         super();
         myWidth = theWidth;
         myHeight = theHeight;
-        myFrozenBlocks = new LinkedList<Block[]>();
+        myFrozenBlocks = new BitBoard(theWidth, theHeight);
+        myPersistentBlocks = new PersistentBoard(theWidth, theHeight);
          
         myNonRandomPieces = new ArrayList<TetrisPiece>();
         mySequenceIndex = 0;
+        myGenerator = new UniformPieceGenerator();
         
         /*  myNextPiece and myCurrentPiece
          *  are initialized by the newGame() method.
@@ -132,27 +196,286 @@ public class Board extends Observable {
     public int getHeight() {
         return myHeight;
     }
+
+    /**
+     * Returns the Zobrist hash of the position: the frozen blocks, the type,
+     * rotation and position of the current piece and the next piece. The hash
+     * is updated as the position changes, so this takes constant time.
+     * Equal positions have equal hashes on every board and in every run.
+     * 
+     * @return the 64 bit hash of the position.
+     */
+    public long getHash() {
+        long result = myFrozenBlocks.getHash();
+        if (myStaleBlocks) {
+            result = myPersistentBlocks.getHash();
+        }
+        return result ^ myPieceHash;
+    }
     
 
 
+    /**
+     * Adds a listener that is called on the thread changing the board.
+     * 
+     * @param theListener the listener.
+     * @param theTypes the event types to receive; every type if none are given.
+     */
+    public void addBoardListener(final BoardListener theListener,
+                                 final BoardEvent.Type... theTypes) {
+        myListeners.subscribe(theListener, theTypes);
+    }
+
+    /**
+     * Adds a listener that is called by an executor, for example
+     * SwingUtilities::invokeLater to receive events on the event dispatch thread.
+     * 
+     * @param theListener the listener.
+     * @param theExecutor the executor calling the listener.
+     * @param theTypes the event types to receive; every type if none are given.
+     */
+    public void addBoardListener(final BoardListener theListener, final Executor theExecutor,
+                                 final BoardEvent.Type... theTypes) {
+        myListeners.subscribe(theListener, theExecutor, theTypes);
+    }
+
+    /**
+     * Removes a listener from every event type.
+     * 
+     * @param theListener the listener.
+     */
+    public void removeBoardListener(final BoardListener theListener) {
+        myListeners.unsubscribe(theListener);
+    }
+
     /**
      * Resets the board for a new game.
      * This method must be called before the first game and before each new game.
      */
     public void newGame() {
+        clearJournal();
         
         mySequenceIndex = 0;
         myFrozenBlocks.clear();
-        for (int h = 0; h < myHeight; h++) {
-            myFrozenBlocks.add(new Block[myWidth]);
-        }
+        myPersistentBlocks = new PersistentBoard(myWidth, myHeight);
+        myStaleBlocks = false;
+        clearChangedRows();
 
         myGameOver = false;
-        myCurrentPiece = nextMovablePiece(true);
-        myDrop = false;
+        setCurrentPiece(nextMovablePiece(true));
         
-        setChanged();
-        notifyObservers(toString());
+        fire(BoardEvent.newGame(myCurrentPiece, ghostOf(myCurrentPiece)));
+    }
+
+    /**
+     * Returns a snapshot of this board. Boards playing a non random piece
+     * sequence are captured without their position in the sequence.
+     * 
+     * @return the state of the board.
+     */
+    public BoardState getState() {
+        return new BoardState(persistentBlocks(), myCurrentPiece, myNextPiece, myGameOver,
+                              myGenerator.getSeed(), myGenerator.getDealt());
+    }
+
+    /**
+     * Returns a snapshot of the piece generator of this board, which
+     * setState(BoardState, GeneratorState) restores in constant time.
+     * 
+     * @return the state of the piece generator.
+     */
+    public GeneratorState getGeneratorState() {
+        return myGenerator.getState();
+    }
+
+    /**
+     * Restores a snapshot taken from a board of the same size. The piece
+     * generator keeps its kind and continues from the state in the snapshot,
+     * dealing again every piece dealt since its seed, so this takes time
+     * proportional to the number of pieces dealt.
+     * 
+     * @param theState the state to restore.
+     * @throws IllegalArgumentException if the snapshot has a different size.
+     */
+    public void setState(final BoardState theState) {
+        final PieceGenerator generator = myGenerator.newGenerator(theState.getGeneratorSeed());
+        generator.skip(theState.getDealtPieces());
+        restoreState(theState, generator);
+    }
+
+    /**
+     * Restores a snapshot taken from a board of the same size together with
+     * a snapshot of its piece generator, in time independent of the number of
+     * pieces dealt.
+     * 
+     * @param theState the state to restore.
+     * @param theGenerator the state of the piece generator, of the kind of
+     *        the generator of this board.
+     * @throws IllegalArgumentException if the snapshot has a different size or
+     *         the generator state is of another kind.
+     */
+    public void setState(final BoardState theState, final GeneratorState theGenerator) {
+        restoreState(theState, myGenerator.newGenerator(theGenerator));
+    }
+
+    /**
+     * Sets how many commands can be undone. The journal keeps the reversible
+     * change of each command that changed the board, dropping the oldest
+     * ones beyond the limit. New games, restored states and new piece
+     * generators or sequences empty the journal.
+     * 
+     * @param theLimit the most commands that can be undone; 0 turns the
+     *        journal off.
+     * @throws IllegalArgumentException if the limit is negative.
+     */
+    public void setUndoLimit(final int theLimit) {
+        if (theLimit < 0) {
+            throw new IllegalArgumentException("Undo limit must not be negative: "
+                                               + theLimit);
+        }
+        myUndoLimit = theLimit;
+        while (myUndoJournal.size() > theLimit) {
+            myUndoJournal.removeFirst();
+        }
+        if (theLimit == 0) {
+            myRedoJournal.clear();
+        }
+    }
+
+    /**
+     * Returns how many commands can be undone.
+     * 
+     * @return the undo limit; 0 if the journal is off.
+     */
+    public int getUndoLimit() {
+        return myUndoLimit;
+    }
+
+    /**
+     * Determines if there is a command to undo.
+     * 
+     * @return true if undo() changes the board.
+     */
+    public boolean canUndo() {
+        return !myUndoJournal.isEmpty();
+    }
+
+    /**
+     * Determines if there is an undone command to redo.
+     * 
+     * @return true if redo() changes the board.
+     */
+    public boolean canRedo() {
+        return !myRedoJournal.isEmpty();
+    }
+
+    /**
+     * Reverts the most recent command that changed the board, including the
+     * blocks it froze, the rows it cleared and the pieces it dealt. The frozen
+     * blocks are restored from the immutable value the journal kept, so the
+     * moving pieces see them once the bitboard is reloaded.
+     * 
+     * @return true if a command was undone.
+     */
+    public boolean undo() {
+        boolean result = false;
+        if (canUndo()) {
+            final BoardDelta delta = myUndoJournal.removeLast();
+            delta.undo(myGenerator);
+            restore(delta, false);
+            myRedoJournal.addLast(delta);
+            result = true;
+        }
+        return result;
+    }
+
+    /**
+     * Applies the most recently undone command again. Any other command
+     * since the undo empties the redo journal.
+     * 
+     * @return true if a command was redone.
+     */
+    public boolean redo() {
+        boolean result = false;
+        if (canRedo()) {
+            final BoardDelta delta = myRedoJournal.removeLast();
+            delta.redo(myGenerator);
+            restore(delta, true);
+            myUndoJournal.addLast(delta);
+            result = true;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the frozen blocks as an immutable value. Only the rows changed
+     * since the value was last built are copied; it shares every other row.
+     * 
+     * @return the frozen blocks.
+     */
+    public PersistentBoard exportBlocks() {
+        return persistentBlocks();
+    }
+
+    /**
+     * Replaces the frozen blocks, keeping the current and next piece. This
+     * takes constant time when no listener waits for BOARD_RESTORED events;
+     * the blocks are copied for moving pieces when they are next needed.
+     * 
+     * @param theBlocks the frozen blocks of a board of the same size.
+     * @throws IllegalArgumentException if the blocks have a different size.
+     */
+    public void importBlocks(final PersistentBoard theBlocks) {
+        clearJournal();
+        setBlocks(theBlocks);
+        if (myListeners.hasSubscribers(BoardEvent.Type.BOARD_RESTORED)) {
+            fire(BoardEvent.boardRestored(myCurrentPiece, ghostOf(myCurrentPiece)));
+        }
+    }
+
+    /**
+     * Seeds the random piece generator of this board, keeping its kind.
+     * Boards seeded with the same value deal the same random pieces.
+     * 
+     * @param theSeed the seed of the random piece generator.
+     */
+    public void setSeed(final long theSeed) {
+        clearJournal();
+        myGenerator = myGenerator.newGenerator(theSeed);
+    }
+
+    /**
+     * Sets the generator dealing random pieces. The board owns the generator
+     * from now on; it must not be shared with another board.
+     * 
+     * @param theGenerator the random piece generator.
+     */
+    public void setPieceGenerator(final PieceGenerator theGenerator) {
+        clearJournal();
+        myGenerator = Objects.requireNonNull(theGenerator);
+    }
+
+    /**
+     * Returns the pieces that will play after the current piece, without
+     * dealing them.
+     * 
+     * @param theCount the number of pieces.
+     * @return the next theCount pieces in the order they will play.
+     */
+    public List<TetrisPiece> getNextPieces(final int theCount) {
+        final List<TetrisPiece> result = new ArrayList<TetrisPiece>(theCount);
+        if (theCount > 0 && myNextPiece != null) {
+            result.add(myNextPiece);
+        }
+        for (int i = 0; result.size() < theCount; i++) {
+            if (myNonRandomPieces == null || myNonRandomPieces.isEmpty()) {
+                result.add(myGenerator.peek(i));
+            } else {
+                result.add(myNonRandomPieces.get((mySequenceIndex + i)
+                                                 % myNonRandomPieces.size()));
+            }
+        }
+        return result;
     }
 
     /**
@@ -161,9 +484,12 @@ public class Board extends Observable {
      * @param thePieces the List of non random TetrisPieces.
      */
     public void setPieceSequence(final List<TetrisPiece> thePieces) {
+        clearJournal();
         myNonRandomPieces = new ArrayList<TetrisPiece>(thePieces);
         mySequenceIndex = 0;
-        myCurrentPiece = nextMovablePiece(true);
+        final int oldPiece = myCurrentPiece;
+        setCurrentPiece(nextMovablePiece(true));
+        fire(movedEvent(oldPiece, myCurrentPiece));
     }
     
     /**
@@ -172,93 +498,106 @@ public class Board extends Observable {
      * Clear full lines.
      */
     public void down() {
-        if (!move(myCurrentPiece.down())) {
+        final boolean journaled = beginDelta();
+        if (isPlayable() && !move(PieceState.move(myCurrentPiece, 0, -1))) {
             // the piece froze, so clear lines and update current piece
-            addPieceToBoardData(myFrozenBlocks, myCurrentPiece);
-            checkRows();
+            freezePiece(myCurrentPiece);
+            checkRows(myCurrentPiece);
             if (!myGameOver) {
-                myCurrentPiece = nextMovablePiece(false);
+                setCurrentPiece(nextMovablePiece(false));
+                fire(movedEvent(PieceState.NONE, myCurrentPiece));
             }
-            setChanged();
-            notifyObservers(toString());
         }
+        endDelta(journaled);
     }
 
     /**
      * Try to move the movable piece left.
      */
     public void left() {
-        if (myCurrentPiece != null) {
-            move(myCurrentPiece.left());
+        final boolean journaled = beginDelta();
+        if (isPlayable()) {
+            move(PieceState.move(myCurrentPiece, -1, 0));
         }
+        endDelta(journaled);
     }
 
     /**
      * Try to move the movable piece right.
      */
     public void right() {
-        if (myCurrentPiece != null) {
-            move(myCurrentPiece.right());
+        final boolean journaled = beginDelta();
+        if (isPlayable()) {
+            move(PieceState.move(myCurrentPiece, 1, 0));
         }
+        endDelta(journaled);
     }
 
     /**
      * Try to rotate the movable piece in the clockwise direction.
      */
     public void rotate() {
-        if (myCurrentPiece != null) {           
-            if (myCurrentPiece.getTetrisPiece() == TetrisPiece.O) {
-                move(myCurrentPiece.rotate());
-            } else {
-                final MovableTetrisPiece cwPiece = myCurrentPiece.rotate();
-                
-                final Point[] offsets = WallKick.getkicks(cwPiece.getTetrisPiece(),
-                                                    myCurrentPiece.getRotation(),
-                                                    cwPiece.getRotation());
-                for (final Point p : offsets) {
-                    final Point offsetLocation = cwPiece.getPosition().transform(p);
-                    final MovableTetrisPiece temp = cwPiece.setPosition(offsetLocation);
-                    if (move(temp)) {
-                        break;
-                    }
-                }
-            }
+        final boolean journaled = beginDelta();
+        if (isPlayable()) {
+            rotate(PieceState.getRotation(myCurrentPiece).clockwise());
         }
+        endDelta(journaled);
+    }
+
+    /**
+     * Try to rotate the movable piece in the counterclockwise direction.
+     */
+    public void rotateCounterclockwise() {
+        final boolean journaled = beginDelta();
+        if (isPlayable()) {
+            rotate(PieceState.getRotation(myCurrentPiece).counterclockwise());
+        }
+        endDelta(journaled);
+    }
+
+    /**
+     * Try to rotate the movable piece a half turn.
+     */
+    public void rotateHalfTurn() {
+        final boolean journaled = beginDelta();
+        if (isPlayable()) {
+            rotate(PieceState.getRotation(myCurrentPiece).halfTurn());
+        }
+        endDelta(journaled);
     }
 
     /**
      * Drop the piece down until the piece freezes in place.
+     * The landing row is computed directly from the column heights of the board.
      */
     public void drop() {
-        if (!myGameOver) {
-            myDrop = true;
-            while (isPieceLegal(myCurrentPiece.down())) {
-                down();  // move down as far as possible
+        final boolean journaled = beginDelta();
+        if (isPlayable()) {
+            final int start = myCurrentPiece;
+            setCurrentPiece(frozenBlocks().dropPosition(start));
+            if (myCurrentPiece != start) {
+                fire(movedEvent(start, myCurrentPiece));
             }
-            myDrop = false;
             down();  // move down one more time to freeze in place
         }
+        endDelta(journaled);
     }
     
 
 
     @Override
     public String toString() {
-        final List<Block[]> board = getBoard();
-        board.add(new Block[myWidth]);
-        board.add(new Block[myWidth]);
-        board.add(new Block[myWidth]);
-        board.add(new Block[myWidth]);
-        if (myCurrentPiece != null) {
-            addPieceToBoardData(board, myCurrentPiece);
-        }
-        
-        
         final StringBuilder sb = new StringBuilder();
-        for (int i = board.size() - 1; i >= 0; i--) {
-            final Block[] row = board.get(i);
+        for (int y = myHeight + HIDDEN_ROWS - 1; y >= 0; y--) {
             sb.append('|');
-            for (final Block c : row) {
+            for (int x = 0; x < myWidth; x++) {
+                Block c = null;
+                if (y < myHeight) {
+                    c = frozenBlocks().getBlock(x, y);
+                }
+                if (isPieceCell(myCurrentPiece, x, y)) {
+                    c = PieceState.getPiece(myCurrentPiece).getBlock();
+                }
                 if (c == null) {
                     sb.append(' ');
                 } else {
@@ -266,7 +605,7 @@ public class Board extends Observable {
                 }
             }
             sb.append("|\n");
-            if (i == this.myHeight) {
+            if (y == this.myHeight) {
                 sb.append(' ');
                 for (int j = 0; j < this.myWidth; j++) {
                     sb.append('-');
@@ -285,181 +624,341 @@ public class Board extends Observable {
     
     // private helper methods
     
+    /**
+     * Helper function to check if commands may move the current piece. Once
+     * the game is over the last piece is frozen, and commands change nothing.
+     * 
+     * @return true if the game is not over and there is a current piece
+     */
+    private boolean isPlayable() {
+        return !myGameOver && myCurrentPiece != PieceState.NONE;
+    }
+
     /**
      * Helper function to check if the current piece can be shifted to the
      * specified position.
      * 
-     * @param theMovedPiece the position to attempt to shift the current piece
+     * @param theMovedPiece the packed state to attempt to shift the current piece to
      * @return True if the move succeeded
      */
-    private boolean move(final MovableTetrisPiece theMovedPiece) {
+    private boolean move(final int theMovedPiece) {
         
         boolean result = false;
         if (isPieceLegal(theMovedPiece)) {
-            myCurrentPiece = theMovedPiece;
+            final int oldPiece = myCurrentPiece;
+            setCurrentPiece(theMovedPiece);
             result = true;
-            if (!myDrop) {
-                setChanged();
-            }
-            notifyObservers(toString());
+            fire(movedEvent(oldPiece, theMovedPiece));
         }
         return result;
     }
 
     /**
-     * Helper function to test if the piece is in a legal state.
+     * Helper function to turn the current piece to a rotation, trying the
+     * wall kick offsets in order.
      * 
-     * Illegal states:
-     * - points of the piece exceed the bounds of the board
-     * - points of the piece collide with frozen blocks on the board
+     * @param theTarget the rotation to turn the current piece to
+     */
+    private void rotate(final Rotation theTarget) {
+        final int rotated = frozenBlocks().rotatePosition(myCurrentPiece, theTarget);
+        if (rotated != PieceState.NONE) {
+            move(rotated);
+        }
+    }
+
+    /**
+     * Helper function to start journaling the change a command makes.
      * 
-     * @param thePiece MovableTetrisPiece to test.
-     * @return Returns true if the piece is in a legal state; false otherwise
+     * @return true if the command is journaled; false if the journal is off
+     *         or the command runs inside another one
      */
-    private boolean isPieceLegal(final MovableTetrisPiece thePiece) {
-        boolean result = true;
-        
-        for (final Point p : thePiece.getBoardPoints()) {
-            if (p.getX() < 0 || p.getX() >= myWidth) {
-                result = false;
-            }
-            if (p.getY() < 0) {
-                result = false;
+    private boolean beginDelta() {
+        boolean result = false;
+        if (myUndoLimit > 0 && myDelta == null) {
+            myDelta = new BoardDelta(myCurrentPiece, myNextPiece, myGameOver,
+                                     mySequenceIndex, persistentBlocks());
+            result = true;
+        }
+        return result;
+    }
+
+    /**
+     * Helper function to finish journaling a command, keeping its change if
+     * it changed the board.
+     * 
+     * @param theJournaled the result of the matching beginDelta()
+     */
+    private void endDelta(final boolean theJournaled) {
+        if (theJournaled) {
+            myDelta.finish(myCurrentPiece, myNextPiece, myGameOver, mySequenceIndex,
+                           persistentBlocks());
+            if (!myDelta.isEmpty()) {
+                if (myUndoJournal.size() == myUndoLimit) {
+                    myUndoJournal.removeFirst();
+                }
+                myUndoJournal.addLast(myDelta);
+                myRedoJournal.clear();
             }
+            myDelta = null;
         }
-        return result && !collision(thePiece);      
     }
 
     /**
-     * Adds a movable Tetris piece into a list of board data.
+     * Helper function to restore the state before or after a journaled
+     * command, once the pieces it dealt are reverted.
      * 
-     * Allows a single data structure to represent the current piece
-     * and the frozen blocks.
+     * @param theDelta the change of the command
+     * @param theAfter true to restore the state after the command
+     */
+    private void restore(final BoardDelta theDelta, final boolean theAfter) {
+        setBlocks(theDelta.getBlocks(theAfter));
+        setCurrentPiece(theDelta.getPiece(theAfter));
+        setNextPiece(theDelta.getNext(theAfter));
+        myGameOver = theDelta.isGameOver(theAfter);
+        mySequenceIndex = theDelta.getSequenceIndex(theAfter);
+        if (myNextPiece != null && myNextPiece != theDelta.getNext(!theAfter)
+            && myListeners.hasSubscribers(BoardEvent.Type.NEXT_PIECE)) {
+            fire(BoardEvent.nextPiece(new MovableTetrisPiece(myNextPiece, new Point(0, 0))));
+        }
+        if (myListeners.hasSubscribers(BoardEvent.Type.BOARD_RESTORED)) {
+            fire(BoardEvent.boardRestored(myCurrentPiece, ghostOf(myCurrentPiece)));
+        }
+    }
+
+    /**
+     * Helper function to restore a snapshot with a piece generator.
      * 
-     * @param theFrozenBlocks Board to set the piece on.
-     * @param thePiece Piece to set on the board.
+     * @param theState the state to restore
+     * @param theGenerator the piece generator continuing from the snapshot
+     * @throws IllegalArgumentException if the snapshot has a different size
+     */
+    private void restoreState(final BoardState theState, final PieceGenerator theGenerator) {
+        clearJournal();
+        setBlocks(theState.getPersistentBlocks());
+        setCurrentPiece(theState.getCurrentPiece());
+        setNextPiece(theState.getNextPiece());
+        myGameOver = theState.isGameOver();
+        myGenerator = theGenerator;
+        fire(BoardEvent.boardRestored(myCurrentPiece, ghostOf(myCurrentPiece)));
+    }
+
+    /**
+     * Helper function to empty the undo and redo journals.
      */
-    private void addPieceToBoardData(final List<Block[]> theFrozenBlocks,
-                                     final MovableTetrisPiece thePiece) {
-        for (final Point p : thePiece.getBoardPoints()) {
-            setPoint(theFrozenBlocks, p, thePiece.getTetrisPiece().getBlock());
+    private void clearJournal() {
+        myUndoJournal.clear();
+        myRedoJournal.clear();
+    }
+
+    /**
+     * Helper function to replace the frozen blocks, deferring the copy into
+     * the bitboard until it is next read.
+     * 
+     * @param theBlocks the frozen blocks
+     * @throws IllegalArgumentException if the blocks have a different size
+     */
+    private void setBlocks(final PersistentBoard theBlocks) {
+        if (theBlocks.getWidth() != myWidth || theBlocks.getHeight() != myHeight) {
+            throw new IllegalArgumentException("Cannot restore a " + theBlocks.getWidth()
+                                               + " x " + theBlocks.getHeight()
+                                               + " board into a " + myWidth + " x "
+                                               + myHeight + " board");
         }
+        myPersistentBlocks = theBlocks;
+        myStaleBlocks = true;
+        clearChangedRows();
     }
 
     /**
-     * Checks the board for complete rows.
+     * Helper function returning the bitboard of the frozen blocks, reloading
+     * it first if the blocks were replaced.
+     * 
+     * @return the up to date bitboard
      */
-    private void checkRows() {
-        final List<Integer> completeRows = new ArrayList<>();
-        for (final Block[] row : myFrozenBlocks) {
-            boolean complete = true;
-            for (final Block b : row) {
-                if (b == null) {
-                    complete = false;
-                    break;
-                }
-            }
-            if (complete) {
-                completeRows.add(myFrozenBlocks.indexOf(row));
-                setChanged();
-            }
+    private BitBoard frozenBlocks() {
+        if (myStaleBlocks) {
+            myFrozenBlocks.copyFrom(myPersistentBlocks);
+            myStaleBlocks = false;
         }
-        // loop through list backwards removing items by index
-        if (!completeRows.isEmpty()) {
-            for (int i = completeRows.size() - 1; i >= 0; i--) {
-                final Block[] row = myFrozenBlocks.get(completeRows.get(i));
-                myFrozenBlocks.remove(row);
-                myFrozenBlocks.add(new Block[myWidth]);
-            }
-        }
-        notifyObservers(completeRows.toArray(new Integer[completeRows.size()]));
+        return myFrozenBlocks;
     }
-    
+
     /**
-     * Helper function to copy the board.
+     * Helper function returning the immutable value of the frozen blocks,
+     * building it first from the rows of the bitboard that changed.
      * 
-     * @return A new copy of the board.
+     * @return the up to date immutable value
      */
-    private List<Block[]> getBoard() {
-        final List<Block[]> board = new ArrayList<Block[]>();
-        for (final Block[] row : myFrozenBlocks) {
-            board.add(row.clone());
+    private PersistentBoard persistentBlocks() {
+        if (myChangedLow <= myChangedHigh) {
+            myPersistentBlocks = myPersistentBlocks.withRows(myFrozenBlocks, myChangedLow,
+                                                             myChangedHigh);
+            clearChangedRows();
         }
-        return board;
+        return myPersistentBlocks;
     }
 
     /**
-     * Determines if a point is on the game board.
+     * Helper function to record that rows of the bitboard changed, so that
+     * the immutable value copies them when it is next read.
      * 
-     * @param theBoard Board to test.
-     * @param thePoint Point to test.
-     * @return True if the point is on the board otherwise false.
+     * @param theLow the lowest changed row
+     * @param theHigh the highest changed row
+     */
+    private void changeRows(final int theLow, final int theHigh) {
+        myChangedLow = Math.min(myChangedLow, theLow);
+        myChangedHigh = Math.max(myChangedHigh, theHigh);
+    }
+
+    /**
+     * Helper function to record that the immutable value holds every row of
+     * the frozen blocks.
      */
-    private boolean isPointOnBoard(final List<Block[]> theBoard, final Point thePoint) {
-        return thePoint.getX() >= 0 && thePoint.getX() < myWidth && thePoint.getY() >= 0
-               && thePoint.getY() < theBoard.size();
+    private void clearChangedRows() {
+        myChangedLow = Integer.MAX_VALUE;
+        myChangedHigh = -1;
     }
 
     /**
-     * Sets a block at a board point.
+     * Replaces the current piece, updating the hash.
      * 
-     * @param theBoard Board to set the point on.
-     * @param thePoint Board point.
-     * @param theBlock Block to set at board point.
+     * @param thePiece packed state of the new current piece, or PieceState.NONE.
      */
-    private void setPoint(final List<Block[]> theBoard,
-                          final Point thePoint,
-                          final Block theBlock) {
-        
-        if (isPointOnBoard(theBoard, thePoint)) { 
-            final Block[] row = theBoard.get(thePoint.getY());
-            row[thePoint.getX()] = theBlock;
-        } else if (!myGameOver) {
-            myGameOver = true;
-            setChanged();
-            notifyObservers(myGameOver);
+    private void setCurrentPiece(final int thePiece) {
+        myPieceHash ^= Zobrist.piece(myCurrentPiece) ^ Zobrist.piece(thePiece);
+        myCurrentPiece = thePiece;
+    }
+
+    /**
+     * Replaces the next piece, updating the hash.
+     * 
+     * @param thePiece the new next piece.
+     */
+    private void setNextPiece(final TetrisPiece thePiece) {
+        myPieceHash ^= Zobrist.next(myNextPiece) ^ Zobrist.next(thePiece);
+        myNextPiece = thePiece;
+    }
+
+    /**
+     * Notifies the listeners subscribed to the type of a change.
+     * 
+     * @param theEvent the change to report.
+     */
+    private void fire(final BoardEvent theEvent) {
+        myListeners.publish(theEvent);
+    }
+
+    /**
+     * Creates a PIECE_MOVED event carrying the landing position of the moved piece.
+     * 
+     * @param theOldPiece the packed state before the move, or PieceState.NONE.
+     * @param theNewPiece the packed state after the move.
+     * @return the event.
+     */
+    private BoardEvent movedEvent(final int theOldPiece, final int theNewPiece) {
+        int ghost = PieceState.NONE;
+        if (myListeners.hasSubscribers(BoardEvent.Type.PIECE_MOVED)) {
+            ghost = ghostOf(theNewPiece);
         }
+        return BoardEvent.pieceMoved(theOldPiece, theNewPiece, ghost);
     }
 
     /**
-     * Returns the block at a specific board point.
+     * Computes where a piece would land if it were dropped.
      * 
-     * @param thePoint the specific Point to check
-     * @return the Block type at point or null if no block exists.
+     * @param thePiece packed piece state, or PieceState.NONE.
+     * @return the packed state at the landing row, or PieceState.NONE.
      */
-    private Block getPoint(final Point thePoint) {
-        Block b = null;
-        if (isPointOnBoard(myFrozenBlocks, thePoint)) {
-            b = myFrozenBlocks.get(thePoint.getY())[thePoint.getX()];
+    private int ghostOf(final int thePiece) {
+        int result = PieceState.NONE;
+        if (thePiece != PieceState.NONE && isPieceLegal(thePiece)) {
+            result = frozenBlocks().dropPosition(thePiece);
         }
-        return b;
+        return result;
+    }
+
+    /**
+     * Helper function to test if the piece is in a legal state.
+     * 
+     * Illegal states:
+     * - points of the piece exceed the bounds of the board
+     * - points of the piece collide with frozen blocks on the board
+     * 
+     * @param thePiece packed piece state to test.
+     * @return Returns true if the piece is in a legal state; false otherwise
+     */
+    private boolean isPieceLegal(final int thePiece) {
+        return frozenBlocks().fits(thePiece);
     }
 
     /**
-     * Helper function to determine of a movable block has collided with set
-     * blocks.
+     * Determines if a piece covers a board cell.
      * 
-     * @param theTest movable TetrisPiece to test for collision.
-     * @return Returns true if any of the blocks has collided with a set board
-     *         block.
+     * @param thePiece packed piece state to test, or PieceState.NONE.
+     * @param theX the column.
+     * @param theY the row.
+     * @return True if one of the blocks of the piece is at the cell.
      */
-    private boolean collision(final MovableTetrisPiece theTest) {
-        boolean res = false;
-        for (final Point p : theTest.getBoardPoints()) {
-            if (getPoint(p) != null) {
-                res = true;
+    private boolean isPieceCell(final int thePiece, final int theX, final int theY) {
+        boolean result = false;
+        if (thePiece != PieceState.NONE) {
+            for (int i = 0; i < PieceState.BLOCKS; i++) {
+                if (PieceState.getCellX(thePiece, i) == theX
+                    && PieceState.getCellY(thePiece, i) == theY) {
+                    result = true;
+                }
             }
         }
-        return res;
+        return result;
+    }
+
+    /**
+     * Freezes a piece into the frozen blocks of the board.
+     * 
+     * Blocks that land outside of the board end the game.
+     * 
+     * @param thePiece packed state of the piece to freeze on the board.
+     */
+    private void freezePiece(final int thePiece) {
+        final boolean inside = frozenBlocks().place(thePiece);
+        final TetrisPiece piece = PieceState.getPiece(thePiece);
+        final Rotation rotation = PieceState.getRotation(thePiece);
+        final int y = PieceState.getY(thePiece);
+        changeRows(y + piece.getMinY(rotation), y + piece.getMaxY(rotation));
+        fire(BoardEvent.pieceLocked(thePiece));
+        if (!inside && !myGameOver) {
+            myGameOver = true;
+            fire(BoardEvent.gameOver());
+        }
+    }
+
+    /**
+     * Checks the rows touched by a frozen piece for complete rows.
+     * No other row can have been completed by freezing the piece.
+     * 
+     * @param thePiece packed state of the piece that was just frozen.
+     */
+    private void checkRows(final int thePiece) {
+        final TetrisPiece piece = PieceState.getPiece(thePiece);
+        final Rotation rotation = PieceState.getRotation(thePiece);
+        final int y = PieceState.getY(thePiece);
+        final int low = y + piece.getMinY(rotation);
+        final int high = y + piece.getMaxY(rotation);
+        final int[] completeRows = frozenBlocks().clearFullRows(low, high);
+        if (completeRows.length > 0) {
+            // Every row above the lowest cleared row may have moved down.
+            changeRows(completeRows[0], myHeight - 1);
+            fire(BoardEvent.rowsCleared(completeRows));
+        }
     }
 
     /**
      * Gets the next MovableTetrisPiece.
      * 
      * @param theRestart Restart the non random cycle.
-     * @return A new MovableTetrisPiece.
+     * @return The packed state of the new movable piece.
      */
-    private MovableTetrisPiece nextMovablePiece(final boolean theRestart) {
+    private int nextMovablePiece(final boolean theRestart) {
         
         if (myNextPiece == null || theRestart) {
             prepareNextMovablePiece();
@@ -467,24 +966,14 @@ public class Board extends Observable {
         
         final TetrisPiece next = myNextPiece;
         
-        int startY = myHeight - 1;
-        if (myNextPiece == TetrisPiece.I) {
-            startY--; 
-        }
-        
         prepareNextMovablePiece();
         
-        final MovableTetrisPiece nextMovablePiece =
-            new MovableTetrisPiece(next,
-                                   new Point((myWidth - myNextPiece.getWidth()) / 2, startY));
-                        
-        
-        
+        final int nextMovablePiece = frozenBlocks().spawnPosition(next, myNextPiece);
         
         if (!myGameOver) {
-            setChanged();
-            notifyObservers(new MovableTetrisPiece(myNextPiece,
-                            new Point((myWidth - myNextPiece.getWidth()) / 2, startY)));
+            fire(BoardEvent.nextPiece(new MovableTetrisPiece(myNextPiece,
+                            new Point(PieceState.getX(nextMovablePiece),
+                                      PieceState.getY(nextMovablePiece)))));
         }
         
         return nextMovablePiece;
@@ -496,10 +985,14 @@ public class Board extends Observable {
     private void prepareNextMovablePiece() {
         
         if (myNonRandomPieces == null || myNonRandomPieces.isEmpty()) {
-            myNextPiece = TetrisPiece.getRandomPiece();
+            final TetrisPiece piece = myGenerator.next();
+            if (myDelta != null) {
+                myDelta.addDealt(piece);
+            }
+            setNextPiece(piece);
         } else {
             mySequenceIndex %= myNonRandomPieces.size();
-            myNextPiece = myNonRandomPieces.get(mySequenceIndex++);
+            setNextPiece(myNonRandomPieces.get(mySequenceIndex++));
         }
     }
     
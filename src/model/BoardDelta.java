@@ -0,0 +1,205 @@
+/*
+ * TCSS 305 - Project Tetris
+ */
+
+package model;
+
+/**
+ * The reversible change one command made to a Board: the current and next
+ * piece before and after, the frozen blocks before and after, the pieces
+ * dealt by the generator and the game over state. A delta holds no copy of
+ * the board; the frozen blocks are kept as the immutable values before and
+ * after, which share their untouched rows.
+ *
+ * @author TCSS 305 Instructors
+ * @version Autumn 2016
+ */
+final class BoardDelta {
+
+    /** The most pieces one command deals: the next piece, and one more if none was next. */
+    private static final int MAX_DEALT = 2;
+
+    /** The packed state of the current piece before the command. */
+    private final int myOldPiece;
+
+    /** The piece that was next to play before the command. */
+    private final TetrisPiece myOldNext;
+
+    /** The game over state before the command. */
+    private final boolean myOldGameOver;
+
+    /** The index in the non random piece sequence before the command. */
+    private final int myOldSequenceIndex;
+
+    /** The frozen blocks before the command. */
+    private final PersistentBoard myOldBlocks;
+
+    /** The packed state of the current piece after the command. */
+    private int myNewPiece;
+
+    /** The piece that was next to play after the command. */
+    private TetrisPiece myNewNext;
+
+    /** The game over state after the command. */
+    private boolean myNewGameOver;
+
+    /** The index in the non random piece sequence after the command. */
+    private int myNewSequenceIndex;
+
+    /** The frozen blocks after the command. */
+    private PersistentBoard myNewBlocks;
+
+    /** The pieces dealt by the random piece generator, in order. */
+    private final TetrisPiece[] myDealt = new TetrisPiece[MAX_DEALT];
+
+    /** The number of pieces dealt by the random piece generator. */
+    private int myDealtCount;
+
+    /**
+     * Constructs a delta starting from the state of a board.
+     *
+     * @param thePiece the packed state of the current piece.
+     * @param theNext the piece that is next to play.
+     * @param theGameOver the game over state.
+     * @param theSequenceIndex the index in the non random piece sequence.
+     * @param theBlocks the frozen blocks.
+     */
+    BoardDelta(final int thePiece, final TetrisPiece theNext, final boolean theGameOver,
+               final int theSequenceIndex, final PersistentBoard theBlocks) {
+        myOldPiece = thePiece;
+        myOldNext = theNext;
+        myOldGameOver = theGameOver;
+        myOldSequenceIndex = theSequenceIndex;
+        myOldBlocks = theBlocks;
+    }
+
+    /**
+     * Records the state of the board after the command.
+     *
+     * @param thePiece the packed state of the current piece.
+     * @param theNext the piece that is next to play.
+     * @param theGameOver the game over state.
+     * @param theSequenceIndex the index in the non random piece sequence.
+     * @param theBlocks the frozen blocks.
+     */
+    void finish(final int thePiece, final TetrisPiece theNext, final boolean theGameOver,
+                final int theSequenceIndex, final PersistentBoard theBlocks) {
+        myNewPiece = thePiece;
+        myNewNext = theNext;
+        myNewGameOver = theGameOver;
+        myNewSequenceIndex = theSequenceIndex;
+        myNewBlocks = theBlocks;
+    }
+
+    /**
+     * Records a piece dealt by the random piece generator.
+     *
+     * @param thePiece the dealt piece.
+     */
+    void addDealt(final TetrisPiece thePiece) {
+        myDealt[myDealtCount++] = thePiece;
+    }
+
+    /**
+     * Determines if the command changed nothing.
+     *
+     * @return true if the board is as it was before the command.
+     */
+    boolean isEmpty() {
+        return myOldPiece == myNewPiece && myOldNext == myNewNext
+               && myOldGameOver == myNewGameOver && myOldBlocks == myNewBlocks
+               && myDealtCount == 0 && myOldSequenceIndex == myNewSequenceIndex;
+    }
+
+    /**
+     * Reverts the generator to the state before the command.
+     *
+     * @param theGenerator the random piece generator.
+     */
+    void undo(final PieceGenerator theGenerator) {
+        for (int i = myDealtCount - 1; i >= 0; i--) {
+            theGenerator.undeal(myDealt[i]);
+        }
+    }
+
+    /**
+     * Applies the command again to the generator, from the state before the command.
+     *
+     * @param theGenerator the random piece generator.
+     */
+    void redo(final PieceGenerator theGenerator) {
+        for (int i = 0; i < myDealtCount; i++) {
+            theGenerator.next();
+        }
+    }
+
+    /**
+     * Returns the packed state of the current piece before or after the command.
+     *
+     * @param theAfter true for the state after the command.
+     * @return the packed state.
+     */
+    int getPiece(final boolean theAfter) {
+        int result = myOldPiece;
+        if (theAfter) {
+            result = myNewPiece;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the piece next to play before or after the command.
+     *
+     * @param theAfter true for the piece after the command.
+     * @return the next piece.
+     */
+    TetrisPiece getNext(final boolean theAfter) {
+        TetrisPiece result = myOldNext;
+        if (theAfter) {
+            result = myNewNext;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the game over state before or after the command.
+     *
+     * @param theAfter true for the state after the command.
+     * @return the game over state.
+     */
+    boolean isGameOver(final boolean theAfter) {
+        boolean result = myOldGameOver;
+        if (theAfter) {
+            result = myNewGameOver;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the index in the non random piece sequence before or after the command.
+     *
+     * @param theAfter true for the index after the command.
+     * @return the index.
+     */
+    int getSequenceIndex(final boolean theAfter) {
+        int result = myOldSequenceIndex;
+        if (theAfter) {
+            result = myNewSequenceIndex;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the frozen blocks before or after the command.
+     *
+     * @param theAfter true for the blocks after the command.
+     * @return the frozen blocks.
+     */
+    PersistentBoard getBlocks(final boolean theAfter) {
+        PersistentBoard result = myOldBlocks;
+        if (theAfter) {
+            result = myNewBlocks;
+        }
+        return result;
+    }
+}
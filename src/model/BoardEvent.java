@@ -0,0 +1,309 @@
+/*
+ * TCSS 305 - Project Tetris
+ */
+
+package model;
+
+/**
+ * Describes a single change to a Board.
+ *
+ * Events carry only what changed: the cells a piece left and entered, the
+ * indices of cleared rows, or the next piece. Cell arrays are built on demand
+ * from packed piece states, so creating an event allocates no Points.
+ * A BoardEvent is immutable.
+ *
+ * @author TCSS 305 Instructors
+ * @version Autumn 2016
+ */
+public final class BoardEvent {
+
+    /**
+     * The kinds of changes a Board reports.
+     */
+    public enum Type {
+
+        /** The board was emptied for a new game; the new cells hold the first piece. */
+        NEW_GAME,
+
+        /** The current piece moved, rotated or spawned from the old cells to the new cells. */
+        PIECE_MOVED,
+
+        /** The current piece froze into the board at the new cells. */
+        PIECE_LOCKED,
+
+        /** Complete rows were removed; the rows above moved down. */
+        ROWS_CLEARED,
+
+        /** The piece that will play next changed. */
+        NEXT_PIECE,
+
+        /** The game is over. */
+        GAME_OVER,
+
+        /**
+         * The whole board was replaced by Board.setState; the new cells hold the
+         * current piece. Listeners mirroring the board rebuild it from Board.getState().
+         */
+        BOARD_RESTORED
+    }
+
+    /**
+     * An empty array of cells.
+     */
+    private static final Point[] NO_CELLS = new Point[0];
+
+    /**
+     * An empty array of row indices.
+     */
+    private static final int[] NO_ROWS = new int[0];
+
+    /**
+     * The kind of change.
+     */
+    private final Type myType;
+
+    /**
+     * The packed state of the piece before the change.
+     */
+    private final int myOldPiece;
+
+    /**
+     * The packed state of the piece after the change.
+     */
+    private final int myNewPiece;
+
+    /**
+     * The indices of the cleared rows in ascending order.
+     */
+    private final int[] myRows;
+
+    /**
+     * The next piece.
+     */
+    private final MovableTetrisPiece myNextPiece;
+
+    /**
+     * The packed state of the piece at its landing row.
+     */
+    private final int myGhostPiece;
+
+    /**
+     * Constructs a BoardEvent.
+     *
+     * @param theType the kind of change.
+     * @param theOldPiece the packed state of the piece before the change.
+     * @param theNewPiece the packed state of the piece after the change.
+     * @param theRows the indices of the cleared rows.
+     * @param theNextPiece the next piece.
+     * @param theGhostPiece the packed state of the piece at its landing row.
+     */
+    private BoardEvent(final Type theType, final int theOldPiece, final int theNewPiece,
+                       final int[] theRows, final MovableTetrisPiece theNextPiece,
+                       final int theGhostPiece) {
+        myType = theType;
+        myOldPiece = theOldPiece;
+        myNewPiece = theNewPiece;
+        myRows = theRows;
+        myNextPiece = theNextPiece;
+        myGhostPiece = theGhostPiece;
+    }
+
+    // protected factories - used by the Board class
+
+    /**
+     * Creates a NEW_GAME event.
+     *
+     * @param thePiece the packed state of the first piece.
+     * @param theGhostPiece the packed state of the first piece at its landing row.
+     * @return the event.
+     */
+    protected static BoardEvent newGame(final int thePiece, final int theGhostPiece) {
+        return new BoardEvent(Type.NEW_GAME, PieceState.NONE, thePiece, NO_ROWS, null,
+                              theGhostPiece);
+    }
+
+    /**
+     * Creates a PIECE_MOVED event.
+     *
+     * @param theOldPiece the packed state before the move, or PieceState.NONE on spawn.
+     * @param theNewPiece the packed state after the move.
+     * @param theGhostPiece the packed state of the moved piece at its landing row.
+     * @return the event.
+     */
+    protected static BoardEvent pieceMoved(final int theOldPiece, final int theNewPiece,
+                                           final int theGhostPiece) {
+        return new BoardEvent(Type.PIECE_MOVED, theOldPiece, theNewPiece, NO_ROWS, null,
+                              theGhostPiece);
+    }
+
+    /**
+     * Creates a PIECE_LOCKED event.
+     *
+     * @param thePiece the packed state of the frozen piece.
+     * @return the event.
+     */
+    protected static BoardEvent pieceLocked(final int thePiece) {
+        return new BoardEvent(Type.PIECE_LOCKED, thePiece, thePiece, NO_ROWS, null,
+                              PieceState.NONE);
+    }
+
+    /**
+     * Creates a ROWS_CLEARED event.
+     *
+     * @param theRows the indices of the cleared rows in ascending order.
+     * @return the event.
+     */
+    protected static BoardEvent rowsCleared(final int[] theRows) {
+        return new BoardEvent(Type.ROWS_CLEARED, PieceState.NONE, PieceState.NONE,
+                              theRows, null, PieceState.NONE);
+    }
+
+    /**
+     * Creates a NEXT_PIECE event.
+     *
+     * @param theNextPiece the piece that will play next.
+     * @return the event.
+     */
+    protected static BoardEvent nextPiece(final MovableTetrisPiece theNextPiece) {
+        return new BoardEvent(Type.NEXT_PIECE, PieceState.NONE, PieceState.NONE,
+                              NO_ROWS, theNextPiece, PieceState.NONE);
+    }
+
+    /**
+     * Creates a BOARD_RESTORED event.
+     *
+     * @param thePiece the packed state of the current piece, or PieceState.NONE.
+     * @param theGhostPiece the packed state of the current piece at its landing row.
+     * @return the event.
+     */
+    protected static BoardEvent boardRestored(final int thePiece, final int theGhostPiece) {
+        return new BoardEvent(Type.BOARD_RESTORED, PieceState.NONE, thePiece, NO_ROWS, null,
+                              theGhostPiece);
+    }
+
+    /**
+     * Creates a GAME_OVER event.
+     *
+     * @return the event.
+     */
+    protected static BoardEvent gameOver() {
+        return new BoardEvent(Type.GAME_OVER, PieceState.NONE, PieceState.NONE,
+                              NO_ROWS, null, PieceState.NONE);
+    }
+
+    // public queries
+
+    /**
+     * Returns the kind of change.
+     *
+     * @return the event type.
+     */
+    public Type getType() {
+        return myType;
+    }
+
+    /**
+     * Returns the board cells the piece occupied before the change.
+     * Cells may lie above the top of the board.
+     *
+     * @return the old cells; empty if the piece did not exist before the change.
+     */
+    public Point[] getOldCells() {
+        return getCells(myOldPiece);
+    }
+
+    /**
+     * Returns the board cells the piece occupies after the change.
+     * Cells may lie above the top of the board.
+     *
+     * @return the new cells; empty if the event does not concern the current piece.
+     */
+    public Point[] getNewCells() {
+        return getCells(myNewPiece);
+    }
+
+    /**
+     * Returns the board cells the piece would occupy after a hard drop from its
+     * new position, for drawing a ghost piece.
+     *
+     * @return the landing cells of a NEW_GAME, PIECE_MOVED or BOARD_RESTORED event,
+     *         otherwise empty.
+     */
+    public Point[] getGhostCells() {
+        return getCells(myGhostPiece);
+    }
+
+    /**
+     * Returns the packed state of the piece after a hard drop from its new
+     * position, for drawing a ghost piece without computing it again.
+     *
+     * @return the landing state of a NEW_GAME, PIECE_MOVED or BOARD_RESTORED event,
+     *         otherwise PieceState.NONE.
+     */
+    public int getGhostPiece() {
+        return myGhostPiece;
+    }
+
+    /**
+     * Returns the Block type of the piece that changed.
+     *
+     * @return the Block type or null if the event does not concern the current piece.
+     */
+    public Block getBlock() {
+        Block result = null;
+        if (myNewPiece != PieceState.NONE) {
+            result = PieceState.getPiece(myNewPiece).getBlock();
+        }
+        return result;
+    }
+
+    /**
+     * Returns the indices of the rows removed by a ROWS_CLEARED event.
+     *
+     * @return the cleared rows in ascending order, numbered before the removal.
+     */
+    public int[] getRows() {
+        return myRows.clone();
+    }
+
+    /**
+     * Returns the number of rows removed by a ROWS_CLEARED event.
+     *
+     * @return the number of cleared rows.
+     */
+    public int getRowCount() {
+        return myRows.length;
+    }
+
+    /**
+     * Returns the piece that will play next.
+     *
+     * @return the next piece of a NEXT_PIECE event, otherwise null.
+     */
+    public MovableTetrisPiece getNextPiece() {
+        return myNextPiece;
+    }
+
+    @Override
+    public String toString() {
+        return "BoardEvent[" + myType + ']';
+    }
+
+    /**
+     * Builds the board cells of a packed piece state.
+     *
+     * @param thePiece the packed piece state or PieceState.NONE.
+     * @return the board cells of the piece.
+     */
+    private static Point[] getCells(final int thePiece) {
+        Point[] result = NO_CELLS;
+        if (thePiece != PieceState.NONE) {
+            result = new Point[PieceState.BLOCKS];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = new Point(PieceState.getCellX(thePiece, i),
+                                      PieceState.getCellY(thePiece, i));
+            }
+        }
+        return result;
+    }
+}
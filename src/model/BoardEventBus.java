@@ -0,0 +1,203 @@
+/*
+ * TCSS 305 - Project Tetris
+ */
+
+package model;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Delivers BoardEvents to the listeners subscribed to their type.
+ *
+ * Each event type has its own array of subscribers. Subscribing and
+ * unsubscribing replace the array with a copy, so publishing takes no lock
+ * and costs one pass over the subscribers of a single type. A listener may
+ * be called directly on the publishing thread or handed to an Executor,
+ * for example the Swing event dispatch thread.
+ *
+ * @author TCSS 305 Instructors
+ * @version Autumn 2016
+ */
+public final class BoardEventBus {
+
+    /**
+     * The event types indexed by ordinal.
+     */
+    private static final BoardEvent.Type[] TYPES = BoardEvent.Type.values();
+
+    /**
+     * An empty array of subscribers.
+     */
+    private static final Subscriber[] NO_SUBSCRIBERS = new Subscriber[0];
+
+    /**
+     * The subscribers of each event type, indexed by type ordinal.
+     */
+    private final AtomicReferenceArray<Subscriber[]> mySubscribers;
+
+    /**
+     * Constructs a bus with no subscribers.
+     */
+    public BoardEventBus() {
+        mySubscribers = new AtomicReferenceArray<Subscriber[]>(TYPES.length);
+        for (int i = 0; i < TYPES.length; i++) {
+            mySubscribers.set(i, NO_SUBSCRIBERS);
+        }
+    }
+
+    /**
+     * Subscribes a listener that is called on the publishing thread.
+     *
+     * @param theListener the listener.
+     * @param theTypes the event types to receive; every type if none are given.
+     * @see #subscribe(BoardListener, Executor, BoardEvent.Type...)
+     */
+    public void subscribe(final BoardListener theListener, final BoardEvent.Type... theTypes) {
+        subscribe(theListener, null, theTypes);
+    }
+
+    /**
+     * Subscribes a listener. A listener that is already subscribed to a type
+     * is not added again for that type.
+     *
+     * @param theListener the listener.
+     * @param theExecutor the executor that calls the listener, or null to call it
+     *        on the publishing thread.
+     * @param theTypes the event types to receive; every type if none are given.
+     * @throws NullPointerException if the listener is null.
+     */
+    public void subscribe(final BoardListener theListener, final Executor theExecutor,
+                          final BoardEvent.Type... theTypes) {
+        final Subscriber subscriber =
+            new Subscriber(Objects.requireNonNull(theListener), theExecutor);
+        BoardEvent.Type[] types = theTypes;
+        if (types.length == 0) {
+            types = TYPES;
+        }
+        for (final BoardEvent.Type type : types) {
+            final int index = type.ordinal();
+            Subscriber[] current;
+            Subscriber[] updated;
+            do {
+                current = mySubscribers.get(index);
+                if (indexOf(current, theListener) >= 0) {
+                    break;
+                }
+                updated = Arrays.copyOf(current, current.length + 1);
+                updated[current.length] = subscriber;
+            } while (!mySubscribers.compareAndSet(index, current, updated));
+        }
+    }
+
+    /**
+     * Unsubscribes a listener from every event type.
+     *
+     * @param theListener the listener.
+     */
+    public void unsubscribe(final BoardListener theListener) {
+        for (int index = 0; index < TYPES.length; index++) {
+            Subscriber[] current;
+            Subscriber[] updated;
+            do {
+                current = mySubscribers.get(index);
+                final int position = indexOf(current, theListener);
+                if (position < 0) {
+                    break;
+                }
+                updated = new Subscriber[current.length - 1];
+                System.arraycopy(current, 0, updated, 0, position);
+                System.arraycopy(current, position + 1, updated, position,
+                                 updated.length - position);
+            } while (!mySubscribers.compareAndSet(index, current, updated));
+        }
+    }
+
+    /**
+     * Determines if any listener receives events of a type. Publishers may use
+     * this to skip building events nobody receives.
+     *
+     * @param theType the event type.
+     * @return true if at least one listener is subscribed to the type.
+     */
+    public boolean hasSubscribers(final BoardEvent.Type theType) {
+        return mySubscribers.get(theType.ordinal()).length > 0;
+    }
+
+    /**
+     * Delivers an event to the listeners subscribed to its type, in the order
+     * they subscribed.
+     *
+     * @param theEvent the event.
+     */
+    public void publish(final BoardEvent theEvent) {
+        for (final Subscriber subscriber : mySubscribers.get(theEvent.getType().ordinal())) {
+            subscriber.deliver(theEvent);
+        }
+    }
+
+    /**
+     * Finds the subscriber of a listener.
+     *
+     * @param theSubscribers the subscribers to search.
+     * @param theListener the listener.
+     * @return the index of the subscriber of the listener, or -1 if there is none.
+     */
+    private static int indexOf(final Subscriber[] theSubscribers,
+                               final BoardListener theListener) {
+        int result = -1;
+        for (int i = 0; result < 0 && i < theSubscribers.length; i++) {
+            if (theSubscribers[i].myListener == theListener) {
+                result = i;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * A listener together with the executor that calls it.
+     */
+    private static final class Subscriber {
+
+        /**
+         * The listener.
+         */
+        private final BoardListener myListener;
+
+        /**
+         * The executor calling the listener, or null to call it directly.
+         */
+        private final Executor myExecutor;
+
+        /**
+         * Constructs a Subscriber.
+         *
+         * @param theListener the listener.
+         * @param theExecutor the executor calling the listener, or null.
+         */
+        Subscriber(final BoardListener theListener, final Executor theExecutor) {
+            myListener = theListener;
+            myExecutor = theExecutor;
+        }
+
+        /**
+         * Delivers an event to the listener.
+         *
+         * @param theEvent the event.
+         */
+        void deliver(final BoardEvent theEvent) {
+            if (myExecutor == null) {
+                myListener.boardChanged(theEvent);
+            } else {
+                myExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        myListener.boardChanged(theEvent);
+                    }
+                });
+            }
+        }
+    }
+}
@@ -0,0 +1,26 @@
+/*
+ * TCSS 305 - Project Tetris
+ */
+
+package model;
+
+/**
+ * Receives the changes of a Board.
+ *
+ * Listeners subscribe to the event types they need, so they are only called
+ * with events of those types.
+ *
+ * @author TCSS 305 Instructors
+ * @version Autumn 2016
+ * @see Board#addBoardListener(BoardListener, BoardEvent.Type...)
+ */
+@FunctionalInterface
+public interface BoardListener {
+
+    /**
+     * Called when a Board changes.
+     *
+     * @param theEvent the change, of one of the types the listener subscribed to.
+     */
+    void boardChanged(BoardEvent theEvent);
+}
@@ -0,0 +1,158 @@
+/*
+ * TCSS 305 - Project Tetris
+ */
+
+package model;
+
+/**
+ * A snapshot of everything that determines the future of a Board playing
+ * random pieces: the frozen blocks, the current and next piece, the game over
+ * state and the state of the piece generator.
+ *
+ * A BoardState is immutable. Restoring it with Board.setState on a board
+ * whose piece generator is of the same kind continues the game exactly as
+ * it would have continued from the snapshot.
+ *
+ * @author TCSS 305 Instructors
+ * @version Autumn 2016
+ */
+public final class BoardState {
+
+    /**
+     * The frozen blocks.
+     */
+    private final PersistentBoard myFrozenBlocks;
+
+    /**
+     * The packed state of the current piece.
+     */
+    private final int myCurrentPiece;
+
+    /**
+     * The piece that is next to play.
+     */
+    private final TetrisPiece myNextPiece;
+
+    /**
+     * The game over state.
+     */
+    private final boolean myGameOver;
+
+    /**
+     * The seed of the piece generator.
+     */
+    private final long myGeneratorSeed;
+
+    /**
+     * The number of pieces dealt by the piece generator.
+     */
+    private final long myDealtPieces;
+
+    /**
+     * Constructs a BoardState.
+     *
+     * @param theFrozenBlocks the frozen blocks; copied.
+     * @param theCurrentPiece the packed state of the current piece, or PieceState.NONE.
+     * @param theNextPiece the piece that is next to play, or null before the first game.
+     * @param theGameOver the game over state.
+     * @param theGeneratorSeed the seed of the piece generator.
+     * @param theDealtPieces the number of pieces dealt by the piece generator.
+     * @throws IllegalArgumentException if the number of dealt pieces is negative.
+     */
+    public BoardState(final BitBoard theFrozenBlocks, final int theCurrentPiece,
+                      final TetrisPiece theNextPiece, final boolean theGameOver,
+                      final long theGeneratorSeed, final long theDealtPieces) {
+        this(new PersistentBoard(theFrozenBlocks), theCurrentPiece, theNextPiece,
+             theGameOver, theGeneratorSeed, theDealtPieces);
+    }
+
+    /**
+     * Constructs a BoardState sharing immutable frozen blocks.
+     *
+     * @param theFrozenBlocks the frozen blocks.
+     * @param theCurrentPiece the packed state of the current piece, or PieceState.NONE.
+     * @param theNextPiece the piece that is next to play, or null before the first game.
+     * @param theGameOver the game over state.
+     * @param theGeneratorSeed the seed of the piece generator.
+     * @param theDealtPieces the number of pieces dealt by the piece generator.
+     * @throws IllegalArgumentException if the number of dealt pieces is negative.
+     */
+    public BoardState(final PersistentBoard theFrozenBlocks, final int theCurrentPiece,
+                      final TetrisPiece theNextPiece, final boolean theGameOver,
+                      final long theGeneratorSeed, final long theDealtPieces) {
+        if (theDealtPieces < 0) {
+            throw new IllegalArgumentException("Dealt pieces must not be negative: "
+                                               + theDealtPieces);
+        }
+        myFrozenBlocks = theFrozenBlocks;
+        myCurrentPiece = theCurrentPiece;
+        myNextPiece = theNextPiece;
+        myGameOver = theGameOver;
+        myGeneratorSeed = theGeneratorSeed;
+        myDealtPieces = theDealtPieces;
+    }
+
+    /**
+     * Returns a copy of the frozen blocks.
+     *
+     * @return the frozen blocks.
+     */
+    public BitBoard getFrozenBlocks() {
+        return myFrozenBlocks.toBitBoard();
+    }
+
+    /**
+     * Returns the frozen blocks without copying them.
+     *
+     * @return the frozen blocks.
+     */
+    public PersistentBoard getPersistentBlocks() {
+        return myFrozenBlocks;
+    }
+
+    /**
+     * Returns the current piece.
+     *
+     * @return the packed state of the current piece, or PieceState.NONE.
+     * @see PieceState
+     */
+    public int getCurrentPiece() {
+        return myCurrentPiece;
+    }
+
+    /**
+     * Returns the piece that is next to play.
+     *
+     * @return the next piece, or null before the first game.
+     */
+    public TetrisPiece getNextPiece() {
+        return myNextPiece;
+    }
+
+    /**
+     * Returns the game over state.
+     *
+     * @return true if the game is over.
+     */
+    public boolean isGameOver() {
+        return myGameOver;
+    }
+
+    /**
+     * Returns the seed of the piece generator.
+     *
+     * @return the seed.
+     */
+    public long getGeneratorSeed() {
+        return myGeneratorSeed;
+    }
+
+    /**
+     * Returns the number of pieces dealt by the piece generator.
+     *
+     * @return the number of dealt pieces.
+     */
+    public long getDealtPieces() {
+        return myDealtPieces;
+    }
+}
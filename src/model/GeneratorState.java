@@ -0,0 +1,119 @@
+/*
+ * TCSS 305 - Project Tetris
+ */
+
+package model;
+
+/**
+ * An immutable snapshot of a PieceGenerator: its seed, the state of its
+ * random number generator, the number of pieces dealt, the pieces generated
+ * but not dealt yet and the pieces the kind of generator remembers, such as
+ * the current bag or the recent history.
+ *
+ * Restoring a snapshot takes constant time, however many pieces were dealt.
+ *
+ * @author TCSS 305 Instructors
+ * @version Autumn 2016
+ */
+public final class GeneratorState {
+
+    /** The seed of the generator. */
+    private final long mySeed;
+
+    /** The state of the random number generator. */
+    private final long myRandomState;
+
+    /** The number of pieces dealt. */
+    private final long myDealt;
+
+    /** The pieces generated but not dealt yet, next first. */
+    private final TetrisPiece[] myLookahead;
+
+    /** The pieces the kind of generator remembers. */
+    private final TetrisPiece[] myMemory;
+
+    /** The position of the generator in the remembered pieces. */
+    private final int myPosition;
+
+    /**
+     * Constructs a snapshot of a generator.
+     *
+     * @param theSeed the seed of the generator.
+     * @param theRandomState the state of the random number generator.
+     * @param theDealt the number of pieces dealt.
+     * @param theLookahead the pieces generated but not dealt yet, next first.
+     * @param theMemory the pieces the kind of generator remembers.
+     * @param thePosition the position of the generator in the remembered pieces.
+     * @throws IllegalArgumentException if the number of dealt pieces or the
+     *         position is negative.
+     */
+    public GeneratorState(final long theSeed, final long theRandomState, final long theDealt,
+                          final TetrisPiece[] theLookahead, final TetrisPiece[] theMemory,
+                          final int thePosition) {
+        if (theDealt < 0 || thePosition < 0) {
+            throw new IllegalArgumentException("Dealt pieces and position must not be "
+                                               + "negative: " + theDealt + ", "
+                                               + thePosition);
+        }
+        mySeed = theSeed;
+        myRandomState = theRandomState;
+        myDealt = theDealt;
+        myLookahead = theLookahead.clone();
+        myMemory = theMemory.clone();
+        myPosition = thePosition;
+    }
+
+    /**
+     * Returns the seed of the generator.
+     *
+     * @return the seed.
+     */
+    public long getSeed() {
+        return mySeed;
+    }
+
+    /**
+     * Returns the state of the random number generator.
+     *
+     * @return the SplitMixRandom state.
+     */
+    public long getRandomState() {
+        return myRandomState;
+    }
+
+    /**
+     * Returns the number of pieces dealt.
+     *
+     * @return the number of pieces dealt.
+     */
+    public long getDealt() {
+        return myDealt;
+    }
+
+    /**
+     * Returns the pieces generated but not dealt yet.
+     *
+     * @return a copy of the pieces, next first.
+     */
+    public TetrisPiece[] getLookahead() {
+        return myLookahead.clone();
+    }
+
+    /**
+     * Returns the pieces the kind of generator remembers.
+     *
+     * @return a copy of the pieces.
+     */
+    public TetrisPiece[] getMemory() {
+        return myMemory.clone();
+    }
+
+    /**
+     * Returns the position of the generator in the remembered pieces.
+     *
+     * @return the position.
+     */
+    public int getPosition() {
+        return myPosition;
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * TCSS 305 - Project Tetris
+ */
+
+package model;
+
+import java.util.SplittableRandom;
+
+/**
+ * Deals random pieces that avoid the most recently dealt ones.
+ *
+ * A piece is drawn uniformly; if it is one of the last four pieces, it is
+ * redrawn up to a fixed number of times and the last draw is kept. The history
+ * starts out holding S and Z pieces, which makes them unlikely to come first.
+ *
+ * @author TCSS 305 Instructors
+ * @version Autumn 2016
+ */
+public final class HistoryPieceGenerator extends PieceGenerator {
+
+    /**
+     * The number of draws before a piece from the history is accepted.
+     */
+    private static final int ROLLS = 6;
+
+    /**
+     * The most recent pieces, oldest first.
+     */
+    private final TetrisPiece[] myHistory =
+        {TetrisPiece.Z, TetrisPiece.S, TetrisPiece.Z, TetrisPiece.S};
+
+    /**
+     * Constructs a generator with an arbitrary seed.
+     */
+    public HistoryPieceGenerator() {
+        this(new SplittableRandom().nextLong());
+    }
+
+    /**
+     * Constructs a seeded generator.
+     *
+     * @param theSeed the seed.
+     */
+    public HistoryPieceGenerator(final long theSeed) {
+        super(theSeed);
+    }
+
+    @Override
+    public PieceGenerator newGenerator(final long theSeed) {
+        return new HistoryPieceGenerator(theSeed);
+    }
+
+    @Override
+    protected TetrisPiece generate(final SplitMixRandom theRandom) {
+        TetrisPiece result = TetrisPiece.getRandomPiece(theRandom);
+        for (int roll = 1; roll < ROLLS && isRecent(result); roll++) {
+            result = TetrisPiece.getRandomPiece(theRandom);
+        }
+        System.arraycopy(myHistory, 1, myHistory, 0, myHistory.length - 1);
+        myHistory[myHistory.length - 1] = result;
+        return result;
+    }
+
+    @Override
+    protected TetrisPiece[] getMemory() {
+        return myHistory.clone();
+    }
+
+    @Override
+    protected void setMemory(final TetrisPiece[] thePieces, final int thePosition) {
+        if (thePieces.length != myHistory.length || thePosition != 0) {
+            throw new IllegalArgumentException("Not the state of a history generator");
+        }
+        System.arraycopy(thePieces, 0, myHistory, 0, myHistory.length);
+    }
+
+    /**
+     * Determines if a piece is in the history.
+     *
+     * @param thePiece the piece.
+     * @return true if the piece is one of the most recent pieces.
+     */
+    private boolean isRecent(final TetrisPiece thePiece) {
+        boolean result = false;
+        for (final TetrisPiece recent : myHistory) {
+            result |= recent == thePiece;
+        }
+        return result;
+    }
+}
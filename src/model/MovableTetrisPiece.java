@@ -76,13 +76,7 @@ public final class MovableTetrisPiece {
      * @return the width of the MovableTetrisPiece.
      */
     public int getWidth() {
-        int min = Integer.MAX_VALUE;
-        int max = Integer.MIN_VALUE;
-        for (final Point block : getLocalPoints()) {
-            min = Math.min(min, block.getX());
-            max = Math.max(max, block.getX());
-        }
-        return max - min + 1;
+        return myTetrisPiece.getMaxX(myRotation) - myTetrisPiece.getMinX(myRotation) + 1;
     }
 
     /**
@@ -91,13 +85,7 @@ public final class MovableTetrisPiece {
      * @return the height of the MovableTetrisPiece.
      */
     public int getHeight() {
-        int min = Integer.MAX_VALUE;
-        int max = Integer.MIN_VALUE;
-        for (final Point block : getLocalPoints()) {
-            min = Math.min(min, block.getY());
-            max = Math.max(max, block.getY());
-        }
-        return max - min + 1;
+        return myTetrisPiece.getMaxY(myRotation) - myTetrisPiece.getMinY(myRotation) + 1;
     }
     
     /**
@@ -170,6 +158,31 @@ public final class MovableTetrisPiece {
         return myRotation;
     }
 
+    /**
+     * Get the packed state of this movable TetrisPiece.
+     * 
+     * @return the packed piece state.
+     * @see PieceState
+     */
+    protected int getState() {
+        return PieceState.pack(myTetrisPiece, myRotation,
+                               myPosition.getX(), myPosition.getY());
+    }
+
+    /**
+     * Creates the movable TetrisPiece described by a packed state.
+     * 
+     * @param theState the packed piece state.
+     * @return A new movable TetrisPiece.
+     * @see PieceState
+     */
+    protected static MovableTetrisPiece fromState(final int theState) {
+        return new MovableTetrisPiece(PieceState.getPiece(theState),
+                                      new Point(PieceState.getX(theState),
+                                                PieceState.getY(theState)),
+                                      PieceState.getRotation(theState));
+    }
+
     /**
      * Gets the TetrisPiece points rotated and translated to board coordinates.
      * 
@@ -248,42 +261,24 @@ public final class MovableTetrisPiece {
 
     /**
      * Get the block points of the TetrisPiece transformed by x and y.
+     * The rotated block offsets are precomputed by the TetrisPiece.
      * 
      * @param thePoint the point to transform the points around.
      * @return array of TetrisPiece block points.
      */
     private Point[] getPoints(final Point thePoint) {
-
-        final Point[] blocks = myTetrisPiece.getPoints();
+        int x = 0;
+        int y = 0;
+        if (thePoint != null) {
+            x = thePoint.getX();
+            y = thePoint.getY();
+        }
         
+        final Point[] blocks = new Point[BLOCKS];
         for (int i = 0; i < blocks.length; i++) {
-            final Point block = blocks[i];
-            if (myTetrisPiece != TetrisPiece.O) {
-                switch (myRotation) {
-                    case QUARTER:
-                        blocks[i] = new Point(block.getY(),
-                                              myTetrisPiece.getWidth() - block.getX() - 1);
-                        
-                        break;
-                    case HALF:
-                        blocks[i] = new Point(myTetrisPiece.getWidth() - block.getX() - 1,
-                                              myTetrisPiece.getWidth() - block.getY() - 1);
-                        
-                        break;
-                    case THREEQUARTER:                 
-                        blocks[i] = new Point(myTetrisPiece.getWidth() - block.getY() - 1,
-                                              block.getX());
-                        
-                        
-                        break;
-                    default:
-                }
-            }
-            if (thePoint != null) {
-                blocks[i] = blocks[i].transform(thePoint);
-            }
+            blocks[i] = new Point(x + myTetrisPiece.getCellX(myRotation, i),
+                                  y + myTetrisPiece.getCellY(myRotation, i));
         }
-
         return blocks;
     }
     
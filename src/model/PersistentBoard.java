@@ -0,0 +1,501 @@
+/*
+ * TCSS 305 - Project Tetris
+ */
+
+package model;
+
+/**
+ * Immutable storage for the frozen blocks of a Tetris board.
+ *
+ * Every change returns a new board that shares the unchanged rows with the
+ * board it was made from. Each row is an immutable object holding its
+ * occupied bits, in the layout of BitBoard, and the Block type of every cell.
+ * Placing a piece creates new rows only for the rows the piece touches.
+ * Clearing rows creates none; the rows above the lowest cleared row move
+ * down as they are. What is copied per change is the array of row
+ * references and the column heights, a few words per row and column. That
+ * makes branching cheap for searches that try thousands of variants of a
+ * board, and a board can be handed between threads without copying.
+ *
+ * Row 0 is the bottom row of the board.
+ *
+ * @author TCSS 305 Instructors
+ * @version Autumn 2016
+ */
+public final class PersistentBoard {
+
+    /**
+     * The Block types indexed by ordinal, cached to avoid copying values().
+     */
+    private static final Block[] BLOCKS = Block.values();
+
+    /**
+     * Width of the board.
+     */
+    private final int myWidth;
+
+    /**
+     * The mask of a row with every column occupied.
+     */
+    private final long myFullRow;
+
+    /**
+     * The rows, bottom first. Rows are shared between boards.
+     */
+    private final Row[] myRows;
+
+    /**
+     * The row every empty row refers to.
+     */
+    private final Row myEmptyRow;
+
+    /**
+     * The height of each column: one more than the row of its highest block,
+     * or 0 if the column is empty.
+     */
+    private final int[] myHeights;
+
+    /**
+     * The Zobrist hash of the occupied cells, equal to the hash of a BitBoard
+     * with the same cells.
+     */
+    private final long myHash;
+
+    /**
+     * Constructs an empty board.
+     *
+     * @param theWidth Width of the board.
+     * @param theHeight Height of the board.
+     * @throws IllegalArgumentException if the width is not between 1 and
+     *         BitBoard.MAX_WIDTH or the height is not between 1 and BitBoard.MAX_HEIGHT.
+     */
+    public PersistentBoard(final int theWidth, final int theHeight) {
+        if (theWidth < 1 || theWidth > BitBoard.MAX_WIDTH) {
+            throw new IllegalArgumentException("Board width must be between 1 and "
+                                               + BitBoard.MAX_WIDTH + ": " + theWidth);
+        }
+        if (theHeight < 1 || theHeight > BitBoard.MAX_HEIGHT) {
+            throw new IllegalArgumentException("Board height must be between 1 and "
+                                               + BitBoard.MAX_HEIGHT + ": " + theHeight);
+        }
+        myWidth = theWidth;
+        myFullRow = -1L >>> (BitBoard.MAX_WIDTH - theWidth);
+        myEmptyRow = new Row(0L, new byte[theWidth]);
+        myRows = new Row[theHeight];
+        for (int y = 0; y < theHeight; y++) {
+            myRows[y] = myEmptyRow;
+        }
+        myHeights = new int[theWidth];
+        myHash = 0;
+    }
+
+    /**
+     * Constructs a board with the cells of a bitboard.
+     *
+     * @param theBlocks the bitboard to copy.
+     */
+    public PersistentBoard(final BitBoard theBlocks) {
+        myWidth = theBlocks.getWidth();
+        myFullRow = -1L >>> (BitBoard.MAX_WIDTH - myWidth);
+        myEmptyRow = new Row(0L, new byte[myWidth]);
+        myRows = new Row[theBlocks.getHeight()];
+        for (int y = 0; y < myRows.length; y++) {
+            myRows[y] = copyRow(theBlocks, y);
+        }
+        myHeights = new int[myWidth];
+        for (int x = 0; x < myWidth; x++) {
+            myHeights[x] = theBlocks.getColumnHeight(x);
+        }
+        myHash = theBlocks.getHash();
+    }
+
+    /**
+     * Constructs a board from its parts, which become owned by the board.
+     *
+     * @param theOther a board of the same size, for the shared constants.
+     * @param theRows the rows.
+     * @param theHeights the column heights.
+     * @param theHash the Zobrist hash.
+     */
+    private PersistentBoard(final PersistentBoard theOther, final Row[] theRows,
+                            final int[] theHeights, final long theHash) {
+        myWidth = theOther.myWidth;
+        myFullRow = theOther.myFullRow;
+        myEmptyRow = theOther.myEmptyRow;
+        myRows = theRows;
+        myHeights = theHeights;
+        myHash = theHash;
+    }
+
+    // Queries
+
+    /**
+     * Get the width of the board.
+     *
+     * @return Width of the board.
+     */
+    public int getWidth() {
+        return myWidth;
+    }
+
+    /**
+     * Get the height of the board.
+     *
+     * @return Height of the board.
+     */
+    public int getHeight() {
+        return myRows.length;
+    }
+
+    /**
+     * Returns the occupied bits of a row.
+     *
+     * @param theY the row index.
+     * @return the row mask, bit x set when column x is occupied.
+     */
+    public long getRow(final int theY) {
+        return myRows[theY].myBits;
+    }
+
+    /**
+     * Determines if a cell inside the board is occupied.
+     *
+     * @param theX the column.
+     * @param theY the row.
+     * @return true if the cell holds a frozen block.
+     */
+    public boolean isOccupied(final int theX, final int theY) {
+        return (myRows[theY].myBits & (1L << theX)) != 0;
+    }
+
+    /**
+     * Returns the block stored in a cell inside the board.
+     *
+     * @param theX the column.
+     * @param theY the row.
+     * @return the Block at the cell or null if the cell is empty.
+     */
+    public Block getBlock(final int theX, final int theY) {
+        Block result = null;
+        if (isOccupied(theX, theY)) {
+            result = BLOCKS[myRows[theY].myColors[theX]];
+        }
+        return result;
+    }
+
+    /**
+     * Returns the height of a column.
+     *
+     * @param theX the column.
+     * @return one more than the row of the highest block in the column, or 0 if empty.
+     */
+    public int getColumnHeight(final int theX) {
+        return myHeights[theX];
+    }
+
+    /**
+     * Returns the Zobrist hash of the occupied cells; the same as the hash of
+     * a BitBoard holding the same cells.
+     *
+     * @return the hash; 0 for an empty board.
+     */
+    public long getHash() {
+        return myHash;
+    }
+
+    /**
+     * Determines if a piece fits on the board. Blocks above the top of the board
+     * are legal, blocks outside of the walls or below the floor are not.
+     *
+     * @param theState the packed piece state to test.
+     * @return true if the piece is inside the walls and overlaps no frozen block.
+     */
+    public boolean fits(final int theState) {
+        final TetrisPiece piece = PieceState.getPiece(theState);
+        final Rotation rotation = PieceState.getRotation(theState);
+        final int x = PieceState.getX(theState);
+        final int y = PieceState.getY(theState);
+        final int left = x + piece.getMinX(rotation);
+        boolean result = left >= 0 && x + piece.getMaxX(rotation) < myWidth
+                         && y + piece.getMinY(rotation) >= 0;
+        final int top = Math.min(piece.getMaxY(rotation), myRows.length - 1 - y);
+        for (int row = piece.getMinY(rotation); result && row <= top; row++) {
+            result = (myRows[y + row].myBits & piece.getRowMask(rotation, row) << left) == 0;
+        }
+        return result;
+    }
+
+    /**
+     * Returns a mutable copy of this board.
+     *
+     * @return a bitboard holding the same cells.
+     */
+    public BitBoard toBitBoard() {
+        final BitBoard result = new BitBoard(myWidth, myRows.length);
+        result.copyFrom(this);
+        return result;
+    }
+
+    // Changes
+
+    /**
+     * Returns this board with the blocks of a piece stored. Blocks outside of
+     * the board are dropped. Only the rows the piece touches are new.
+     *
+     * @param theState the packed piece state to store.
+     * @return the new board.
+     */
+    public PersistentBoard place(final int theState) {
+        final byte color = (byte) PieceState.getPiece(theState).getBlock().ordinal();
+        final Row[] rows = myRows.clone();
+        final int[] heights = myHeights.clone();
+        long hash = myHash;
+        for (int i = 0; i < PieceState.BLOCKS; i++) {
+            final int x = PieceState.getCellX(theState, i);
+            final int y = PieceState.getCellY(theState, i);
+            if (x >= 0 && x < myWidth && y >= 0 && y < rows.length) {
+                if ((rows[y].myBits & (1L << x)) == 0) {
+                    hash ^= Zobrist.cell(x, y);
+                }
+                rows[y] = rows[y].with(x, color);
+                heights[x] = Math.max(heights[x], y + 1);
+            }
+        }
+        return new PersistentBoard(this, rows, heights, hash);
+    }
+
+    /**
+     * Returns this board with a range of rows copied from a bitboard of the
+     * same size that differs from it only in those rows. The other rows, and
+     * the rows empty on both boards, are shared.
+     *
+     * @param theBlocks the bitboard to copy from.
+     * @param theLow the lowest row to copy.
+     * @param theHigh the highest row to copy.
+     * @return the new board.
+     */
+    PersistentBoard withRows(final BitBoard theBlocks, final int theLow, final int theHigh) {
+        final Row[] rows = myRows.clone();
+        final int[] heights = new int[myWidth];
+        int top = 0;
+        for (int x = 0; x < myWidth; x++) {
+            heights[x] = theBlocks.getColumnHeight(x);
+            top = Math.max(top, Math.max(myHeights[x], heights[x]));
+        }
+        for (int y = Math.max(theLow, 0); y <= Math.min(theHigh, top - 1); y++) {
+            rows[y] = copyRow(theBlocks, y);
+        }
+        return new PersistentBoard(this, rows, heights, theBlocks.getHash());
+    }
+
+    /**
+     * Returns this board with one cell changed.
+     *
+     * @param theX the column.
+     * @param theY the row.
+     * @param theBlock the Block to store, or null to empty the cell.
+     * @return the new board.
+     */
+    public PersistentBoard setBlock(final int theX, final int theY, final Block theBlock) {
+        final boolean occupied = theBlock != null && theBlock != Block.EMPTY;
+        final Row[] rows = myRows.clone();
+        final int[] heights = myHeights.clone();
+        long hash = myHash;
+        if (isOccupied(theX, theY) != occupied) {
+            hash ^= Zobrist.cell(theX, theY);
+        }
+        if (occupied) {
+            rows[theY] = rows[theY].with(theX, (byte) theBlock.ordinal());
+            heights[theX] = Math.max(heights[theX], theY + 1);
+        } else {
+            rows[theY] = rows[theY].without(theX, myEmptyRow);
+            if (heights[theX] == theY + 1) {
+                heights[theX] = columnTop(rows, theX, theY);
+            }
+        }
+        return new PersistentBoard(this, rows, heights, hash);
+    }
+
+    /**
+     * Returns this board with every complete row removed.
+     *
+     * @return the new board, or this board if no row is complete.
+     */
+    public PersistentBoard clearFullRows() {
+        return clearFullRows(0, myRows.length - 1);
+    }
+
+    /**
+     * Returns this board with the complete rows within a range removed. The
+     * rows below the lowest removed row keep their places; the rows above it
+     * move down unchanged.
+     *
+     * @param theLow the lowest row to check; rows below the board are ignored.
+     * @param theHigh the highest row to check; rows above the board are ignored.
+     * @return the new board, or this board if no row in the range is complete.
+     */
+    public PersistentBoard clearFullRows(final int theLow, final int theHigh) {
+        final int low = Math.max(theLow, 0);
+        final int high = Math.min(theHigh, myRows.length - 1);
+        int first = -1;
+        int count = 0;
+        for (int y = low; y <= high; y++) {
+            if (myRows[y].myBits == myFullRow) {
+                if (first < 0) {
+                    first = y;
+                }
+                count++;
+            }
+        }
+        PersistentBoard result = this;
+        if (count > 0) {
+            // Rows at or above the tallest column are already empty.
+            int top = 0;
+            for (int x = 0; x < myWidth; x++) {
+                top = Math.max(top, myHeights[x]);
+            }
+            final Row[] rows = myRows.clone();
+            long hash = myHash;
+            int target = first;
+            for (int y = first; y < top; y++) {
+                if (y > high || myRows[y].myBits != myFullRow) {
+                    rows[target++] = myRows[y];
+                }
+            }
+            while (target < top) {
+                rows[target++] = myEmptyRow;
+            }
+            for (int y = first; y < top; y++) {
+                hash ^= Zobrist.row(y, myRows[y].myBits ^ rows[y].myBits);
+            }
+            final int[] heights = new int[myWidth];
+            for (int x = 0; x < myWidth; x++) {
+                // Every cleared row held a block of this column below its old top.
+                heights[x] = columnTop(rows, x, myHeights[x] - count);
+            }
+            result = new PersistentBoard(this, rows, heights, hash);
+        }
+        return result;
+    }
+
+    /**
+     * Counts the complete rows.
+     *
+     * @return the number of rows with every column occupied.
+     */
+    public int countFullRows() {
+        int result = 0;
+        for (final Row row : myRows) {
+            if (row.myBits == myFullRow) {
+                result++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Copies the Block ordinals of a row.
+     *
+     * @param theY the row index.
+     * @param theTarget the array to copy to.
+     * @param theOffset the index of the first column in the array.
+     */
+    void copyColors(final int theY, final byte[] theTarget, final int theOffset) {
+        System.arraycopy(myRows[theY].myColors, 0, theTarget, theOffset, myWidth);
+    }
+
+    /**
+     * Copies a row of a bitboard of the same width.
+     *
+     * @param theBlocks the bitboard to copy from.
+     * @param theY the row index.
+     * @return the new row, or the shared empty row.
+     */
+    private Row copyRow(final BitBoard theBlocks, final int theY) {
+        final long bits = theBlocks.getRow(theY);
+        Row result = myEmptyRow;
+        if (bits != 0) {
+            final byte[] colors = new byte[myWidth];
+            for (int x = 0; x < myWidth; x++) {
+                if ((bits & 1L << x) != 0) {
+                    colors[x] = (byte) theBlocks.getBlock(x, theY).ordinal();
+                }
+            }
+            result = new Row(bits, colors);
+        }
+        return result;
+    }
+
+    /**
+     * Finds the height of a column by scanning down from a row.
+     *
+     * @param theRows the rows to scan.
+     * @param theX the column.
+     * @param theLimit the scan starts below this row; no block of the column is above it.
+     * @return one more than the row of the highest block at or below the limit minus one.
+     */
+    private static int columnTop(final Row[] theRows, final int theX, final int theLimit) {
+        final long bit = 1L << theX;
+        int y = theLimit - 1;
+        while (y >= 0 && (theRows[y].myBits & bit) == 0) {
+            y--;
+        }
+        return y + 1;
+    }
+
+    /**
+     * An immutable row: the occupied bits and the Block ordinal of every cell.
+     */
+    private static final class Row {
+
+        /** The occupied bits, bit x set when column x is occupied. */
+        private final long myBits;
+
+        /** The Block ordinal of every cell; never changed once shared. */
+        private final byte[] myColors;
+
+        /**
+         * Constructs a Row.
+         *
+         * @param theBits the occupied bits.
+         * @param theColors the Block ordinal of every cell; owned by the row.
+         */
+        Row(final long theBits, final byte[] theColors) {
+            myBits = theBits;
+            myColors = theColors;
+        }
+
+        /**
+         * Returns this row with a cell occupied.
+         *
+         * @param theX the column.
+         * @param theColor the Block ordinal of the cell.
+         * @return the new row.
+         */
+        Row with(final int theX, final byte theColor) {
+            final byte[] colors = myColors.clone();
+            colors[theX] = theColor;
+            return new Row(myBits | 1L << theX, colors);
+        }
+
+        /**
+         * Returns this row with a cell emptied.
+         *
+         * @param theX the column.
+         * @param theEmpty the shared empty row, returned if no cell is left.
+         * @return the new row.
+         */
+        Row without(final int theX, final Row theEmpty) {
+            Row result = this;
+            final long bits = myBits & ~(1L << theX);
+            if (bits == 0) {
+                result = theEmpty;
+            } else if (bits != myBits) {
+                final byte[] colors = myColors.clone();
+                colors[theX] = 0;
+                result = new Row(bits, colors);
+            }
+            return result;
+        }
+    }
+}
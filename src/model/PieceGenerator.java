@@ -0,0 +1,302 @@
+/*
+ * TCSS 305 - Project Tetris
+ */
+
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Deals the sequence of TetrisPieces of a game.
+ *
+ * A generator draws from its own seeded SplitMixRandom, so two generators
+ * of the same kind created with the same seed deal the same pieces, and the
+ * state of a generator is fully described by its seed and the number of
+ * pieces it has dealt. Skipping that many pieces takes time proportional to
+ * their number; getState() instead captures the state itself, which
+ * newGenerator(GeneratorState) restores in constant time. Upcoming pieces can
+ * be inspected without dealing them;
+ * they are generated into a lookahead buffer and dealt from there later.
+ * A generator is not thread safe, so parallel games each use their own
+ * generator, created with newGenerator(long) or split().
+ *
+ * @author TCSS 305 Instructors
+ * @version Autumn 2016
+ */
+public abstract class PieceGenerator {
+
+    /**
+     * The initial capacity of the lookahead buffer.
+     */
+    private static final int INITIAL_LOOKAHEAD = 8;
+
+    /**
+     * Mixes the seed of a generator into the seed of the generators it splits off.
+     */
+    private static final long SPLIT_SALT = 0x9E3779B97F4A7C15L;
+
+    /**
+     * The seed of this generator.
+     */
+    private final long mySeed;
+
+    /**
+     * The random number generator the pieces are drawn from.
+     */
+    private SplitMixRandom myRandom;
+
+    /**
+     * The random number generator seeding split generators, kept apart from
+     * myRandom so that splitting does not change the dealt pieces.
+     */
+    private SplittableRandom mySplits;
+
+    /**
+     * The number of pieces dealt.
+     */
+    private long myDealt;
+
+    /**
+     * Generated pieces that have not been dealt yet, in a circular buffer.
+     */
+    private TetrisPiece[] myLookahead = new TetrisPiece[INITIAL_LOOKAHEAD];
+
+    /**
+     * The index of the first buffered piece.
+     */
+    private int myHead;
+
+    /**
+     * The number of buffered pieces.
+     */
+    private int mySize;
+
+    /**
+     * Constructs a generator drawing from a seeded random number generator.
+     *
+     * @param theSeed the seed.
+     */
+    protected PieceGenerator(final long theSeed) {
+        mySeed = theSeed;
+        myRandom = new SplitMixRandom(theSeed);
+    }
+
+    /**
+     * Returns the seed of this generator.
+     *
+     * @return the seed.
+     */
+    public final long getSeed() {
+        return mySeed;
+    }
+
+    /**
+     * Returns the number of pieces dealt by this generator. A new generator of
+     * the same kind and seed that skips this many pieces deals the same pieces
+     * as this one from now on.
+     *
+     * @return the number of pieces dealt.
+     */
+    public final long getDealt() {
+        return myDealt;
+    }
+
+    /**
+     * Deals the next piece.
+     *
+     * @return the next piece.
+     */
+    public final TetrisPiece next() {
+        myDealt++;
+        final TetrisPiece result;
+        if (mySize == 0) {
+            result = generate(myRandom);
+        } else {
+            result = myLookahead[myHead];
+            myLookahead[myHead] = null;
+            myHead = (myHead + 1) & (myLookahead.length - 1);
+            mySize--;
+        }
+        return result;
+    }
+
+    /**
+     * Deals pieces and discards them.
+     *
+     * @param theCount the number of pieces to skip.
+     */
+    public final void skip(final long theCount) {
+        for (long i = 0; i < theCount; i++) {
+            next();
+        }
+    }
+
+    /**
+     * Returns the last dealt piece to the generator, so that it is dealt
+     * again next. This undoes a call to next().
+     *
+     * @param thePiece the piece the last call to next() returned.
+     * @throws IllegalStateException if no piece has been dealt.
+     */
+    public final void undeal(final TetrisPiece thePiece) {
+        if (myDealt == 0) {
+            throw new IllegalStateException("No piece has been dealt");
+        }
+        if (mySize == myLookahead.length) {
+            grow();
+        }
+        myHead = (myHead - 1) & (myLookahead.length - 1);
+        myLookahead[myHead] = thePiece;
+        mySize++;
+        myDealt--;
+    }
+
+    /**
+     * Returns an upcoming piece without dealing it.
+     *
+     * @param theIndex the number of pieces dealt before it; 0 for the next piece.
+     * @return the upcoming piece.
+     * @throws IllegalArgumentException if the index is negative.
+     */
+    public final TetrisPiece peek(final int theIndex) {
+        if (theIndex < 0) {
+            throw new IllegalArgumentException("Lookahead index must not be negative: "
+                                               + theIndex);
+        }
+        while (mySize <= theIndex) {
+            if (mySize == myLookahead.length) {
+                grow();
+            }
+            myLookahead[(myHead + mySize) & (myLookahead.length - 1)] = generate(myRandom);
+            mySize++;
+        }
+        return myLookahead[(myHead + theIndex) & (myLookahead.length - 1)];
+    }
+
+    /**
+     * Returns the upcoming pieces without dealing them.
+     *
+     * @param theCount the number of pieces.
+     * @return the next theCount pieces in the order they will be dealt.
+     */
+    public final List<TetrisPiece> lookahead(final int theCount) {
+        final List<TetrisPiece> result = new ArrayList<TetrisPiece>(theCount);
+        for (int i = 0; i < theCount; i++) {
+            result.add(peek(i));
+        }
+        return result;
+    }
+
+    /**
+     * Creates an independent generator of the same kind, seeded from this one.
+     * Splitting does not change the pieces this generator deals.
+     *
+     * @return the new generator.
+     */
+    public final PieceGenerator split() {
+        if (mySplits == null) {
+            mySplits = new SplittableRandom(mySeed ^ SPLIT_SALT);
+        }
+        return newGenerator(mySplits.nextLong());
+    }
+
+    /**
+     * Returns a snapshot of this generator.
+     *
+     * @return the state of this generator.
+     */
+    public final GeneratorState getState() {
+        final TetrisPiece[] lookahead = new TetrisPiece[mySize];
+        for (int i = 0; i < mySize; i++) {
+            lookahead[i] = myLookahead[(myHead + i) & (myLookahead.length - 1)];
+        }
+        return new GeneratorState(mySeed, myRandom.getState(), myDealt, lookahead,
+                                  getMemory(), getMemoryPosition());
+    }
+
+    /**
+     * Creates a generator of the same kind continuing from a snapshot, in
+     * time independent of the number of pieces dealt. The new generator splits
+     * off the same generators as a new one with the seed of the snapshot.
+     *
+     * @param theState a snapshot of a generator of the same kind.
+     * @return the new generator.
+     * @throws IllegalArgumentException if the snapshot is of another kind of generator.
+     */
+    public final PieceGenerator newGenerator(final GeneratorState theState) {
+        final PieceGenerator result = newGenerator(theState.getSeed());
+        result.setMemory(theState.getMemory(), theState.getPosition());
+        result.myRandom = new SplitMixRandom(theState.getRandomState());
+        result.myDealt = theState.getDealt();
+        for (final TetrisPiece piece : theState.getLookahead()) {
+            if (result.mySize == result.myLookahead.length) {
+                result.grow();
+            }
+            result.myLookahead[result.mySize] = piece;
+            result.mySize++;
+        }
+        return result;
+    }
+
+    /**
+     * Creates a generator of the same kind with another seed.
+     *
+     * @param theSeed the seed of the new generator.
+     * @return the new generator.
+     */
+    public abstract PieceGenerator newGenerator(long theSeed);
+
+    /**
+     * Generates the piece after the last generated one.
+     *
+     * @param theRandom the random number generator to draw from.
+     * @return the generated piece.
+     */
+    protected abstract TetrisPiece generate(SplitMixRandom theRandom);
+
+    /**
+     * Returns the pieces this kind of generator remembers between pieces,
+     * such as the current bag. A generator without memory returns none.
+     *
+     * @return a copy of the remembered pieces.
+     */
+    protected TetrisPiece[] getMemory() {
+        return new TetrisPiece[0];
+    }
+
+    /**
+     * Returns the position of this generator in the remembered pieces.
+     *
+     * @return the position; 0 for a generator without memory.
+     */
+    protected int getMemoryPosition() {
+        return 0;
+    }
+
+    /**
+     * Replaces the remembered pieces with those of a snapshot.
+     *
+     * @param thePieces the remembered pieces.
+     * @param thePosition the position in the remembered pieces.
+     * @throws IllegalArgumentException if the pieces do not fit this kind of generator.
+     */
+    protected void setMemory(final TetrisPiece[] thePieces, final int thePosition) {
+        if (thePieces.length != 0 || thePosition != 0) {
+            throw new IllegalArgumentException("Generator remembers no pieces");
+        }
+    }
+
+    /**
+     * Doubles the capacity of the lookahead buffer, keeping its order.
+     */
+    private void grow() {
+        final TetrisPiece[] grown = Arrays.copyOf(myLookahead, myLookahead.length * 2);
+        // Move the wrapped part of the buffer after the end of the old array.
+        System.arraycopy(myLookahead, 0, grown, myLookahead.length, myHead);
+        Arrays.fill(grown, 0, myHead, null);
+        myLookahead = grown;
+    }
+}
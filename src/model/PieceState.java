@@ -0,0 +1,193 @@
+/*
+ * TCSS 305 - Project Tetris
+ */
+
+package model;
+
+/**
+ * Packs the type, rotation and board position of a TetrisPiece into a single int.
+ *
+ * A packed piece state lets the Board test and move pieces without creating
+ * Point or MovableTetrisPiece objects. Board positions are stored with a bias
+ * so that positions slightly outside of the board remain representable.
+ *
+ * @author TCSS 305 Instructors
+ * @version Autumn 2016
+ */
+public final class PieceState {
+
+    /**
+     * The value representing the absence of a piece.
+     */
+    public static final int NONE = -1;
+
+    /**
+     * The number of blocks in every TetrisPiece.
+     */
+    public static final int BLOCKS = 4;
+
+    /**
+     * The largest x or y coordinate a packed state can hold.
+     */
+    public static final int MAX_COORDINATE = 511;
+
+    /**
+     * The number of bits used to store each coordinate, from -BIAS to MAX_COORDINATE.
+     */
+    private static final int COORDINATE_BITS = 10;
+
+    /**
+     * The mask of a single coordinate.
+     */
+    private static final int COORDINATE_MASK = (1 << COORDINATE_BITS) - 1;
+
+    /**
+     * The bias added to coordinates so that negative positions can be stored.
+     */
+    private static final int BIAS = MAX_COORDINATE + 1;
+
+    /**
+     * The bit offset of the x coordinate.
+     */
+    private static final int X_SHIFT = COORDINATE_BITS;
+
+    /**
+     * The bit offset of the rotation ordinal.
+     */
+    private static final int ROTATION_SHIFT = 2 * COORDINATE_BITS;
+
+    /**
+     * The bit offset of the TetrisPiece ordinal.
+     */
+    private static final int PIECE_SHIFT = ROTATION_SHIFT + 2;
+
+    /**
+     * The mask of the rotation ordinal.
+     */
+    private static final int ROTATION_MASK = 3;
+
+    /**
+     * The mask of the TetrisPiece ordinal.
+     */
+    private static final int PIECE_MASK = 7;
+
+    /**
+     * The TetrisPieces indexed by ordinal.
+     */
+    private static final TetrisPiece[] PIECES = TetrisPiece.values();
+
+    /**
+     * The Rotations indexed by ordinal.
+     */
+    private static final Rotation[] ROTATIONS = Rotation.values();
+
+    /**
+     * Private constructor, to prevent instantiation of this class.
+     */
+    private PieceState() {
+        throw new IllegalStateException();
+    }
+
+    /**
+     * Packs a piece state.
+     *
+     * @param thePiece the type of TetrisPiece.
+     * @param theRotation the rotation of the piece.
+     * @param theX the x coordinate of the piece position.
+     * @param theY the y coordinate of the piece position.
+     * @return the packed piece state.
+     */
+    public static int pack(final TetrisPiece thePiece, final Rotation theRotation,
+                           final int theX, final int theY) {
+        return thePiece.ordinal() << PIECE_SHIFT
+               | theRotation.ordinal() << ROTATION_SHIFT
+               | (theX + BIAS) << X_SHIFT
+               | theY + BIAS;
+    }
+
+    /**
+     * Returns the TetrisPiece type of a packed state.
+     *
+     * @param theState the packed piece state.
+     * @return the TetrisPiece type.
+     */
+    public static TetrisPiece getPiece(final int theState) {
+        return PIECES[theState >>> PIECE_SHIFT & PIECE_MASK];
+    }
+
+    /**
+     * Returns the rotation of a packed state.
+     *
+     * @param theState the packed piece state.
+     * @return the rotation.
+     */
+    public static Rotation getRotation(final int theState) {
+        return ROTATIONS[theState >>> ROTATION_SHIFT & ROTATION_MASK];
+    }
+
+    /**
+     * Returns the x coordinate of the position of a packed state.
+     *
+     * @param theState the packed piece state.
+     * @return the x coordinate.
+     */
+    public static int getX(final int theState) {
+        return (theState >>> X_SHIFT & COORDINATE_MASK) - BIAS;
+    }
+
+    /**
+     * Returns the y coordinate of the position of a packed state.
+     *
+     * @param theState the packed piece state.
+     * @return the y coordinate.
+     */
+    public static int getY(final int theState) {
+        return (theState & COORDINATE_MASK) - BIAS;
+    }
+
+    /**
+     * Returns a packed state translated by x and y.
+     *
+     * @param theState the packed piece state.
+     * @param theX the horizontal offset.
+     * @param theY the vertical offset.
+     * @return the translated piece state.
+     */
+    public static int move(final int theState, final int theX, final int theY) {
+        return theState + (theX << X_SHIFT) + theY;
+    }
+
+    /**
+     * Returns a packed state with a different rotation.
+     *
+     * @param theState the packed piece state.
+     * @param theRotation the new rotation.
+     * @return the rotated piece state.
+     */
+    public static int setRotation(final int theState, final Rotation theRotation) {
+        return theState & ~(ROTATION_MASK << ROTATION_SHIFT)
+               | theRotation.ordinal() << ROTATION_SHIFT;
+    }
+
+    /**
+     * Returns the board x coordinate of one block of a packed state.
+     *
+     * @param theState the packed piece state.
+     * @param theIndex the index of the block.
+     * @return the board x coordinate of the block.
+     */
+    public static int getCellX(final int theState, final int theIndex) {
+        return getX(theState) + getPiece(theState).getCellX(getRotation(theState), theIndex);
+    }
+
+    /**
+     * Returns the board y coordinate of one block of a packed state.
+     *
+     * @param theState the packed piece state.
+     * @param theIndex the index of the block.
+     * @return the board y coordinate of the block.
+     */
+    public static int getCellY(final int theState, final int theIndex) {
+        return getY(theState) + getPiece(theState).getCellY(getRotation(theState), theIndex);
+    }
+}
@@ -4,8 +4,6 @@
 
 package model;
 
-import java.util.Random;
-
 /**
  * Enumeration of Rotation types.
  * 
@@ -34,11 +32,6 @@ public enum Rotation {
      */
     THREEQUARTER;
 
-    /**
-     * A Random object used for generating random rotations.
-     */
-    private static final Random RANDOM = new Random();
-
     /**
      * Create a new Rotation from this one rotated clockwise.
      * 
@@ -49,12 +42,21 @@ public enum Rotation {
     }
 
     /**
-     * Creates a new Rotation with a random angle.
+     * Create a new Rotation from this one rotated counterclockwise.
+     * 
+     * @return new Rotation object that is rotated 90 degrees counterclockwise.
+     */
+    public Rotation counterclockwise() {
+        return values()[(this.ordinal() + values().length - 1) % values().length];
+    }
+
+    /**
+     * Create a new Rotation from this one rotated a half turn.
      * 
-     * @return new random Rotation.
+     * @return new Rotation object that is rotated 180 degrees.
      */
-    public static Rotation random() {
-        return values()[RANDOM.nextInt(values().length)];
+    public Rotation halfTurn() {
+        return values()[(this.ordinal() + 2) % values().length];
     }
 
 }
@@ -0,0 +1,96 @@
+/*
+ * TCSS 305 - Project Tetris
+ */
+
+package model;
+
+/**
+ * The SplitMix64 random number generator of java.util.SplittableRandom,
+ * with its state exposed so that it can be saved and restored.
+ *
+ * A SplitMixRandom created with a seed draws the same numbers as a
+ * SplittableRandom created with the same seed. Its whole state is one long
+ * that advances by a constant with every draw.
+ *
+ * @author TCSS 305 Instructors
+ * @version Autumn 2016
+ */
+public final class SplitMixRandom {
+
+    /** The increment of the state, the gamma of SplittableRandom(long). */
+    private static final long GAMMA = 0x9E3779B97F4A7C15L;
+
+    /** The first multiplier of the 32 bit mixing function. */
+    private static final long MIX_1 = 0x62A9D9ED799705F5L;
+
+    /** The second multiplier of the 32 bit mixing function. */
+    private static final long MIX_2 = 0xCB24D0A5C88C35B3L;
+
+    /** The first shift of the 32 bit mixing function. */
+    private static final int SHIFT_1 = 33;
+
+    /** The second shift of the 32 bit mixing function. */
+    private static final int SHIFT_2 = 28;
+
+    /** The state. */
+    private long myState;
+
+    /**
+     * Constructs a generator with a seed, or a saved state.
+     *
+     * @param theState the seed or the state returned by getState().
+     */
+    public SplitMixRandom(final long theState) {
+        myState = theState;
+    }
+
+    /**
+     * Returns the state, which continues the same numbers when passed to
+     * the constructor.
+     *
+     * @return the state.
+     */
+    public long getState() {
+        return myState;
+    }
+
+    /**
+     * Returns a random int between 0 (inclusive) and a bound (exclusive),
+     * as SplittableRandom.nextInt(int) does.
+     *
+     * @param theBound the bound.
+     * @return the random int.
+     * @throws IllegalArgumentException if the bound is not positive.
+     */
+    public int nextInt(final int theBound) {
+        if (theBound <= 0) {
+            throw new IllegalArgumentException("Bound must be positive: " + theBound);
+        }
+        int result = nextInt();
+        final int mask = theBound - 1;
+        if ((theBound & mask) == 0) {
+            result &= mask;
+        } else {
+            // Rejects the top values that would favor the low results.
+            int u = result >>> 1;
+            result = u % theBound;
+            while (u + mask - result < 0) {
+                u = nextInt() >>> 1;
+                result = u % theBound;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns a random int.
+     *
+     * @return the random int.
+     */
+    private int nextInt() {
+        myState += GAMMA;
+        long z = myState;
+        z = (z ^ (z >>> SHIFT_1)) * MIX_1;
+        return (int) (((z ^ (z >>> SHIFT_2)) * MIX_2) >>> Integer.SIZE);
+    }
+}
@@ -4,7 +4,7 @@
 
 package model;
 
-import java.util.Random;
+import java.util.Arrays;
 
 /**
  * Enumeration of the TetrisPiece types.
@@ -49,13 +49,6 @@ public enum TetrisPiece {
       Block.Z,
       new Point(0, 2), new Point(1, 2), new Point(1, 1), new Point(2, 1));
 
-    
-    // Other class constants
-
-    /**
-     * A Random Object.
-     */
-    private static final Random RANDOM = new Random();
 
     
     // instance fields
@@ -79,6 +72,49 @@ public enum TetrisPiece {
      */
     private final Block myBlock;
 
+    /**
+     * The local x coordinate of each block, indexed by rotation ordinal.
+     */
+    private final int[][] myCellX;
+
+    /**
+     * The local y coordinate of each block, indexed by rotation ordinal.
+     */
+    private final int[][] myCellY;
+
+    /**
+     * The smallest local x coordinate, indexed by rotation ordinal.
+     */
+    private final int[] myMinX;
+
+    /**
+     * The largest local x coordinate, indexed by rotation ordinal.
+     */
+    private final int[] myMaxX;
+
+    /**
+     * The smallest local y coordinate, indexed by rotation ordinal.
+     */
+    private final int[] myMinY;
+
+    /**
+     * The largest local y coordinate, indexed by rotation ordinal.
+     */
+    private final int[] myMaxY;
+
+    /**
+     * The occupied columns of each local row, shifted so that the leftmost
+     * column of the rotation is bit 0. Indexed by rotation ordinal and then
+     * by local row minus the smallest local y coordinate.
+     */
+    private final long[][] myRowMasks;
+
+    /**
+     * The lowest local y coordinate of each local column, indexed by rotation
+     * ordinal and then by local column minus the smallest local x coordinate.
+     */
+    private final int[][] myBottoms;
+
     /**
      * The TetrisPiece constructor.
      * 
@@ -93,6 +129,69 @@ public enum TetrisPiece {
         myHeight = theHeight;
         myBlock = theBlock;
         myPoints = thePoints.clone();
+
+        final int rotations = Rotation.values().length;
+        myCellX = new int[rotations][myPoints.length];
+        myCellY = new int[rotations][myPoints.length];
+        myMinX = new int[rotations];
+        myMaxX = new int[rotations];
+        myMinY = new int[rotations];
+        myMaxY = new int[rotations];
+        myRowMasks = new long[rotations][];
+        myBottoms = new int[rotations][];
+        for (final Rotation rotation : Rotation.values()) {
+            buildRotation(rotation);
+        }
+    }
+
+    /**
+     * Precomputes the block offsets and row masks of one rotation.
+     * The O TetrisPiece looks the same in every rotation.
+     * 
+     * @param theRotation the rotation to compute.
+     */
+    private void buildRotation(final Rotation theRotation) {
+        final int r = theRotation.ordinal();
+        myMinX[r] = Integer.MAX_VALUE;
+        myMaxX[r] = Integer.MIN_VALUE;
+        myMinY[r] = Integer.MAX_VALUE;
+        myMaxY[r] = Integer.MIN_VALUE;
+        for (int i = 0; i < myPoints.length; i++) {
+            int x = myPoints[i].getX();
+            int y = myPoints[i].getY();
+            if (myBlock != Block.O) {
+                final int oldX = x;
+                switch (theRotation) {
+                    case QUARTER:
+                        x = y;
+                        y = myWidth - oldX - 1;
+                        break;
+                    case HALF:
+                        x = myWidth - oldX - 1;
+                        y = myWidth - y - 1;
+                        break;
+                    case THREEQUARTER:
+                        x = myWidth - y - 1;
+                        y = oldX;
+                        break;
+                    default:
+                }
+            }
+            myCellX[r][i] = x;
+            myCellY[r][i] = y;
+            myMinX[r] = Math.min(myMinX[r], x);
+            myMaxX[r] = Math.max(myMaxX[r], x);
+            myMinY[r] = Math.min(myMinY[r], y);
+            myMaxY[r] = Math.max(myMaxY[r], y);
+        }
+        myRowMasks[r] = new long[myMaxY[r] - myMinY[r] + 1];
+        myBottoms[r] = new int[myMaxX[r] - myMinX[r] + 1];
+        Arrays.fill(myBottoms[r], Integer.MAX_VALUE);
+        for (int i = 0; i < myPoints.length; i++) {
+            final int column = myCellX[r][i] - myMinX[r];
+            myRowMasks[r][myCellY[r][i] - myMinY[r]] |= 1L << column;
+            myBottoms[r][column] = Math.min(myBottoms[r][column], myCellY[r][i]);
+        }
     }
 
     /**
@@ -131,12 +230,103 @@ public enum TetrisPiece {
         return myPoints.clone();
     }
 
+    /**
+     * Returns the local x coordinate of a block in the given rotation.
+     * 
+     * @param theRotation the rotation of the TetrisPiece.
+     * @param theIndex the index of the block.
+     * @return the local x coordinate.
+     */
+    protected int getCellX(final Rotation theRotation, final int theIndex) {
+        return myCellX[theRotation.ordinal()][theIndex];
+    }
+
+    /**
+     * Returns the local y coordinate of a block in the given rotation.
+     * 
+     * @param theRotation the rotation of the TetrisPiece.
+     * @param theIndex the index of the block.
+     * @return the local y coordinate.
+     */
+    protected int getCellY(final Rotation theRotation, final int theIndex) {
+        return myCellY[theRotation.ordinal()][theIndex];
+    }
+
+    /**
+     * Returns the smallest local x coordinate in the given rotation.
+     * 
+     * @param theRotation the rotation of the TetrisPiece.
+     * @return the leftmost local column.
+     */
+    protected int getMinX(final Rotation theRotation) {
+        return myMinX[theRotation.ordinal()];
+    }
+
+    /**
+     * Returns the largest local x coordinate in the given rotation.
+     * 
+     * @param theRotation the rotation of the TetrisPiece.
+     * @return the rightmost local column.
+     */
+    protected int getMaxX(final Rotation theRotation) {
+        return myMaxX[theRotation.ordinal()];
+    }
+
+    /**
+     * Returns the smallest local y coordinate in the given rotation.
+     * 
+     * @param theRotation the rotation of the TetrisPiece.
+     * @return the lowest local row.
+     */
+    protected int getMinY(final Rotation theRotation) {
+        return myMinY[theRotation.ordinal()];
+    }
+
+    /**
+     * Returns the largest local y coordinate in the given rotation.
+     * 
+     * @param theRotation the rotation of the TetrisPiece.
+     * @return the highest local row.
+     */
+    protected int getMaxY(final Rotation theRotation) {
+        return myMaxY[theRotation.ordinal()];
+    }
+
+    /**
+     * Returns the occupied columns of a local row in the given rotation.
+     * Bit 0 of the mask is the leftmost local column of the rotation.
+     * 
+     * @param theRotation the rotation of the TetrisPiece.
+     * @param theRow the local row, from getMinY() to getMaxY().
+     * @return the row mask.
+     */
+    protected long getRowMask(final Rotation theRotation, final int theRow) {
+        final int r = theRotation.ordinal();
+        return myRowMasks[r][theRow - myMinY[r]];
+    }
+
+    /**
+     * Returns the lowest local y coordinate of a local column in the given rotation.
+     * Together these form the bottom profile used to compute hard drops.
+     * 
+     * @param theRotation the rotation of the TetrisPiece.
+     * @param theColumn the local column, from getMinX() to getMaxX().
+     * @return the lowest local row of the column.
+     */
+    protected int getBottom(final Rotation theRotation, final int theColumn) {
+        final int r = theRotation.ordinal();
+        return myBottoms[r][theColumn - myMinX[r]];
+    }
+
     /**
      * Get a random TetrisPiece.
+     * Each game supplies its own generator so that games running on different
+     * threads never contend on a shared seed.
      * 
+     * @param theRandom the random number generator to draw from.
      * @return a random TetrisPiece.
      */
-    protected static TetrisPiece getRandomPiece() {
-        return values()[RANDOM.nextInt(values().length)];
+    protected static TetrisPiece getRandomPiece(final SplitMixRandom theRandom) {
+        return values()[theRandom.nextInt(values().length)];
     }
 }
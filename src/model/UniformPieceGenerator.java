@@ -0,0 +1,44 @@
+/*
+ * TCSS 305 - Project Tetris
+ */
+
+package model;
+
+import java.util.SplittableRandom;
+
+/**
+ * Deals every piece independently with equal probability.
+ *
+ * This is the classic random piece selection of the Board.
+ *
+ * @author TCSS 305 Instructors
+ * @version Autumn 2016
+ */
+public final class UniformPieceGenerator extends PieceGenerator {
+
+    /**
+     * Constructs a generator with an arbitrary seed.
+     */
+    public UniformPieceGenerator() {
+        this(new SplittableRandom().nextLong());
+    }
+
+    /**
+     * Constructs a seeded generator.
+     *
+     * @param theSeed the seed.
+     */
+    public UniformPieceGenerator(final long theSeed) {
+        super(theSeed);
+    }
+
+    @Override
+    public PieceGenerator newGenerator(final long theSeed) {
+        return new UniformPieceGenerator(theSeed);
+    }
+
+    @Override
+    protected TetrisPiece generate(final SplitMixRandom theRandom) {
+        return TetrisPiece.getRandomPiece(theRandom);
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * TCSS 305 - Project Tetris
+ */
+
+package model;
+
+/**
+ * The Super Rotation System wall kicks: the offsets a rotated piece tries,
+ * in order, until it fits.
+ *
+ * The offsets are precomputed in flat arrays, one for the I piece and one
+ * shared by the J, L, S, T and Z pieces. Each array holds MAX_KICKS (x, y)
+ * pairs for every pair of rotations, starting at start(from, to), of which a
+ * rotation tries the first count(from, to), so it reads its offsets without
+ * allocating. The y offsets point up, like the board rows. Quarter turns use
+ * the five standard SRS offsets; the unused sixth pair of their rows is zero.
+ * SRS defines no half turns, so they use all six SRS+ offsets for every
+ * piece. The O piece does not kick.
+ *
+ * @author TCSS 305 Instructors
+ * @version Autumn 2016
+ */
+final class WallKick {
+
+    /** The most offsets tried by a rotation: the offsets of a half turn. */
+    static final int MAX_KICKS = 6;
+
+    /** The number of offsets tried by a quarter turn. */
+    private static final int QUARTER_TURN_KICKS = 5;
+
+    /** The number of rotations. */
+    private static final int ROTATIONS = Rotation.values().length;
+
+    /** The number of array entries of a pair of rotations. */
+    private static final int STRIDE = 2 * MAX_KICKS;
+
+    /** The offsets of the J, L, S, T and Z pieces, by rotation pair. */
+    private static final int[] JLSTZ_KICKS = {
+        // START -> START, QUARTER, HALF, THREEQUARTER
+        0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+        0, 0, -1, 0, -1, 1, 0, -2, -1, -2, 0, 0,
+        0, 0, 0, 1, 1, 1, -1, 1, 1, 0, -1, 0,
+        0, 0, 1, 0, 1, 1, 0, -2, 1, -2, 0, 0,
+        // QUARTER -> START, QUARTER, HALF, THREEQUARTER
+        0, 0, 1, 0, 1, -1, 0, 2, 1, 2, 0, 0,
+        0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+        0, 0, 1, 0, 1, -1, 0, 2, 1, 2, 0, 0,
+        0, 0, 1, 0, 1, 2, 1, 1, 0, 2, 0, 1,
+        // HALF -> START, QUARTER, HALF, THREEQUARTER
+        0, 0, 0, -1, -1, -1, 1, -1, -1, 0, 1, 0,
+        0, 0, -1, 0, -1, 1, 0, -2, -1, -2, 0, 0,
+        0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+        0, 0, 1, 0, 1, 1, 0, -2, 1, -2, 0, 0,
+        // THREEQUARTER -> START, QUARTER, HALF, THREEQUARTER
+        0, 0, -1, 0, -1, -1, 0, 2, -1, 2, 0, 0,
+        0, 0, -1, 0, -1, 2, -1, 1, 0, 2, 0, 1,
+        0, 0, -1, 0, -1, -1, 0, 2, -1, 2, 0, 0,
+        0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+    };
+
+    /** The offsets of the I piece, by rotation pair. */
+    private static final int[] I_KICKS = {
+        // START -> START, QUARTER, HALF, THREEQUARTER
+        0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+        0, 0, -2, 0, 1, 0, -2, -1, 1, 2, 0, 0,
+        0, 0, 0, 1, 1, 1, -1, 1, 1, 0, -1, 0,
+        0, 0, -1, 0, 2, 0, -1, 2, 2, -1, 0, 0,
+        // QUARTER -> START, QUARTER, HALF, THREEQUARTER
+        0, 0, 2, 0, -1, 0, 2, 1, -1, -2, 0, 0,
+        0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+        0, 0, -1, 0, 2, 0, -1, 2, 2, -1, 0, 0,
+        0, 0, 1, 0, 1, 2, 1, 1, 0, 2, 0, 1,
+        // HALF -> START, QUARTER, HALF, THREEQUARTER
+        0, 0, 0, -1, -1, -1, 1, -1, -1, 0, 1, 0,
+        0, 0, 1, 0, -2, 0, 1, -2, -2, 1, 0, 0,
+        0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+        0, 0, 2, 0, -1, 0, 2, 1, -1, -2, 0, 0,
+        // THREEQUARTER -> START, QUARTER, HALF, THREEQUARTER
+        0, 0, 1, 0, -2, 0, 1, -2, -2, 1, 0, 0,
+        0, 0, -1, 0, -1, 2, -1, 1, 0, 2, 0, 1,
+        0, 0, -2, 0, 1, 0, -2, -1, 1, 2, 0, 0,
+        0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+    };
+
+    /** The O piece offsets; it does not kick. */
+    private static final int[] O_KICKS = new int[ROTATIONS * ROTATIONS * STRIDE];
+
+    /**
+     * Private constructor to prevent instantiation.
+     */
+    private WallKick() {
+        throw new IllegalStateException();
+    }
+
+    /**
+     * Returns the offset array of a piece. The array must not be changed.
+     *
+     * @param thePiece the piece.
+     * @return the (x, y) offset pairs of the piece, by rotation pair.
+     */
+    static int[] kicks(final TetrisPiece thePiece) {
+        final int[] result;
+        if (thePiece == TetrisPiece.I) {
+            result = I_KICKS;
+        } else if (thePiece == TetrisPiece.O) {
+            result = O_KICKS;
+        } else {
+            result = JLSTZ_KICKS;
+        }
+        return result;
+    }
+
+    /**
+     * Returns where the offsets of a rotation start in an offset array. The
+     * count(from, to) (x, y) pairs of the rotation follow in the order they
+     * are tried.
+     *
+     * @param theFrom the rotation before turning.
+     * @param theTo the rotation after turning.
+     * @return the index of the x of the first offset.
+     */
+    static int start(final Rotation theFrom, final Rotation theTo) {
+        return (theFrom.ordinal() * ROTATIONS + theTo.ordinal()) * STRIDE;
+    }
+
+    /**
+     * Returns the number of offsets a rotation tries.
+     *
+     * @param theFrom the rotation before turning.
+     * @param theTo the rotation after turning.
+     * @return MAX_KICKS for a half turn, otherwise the number of SRS offsets.
+     */
+    static int count(final Rotation theFrom, final Rotation theTo) {
+        int result = QUARTER_TURN_KICKS;
+        if (theTo == theFrom.halfTurn()) {
+            result = MAX_KICKS;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * TCSS 305 - Project Tetris
+ */
+
+package model;
+
+/**
+ * The keys of the Zobrist hash of a Board.
+ *
+ * The hash of a position is the exclusive or of the keys of its occupied
+ * cells, its current piece and its next piece, so it can be updated by
+ * toggling only the keys of what changed. Each key is derived from the
+ * feature it stands for by the SplitMix64 finalizer instead of being drawn
+ * from a random table, so boards of any height are covered and a position
+ * hashes to the same value in every run and every process.
+ *
+ * @author TCSS 305 Instructors
+ * @version Autumn 2016
+ */
+final class Zobrist {
+
+    /**
+     * Separates the keys of the current pieces from the keys of the cells.
+     */
+    private static final long PIECE_SALT = 0x5DEECE66DL << Integer.SIZE;
+
+    /**
+     * Separates the keys of the next pieces from the other keys.
+     */
+    private static final long NEXT_SALT = 0x2545F4914F6CDD1DL;
+
+    /**
+     * The golden ratio increment of SplitMix64.
+     */
+    private static final long GAMMA = 0x9E3779B97F4A7C15L;
+
+    /**
+     * The first multiplier of the SplitMix64 finalizer.
+     */
+    private static final long MIX_1 = 0xBF58476D1CE4E5B9L;
+
+    /**
+     * The second multiplier of the SplitMix64 finalizer.
+     */
+    private static final long MIX_2 = 0x94D049BB133111EBL;
+
+    /**
+     * The first shift of the SplitMix64 finalizer.
+     */
+    private static final int SHIFT_1 = 30;
+
+    /**
+     * The second shift of the SplitMix64 finalizer.
+     */
+    private static final int SHIFT_2 = 27;
+
+    /**
+     * The third shift of the SplitMix64 finalizer.
+     */
+    private static final int SHIFT_3 = 31;
+
+    /**
+     * The keys of the next pieces, indexed by TetrisPiece ordinal.
+     */
+    private static final long[] NEXT_KEYS = new long[TetrisPiece.values().length];
+
+    static {
+        for (int i = 0; i < NEXT_KEYS.length; i++) {
+            NEXT_KEYS[i] = mix(NEXT_SALT + i);
+        }
+    }
+
+    /**
+     * Private constructor, to prevent instantiation of this class.
+     */
+    private Zobrist() {
+        throw new IllegalStateException();
+    }
+
+    /**
+     * Returns the key of an occupied cell.
+     *
+     * @param theX the column.
+     * @param theY the row.
+     * @return the key.
+     */
+    static long cell(final int theX, final int theY) {
+        return mix((long) theY * BitBoard.MAX_WIDTH + theX);
+    }
+
+    /**
+     * Returns the exclusive or of the keys of the occupied cells of a row.
+     * Passing the exclusive or of two masks of the same row gives the change
+     * of the hash between them.
+     *
+     * @param theY the row.
+     * @param theMask the occupied cells of the row, bit x for column x.
+     * @return the combined key.
+     */
+    static long row(final int theY, final long theMask) {
+        long result = 0;
+        long mask = theMask;
+        while (mask != 0) {
+            result ^= cell(Long.numberOfTrailingZeros(mask), theY);
+            mask &= mask - 1;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the key of a current piece. The packed state already identifies
+     * the type, rotation and position of the piece.
+     *
+     * @param theState the packed piece state, or PieceState.NONE.
+     * @return the key, or 0 for PieceState.NONE.
+     */
+    static long piece(final int theState) {
+        long result = 0;
+        if (theState != PieceState.NONE) {
+            result = mix(PIECE_SALT + theState);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the key of a next piece.
+     *
+     * @param thePiece the next piece, or null.
+     * @return the key, or 0 for null.
+     */
+    static long next(final TetrisPiece thePiece) {
+        long result = 0;
+        if (thePiece != null) {
+            result = NEXT_KEYS[thePiece.ordinal()];
+        }
+        return result;
+    }
+
+    /**
+     * Scrambles a value with the SplitMix64 finalizer.
+     *
+     * @param theValue the value.
+     * @return the scrambled value.
+     */
+    private static long mix(final long theValue) {
+        long z = theValue * GAMMA + GAMMA;
+        z = (z ^ (z >>> SHIFT_1)) * MIX_1;
+        z = (z ^ (z >>> SHIFT_2)) * MIX_2;
+        return z ^ (z >>> SHIFT_3);
+    }
+}
@@ -0,0 +1,283 @@
+/*
+ * TCSS 305 - Project Tetris
+ */
+
+package server;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import model.Board;
+import sim.Arguments;
+import sim.Command;
+import sim.GeneratorKind;
+import sim.RandomInputSource;
+
+/**
+ * A player connected to a GameServer, sending one request at a time and
+ * waiting for its reply.
+ *
+ * @author TCSS 305 Instructors
+ * @version Autumn 2016
+ */
+public final class GameClient implements Closeable {
+
+    /** Default number of sessions played by main. */
+    private static final int DEFAULT_SESSIONS = 100;
+
+    /** Default number of commands per session sent by main. */
+    private static final int DEFAULT_COMMANDS = 2000;
+
+    /** Nanoseconds per second. */
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    /** The size of the socket buffers; requests and replies are short lines. */
+    private static final int BUFFER_SIZE = 512;
+
+    /** The connection to the server. */
+    private final Socket mySocket;
+
+    /** Reads the replies. */
+    private final BufferedReader myIn;
+
+    /** Writes the requests. */
+    private final Writer myOut;
+
+    /** Width of the board. */
+    private final int myWidth;
+
+    /** Height of the board. */
+    private final int myHeight;
+
+    /**
+     * Connects to a server on this machine and reads its greeting.
+     *
+     * @param thePort the port of the server.
+     * @throws IOException if the server cannot be reached or does not greet.
+     */
+    public GameClient(final int thePort) throws IOException {
+        mySocket = new Socket(InetAddress.getLoopbackAddress(), thePort);
+        mySocket.setTcpNoDelay(true);
+        myIn = new BufferedReader(new InputStreamReader(
+            mySocket.getInputStream(), StandardCharsets.US_ASCII), BUFFER_SIZE);
+        myOut = new BufferedWriter(new OutputStreamWriter(
+            mySocket.getOutputStream(), StandardCharsets.US_ASCII), BUFFER_SIZE);
+        final String[] greeting = readReply().split(" ");
+        if (greeting.length != 3 || !"TETRIS".equals(greeting[0])) {
+            mySocket.close();
+            throw new IOException("Not a Tetris server: " + String.join(" ", greeting));
+        }
+        myWidth = Integer.parseInt(greeting[1]);
+        myHeight = Integer.parseInt(greeting[2]);
+    }
+
+    /**
+     * Returns the width of the board on the server.
+     *
+     * @return the width.
+     */
+    public int getWidth() {
+        return myWidth;
+    }
+
+    /**
+     * Returns the height of the board on the server.
+     *
+     * @return the height.
+     */
+    public int getHeight() {
+        return myHeight;
+    }
+
+    /**
+     * Applies a command to the board on the server.
+     *
+     * @param theCommand the command.
+     * @return the reply, "OK pieces lines hash" or "OVER pieces lines".
+     * @throws IOException if the connection fails.
+     */
+    public String send(final Command theCommand) throws IOException {
+        return request(theCommand.name());
+    }
+
+    /**
+     * Starts a new game on the server.
+     *
+     * @param theSeed the seed of the pieces of the game.
+     * @return the reply, "OK pieces lines hash".
+     * @throws IOException if the connection fails.
+     */
+    public String newGame(final long theSeed) throws IOException {
+        return request("NEW " + theSeed);
+    }
+
+    /**
+     * Returns the board on the server as text.
+     *
+     * @return the rows of the board, as Board.toString() shows them.
+     * @throws IOException if the connection fails.
+     */
+    public String board() throws IOException {
+        myOut.write("BOARD\n");
+        myOut.flush();
+        final StringBuilder sb = new StringBuilder();
+        String line = readReply();
+        while (!"END".equals(line)) {
+            if (sb.length() > 0) {
+                sb.append('\n');
+            }
+            sb.append(line);
+            line = readReply();
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Quits the session and closes the connection.
+     *
+     * @throws IOException if the connection cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            request("QUIT");
+        } catch (final IOException e) {
+            // The server is gone already.
+        } finally {
+            mySocket.close();
+        }
+    }
+
+    /**
+     * Sends a request line and reads its one line reply.
+     *
+     * @param theRequest the request without a line end.
+     * @return the reply without a line end.
+     * @throws IOException if the connection fails.
+     */
+    private String request(final String theRequest) throws IOException {
+        myOut.write(theRequest);
+        myOut.write('\n');
+        myOut.flush();
+        return readReply();
+    }
+
+    /**
+     * Reads one reply line.
+     *
+     * @return the reply without a line end.
+     * @throws IOException if the connection fails or is closed.
+     */
+    private String readReply() throws IOException {
+        final String result = myIn.readLine();
+        if (result == null) {
+            throw new IOException("The server closed the connection");
+        }
+        return result;
+    }
+
+    /**
+     * Serves games over loopback and plays many concurrent random sessions
+     * against them, reporting the request throughput.
+     *
+     * Without gravity every session mirrors its commands on a local Board
+     * with the same pieces and checks that the board hash the server replies
+     * with matches it after every command.
+     *
+     * Arguments, all optional: number of sessions, commands per session,
+     * gravity interval in milliseconds (0 for none) and piece generator.
+     *
+     * @param theArgs Command line arguments.
+     * @throws Exception if a session fails or a board differs.
+     */
+    public static void main(final String[] theArgs) throws Exception {
+        final int sessions = Arguments.intArg(theArgs, 0, DEFAULT_SESSIONS);
+        final int commands = Arguments.intArg(theArgs, 1, DEFAULT_COMMANDS);
+        final int gravity = Arguments.intArg(theArgs, 2, 0);
+        final GeneratorKind kind = Arguments.kindArg(theArgs, 3);
+        final Board defaults = new Board();
+
+        try (GameServer server = new GameServer(0, defaults.getWidth(), defaults.getHeight(),
+                                                kind, gravity)) {
+            server.start();
+            final ExecutorService players = GameServer.newSessionExecutor();
+            final List<Callable<Long>> games = new ArrayList<>();
+            for (int i = 0; i < sessions; i++) {
+                final long seed = i;
+                games.add(() -> play(server.getPort(), kind, seed, commands, gravity == 0));
+            }
+            final long start = System.nanoTime();
+            long requests = 0;
+            try {
+                for (final Future<Long> game : players.invokeAll(games)) {
+                    requests += game.get();
+                }
+            } catch (final ExecutionException e) {
+                throw (Exception) e.getCause();
+            } finally {
+                players.shutdown();
+            }
+            final double seconds = (System.nanoTime() - start) / NANOS_PER_SECOND;
+            System.out.printf("%d sessions, %d requests in %.3f s%n",
+                              sessions, requests, seconds);
+            System.out.printf("%.0f requests/s%n", requests / seconds);
+        }
+    }
+
+    /**
+     * Plays one random session, restarting the game whenever it ends.
+     *
+     * @param thePort the port of the server.
+     * @param theGenerators the kind of piece generator of the server.
+     * @param theSeed the seed of the pieces and commands.
+     * @param theCommands the number of commands to send.
+     * @param theVerify true to check every reply against a local Board.
+     * @return the number of requests sent.
+     * @throws IOException if the connection fails.
+     * @throws IllegalStateException if the server board differs from the local one.
+     */
+    private static long play(final int thePort, final GeneratorKind theGenerators,
+                             final long theSeed, final int theCommands,
+                             final boolean theVerify) throws IOException {
+        long result = 0;
+        try (GameClient client = new GameClient(thePort)) {
+            final Board mirror = new Board(client.getWidth(), client.getHeight());
+            final RandomInputSource input = new RandomInputSource(theSeed);
+            long game = theSeed;
+            String reply = "OVER";
+            for (int i = 0; i < theCommands; i++) {
+                if (reply.startsWith("OVER")) {
+                    game += theCommands;
+                    mirror.setPieceGenerator(theGenerators.create(game));
+                    mirror.newGame();
+                    reply = client.newGame(game);
+                    result++;
+                }
+                final Command command = input.nextCommand(mirror);
+                command.apply(mirror);
+                reply = client.send(command);
+                result++;
+                if (theVerify && reply.startsWith("OK")
+                    && !reply.endsWith(String.format("%016x", mirror.getHash()))) {
+                    throw new IllegalStateException("Session " + theSeed
+                                                    + " differs after " + command);
+                }
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,337 @@
+/*
+ * TCSS 305 - Project Tetris
+ */
+
+package server;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import sim.Arguments;
+import sim.GeneratorKind;
+
+/**
+ * Hosts many Tetris games over TCP, one Board per connection.
+ *
+ * Each connection is a session served by its own thread: a virtual thread
+ * when the Java runtime has them, so that thousands of mostly idle sessions
+ * cost little memory, otherwise a pooled platform thread. Gravity does not
+ * need a timer per game: one shared scheduler thread moves the piece of
+ * every running game down at a fixed interval.
+ *
+ * The protocol is line based text. The server greets a new connection with
+ * "TETRIS width height". The client then sends one request per line, in any
+ * case, and the server answers each with one line:
+ * <ul>
+ * <li>a Command name, such as LEFT or ROTATE_CCW, applies the command and
+ * answers "OK pieces lines hash", or "OVER pieces lines" once the game is
+ * over; the hash is Board.getHash() as 16 hex digits,</li>
+ * <li>"NEW seed" starts a new game dealing the pieces of the seed,</li>
+ * <li>"BOARD" answers with the rows of Board.toString(), then "END",</li>
+ * <li>"QUIT" answers "BYE" and closes the connection.</li>
+ * </ul>
+ * Anything else is answered with "ERR" and a message. A session starts its
+ * first game when it is opened, with a seed of 0.
+ *
+ * @author TCSS 305 Instructors
+ * @version Autumn 2016
+ */
+public final class GameServer implements Closeable {
+
+    /** The default port of main. */
+    private static final int DEFAULT_PORT = 7305;
+
+    /** The default gravity interval of main in milliseconds. */
+    private static final int DEFAULT_GRAVITY = 1000;
+
+    /** The number of connections waiting to be accepted. */
+    private static final int BACKLOG = 1024;
+
+    /** The pause in milliseconds after failing to accept a connection. */
+    private static final int ACCEPT_RETRY_MILLIS = 100;
+
+    /** The socket accepting connections. */
+    private final ServerSocket myServerSocket;
+
+    /** Width of the boards. */
+    private final int myWidth;
+
+    /** Height of the boards. */
+    private final int myHeight;
+
+    /** The kind of piece generator of the games. */
+    private final GeneratorKind myGenerators;
+
+    /** The interval between gravity ticks in milliseconds; 0 for no gravity. */
+    private final long myGravity;
+
+    /** Runs the accept loop and the sessions. */
+    private final ExecutorService mySessionThreads;
+
+    /** Ticks the gravity of every session. */
+    private final ScheduledExecutorService myGravityScheduler;
+
+    /** The open sessions. */
+    private final Set<GameSession> mySessions = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Constructs a server listening on the loopback interface. The server
+     * accepts connections once started.
+     *
+     * @param thePort the port; 0 for any free port.
+     * @param theWidth Width of the boards.
+     * @param theHeight Height of the boards.
+     * @param theGenerators the kind of piece generator of the games.
+     * @param theGravity the interval between gravity ticks in milliseconds;
+     *        0 for games that only move by command.
+     * @throws IOException if the port cannot be bound.
+     * @throws IllegalArgumentException if the gravity interval is negative.
+     */
+    public GameServer(final int thePort, final int theWidth, final int theHeight,
+                      final GeneratorKind theGenerators, final long theGravity)
+        throws IOException {
+        if (theGravity < 0) {
+            throw new IllegalArgumentException("Gravity must not be negative: " + theGravity);
+        }
+        myServerSocket = new ServerSocket(thePort, BACKLOG, InetAddress.getLoopbackAddress());
+        myWidth = theWidth;
+        myHeight = theHeight;
+        myGenerators = theGenerators;
+        myGravity = theGravity;
+        mySessionThreads = newSessionExecutor();
+        myGravityScheduler = Executors.newSingleThreadScheduledExecutor(
+            daemonThreads("tetris-gravity"));
+    }
+
+    /**
+     * Starts accepting connections and ticking gravity.
+     */
+    public void start() {
+        mySessionThreads.execute(new Runnable() {
+            @Override
+            public void run() {
+                acceptConnections();
+            }
+        });
+        if (myGravity > 0) {
+            myGravityScheduler.scheduleAtFixedRate(new Runnable() {
+                @Override
+                public void run() {
+                    for (final GameSession session : mySessions) {
+                        session.gravity();
+                    }
+                }
+            }, myGravity, myGravity, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Returns the port the server listens on.
+     *
+     * @return the local port.
+     */
+    public int getPort() {
+        return myServerSocket.getLocalPort();
+    }
+
+    /**
+     * Returns the number of open sessions.
+     *
+     * @return the number of connected players.
+     */
+    public int getSessionCount() {
+        return mySessions.size();
+    }
+
+    /**
+     * Stops accepting connections and closes every session.
+     *
+     * @throws IOException if the server socket cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        myGravityScheduler.shutdownNow();
+        try {
+            myServerSocket.close();
+        } finally {
+            for (final GameSession session : mySessions) {
+                session.close();
+            }
+            mySessionThreads.shutdown();
+        }
+    }
+
+    /**
+     * Removes a session that ended.
+     *
+     * @param theSession the session.
+     */
+    void remove(final GameSession theSession) {
+        mySessions.remove(theSession);
+    }
+
+    /**
+     * Accepts connections until the server socket is closed, serving each on
+     * its own thread. A connection that fails is closed without ending the loop.
+     */
+    private void acceptConnections() {
+        while (!myServerSocket.isClosed()) {
+            final Socket socket = acceptConnection();
+            if (socket != null) {
+                serve(socket);
+            }
+        }
+    }
+
+    /**
+     * Waits for the next connection. Failing to accept one, for example when
+     * the process is out of file descriptors, pauses briefly before the
+     * loop tries again.
+     *
+     * @return the connection, or null if none was accepted.
+     */
+    private Socket acceptConnection() {
+        Socket result = null;
+        try {
+            result = myServerSocket.accept();
+        } catch (final IOException e) {
+            if (!myServerSocket.isClosed()) {
+                e.printStackTrace();
+                pause();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Starts a session for an accepted connection, closing the connection if
+     * the session cannot start.
+     *
+     * @param theSocket the connection.
+     */
+    private void serve(final Socket theSocket) {
+        try {
+            theSocket.setTcpNoDelay(true);
+            final GameSession session =
+                new GameSession(this, theSocket, myWidth, myHeight, myGenerators);
+            mySessions.add(session);
+            // close() may have run since accept returned; it closes the
+            // socket before the sessions, so either it closed this one
+            // or the socket is seen closed here.
+            if (myServerSocket.isClosed()) {
+                remove(session);
+                session.close();
+            } else {
+                startSession(session);
+            }
+        } catch (final IOException | RuntimeException e) {
+            e.printStackTrace();
+            try {
+                theSocket.close();
+            } catch (final IOException ignored) {
+                // Nothing to do; the connection is gone.
+            }
+        }
+    }
+
+    /**
+     * Waits before accepting again after a failed accept, so that a
+     * persistent failure does not spin the accepting thread.
+     */
+    private void pause() {
+        try {
+            Thread.sleep(ACCEPT_RETRY_MILLIS);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Runs a session on a session thread, or closes it if the server shut
+     * down the session threads in the meantime.
+     *
+     * @param theSession the session.
+     */
+    private void startSession(final GameSession theSession) {
+        try {
+            mySessionThreads.execute(theSession);
+        } catch (final RejectedExecutionException e) {
+            remove(theSession);
+            theSession.close();
+        }
+    }
+
+    /**
+     * Creates an executor running each task on a new virtual thread, or on a
+     * pooled daemon platform thread when the runtime has no virtual threads.
+     * The virtual thread factory is looked up by reflection so that the
+     * server also builds and runs on runtimes before Java 21.
+     *
+     * @return the executor.
+     */
+    public static ExecutorService newSessionExecutor() {
+        ExecutorService result;
+        try {
+            final Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            result = (ExecutorService) factory.invoke(null);
+        } catch (final ReflectiveOperationException | UnsupportedOperationException e) {
+            result = Executors.newCachedThreadPool(daemonThreads("tetris-session"));
+        }
+        return result;
+    }
+
+    /**
+     * Creates a factory of named daemon threads.
+     *
+     * @param theName the name of the threads.
+     * @return the thread factory.
+     */
+    private static ThreadFactory daemonThreads(final String theName) {
+        return new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable theTask) {
+                final Thread result = new Thread(theTask, theName);
+                result.setDaemon(true);
+                return result;
+            }
+        };
+    }
+
+    /**
+     * Serves games until the process is stopped.
+     *
+     * Arguments, all optional: port (default 7305), gravity interval in
+     * milliseconds (0 for none), piece generator (uniform, bag or history),
+     * board width and board height.
+     *
+     * @param theArgs Command line arguments.
+     * @throws IOException if the port cannot be bound.
+     * @throws InterruptedException if the main thread is interrupted.
+     */
+    public static void main(final String[] theArgs) throws IOException, InterruptedException {
+        final int port = Arguments.intArg(theArgs, 0, DEFAULT_PORT);
+        final int gravity = Arguments.intArg(theArgs, 1, DEFAULT_GRAVITY);
+        final GeneratorKind generators = Arguments.kindArg(theArgs, 2);
+        final model.Board defaults = new model.Board();
+        final int width = Arguments.intArg(theArgs, 3, defaults.getWidth());
+        final int height = Arguments.intArg(theArgs, 4, defaults.getHeight());
+
+        final GameServer server = new GameServer(port, width, height, generators, gravity);
+        server.start();
+        System.out.println("Serving " + width + " x " + height + " " + generators
+                           + " games on port " + server.getPort());
+        Thread.currentThread().join();
+    }
+}
@@ -0,0 +1,276 @@
+/*
+ * TCSS 305 - Project Tetris
+ */
+
+package server;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.locks.ReentrantLock;
+
+import model.Board;
+import model.BoardEvent;
+import model.BoardListener;
+import sim.Command;
+import sim.GeneratorKind;
+
+/**
+ * One player connected to a GameServer, playing on a Board of its own.
+ *
+ * The session thread applies the commands read from the socket and the
+ * shared gravity thread moves the piece down, so both hold a lock while they
+ * change the board. The board events they cause are counted on the thread
+ * that changed the board, under the same lock.
+ *
+ * @author TCSS 305 Instructors
+ * @version Autumn 2016
+ */
+final class GameSession implements BoardListener, Runnable {
+
+    /** The size of the socket buffers; requests and replies are short lines. */
+    private static final int BUFFER_SIZE = 512;
+
+    /** The server that owns this session. */
+    private final GameServer myServer;
+
+    /** The connection to the player. */
+    private final Socket mySocket;
+
+    /** The kind of piece generator of the games. */
+    private final GeneratorKind myGenerators;
+
+    /** The Board the player plays on. */
+    private final Board myBoard;
+
+    /** Guards the board and the counters against the session and gravity threads. */
+    private final ReentrantLock myLock = new ReentrantLock();
+
+    /** Pieces frozen in the current game. */
+    private long myPieces;
+
+    /** Rows cleared in the current game. */
+    private long myLines;
+
+    /** If the current game is over. */
+    private boolean myGameOver;
+
+    /** If the first game has started, so gravity may move the piece. */
+    private volatile boolean myPlaying;
+
+    /**
+     * Constructs a session for a connection.
+     *
+     * @param theServer the server that owns the session.
+     * @param theSocket the connection to the player.
+     * @param theWidth Width of the board.
+     * @param theHeight Height of the board.
+     * @param theGenerators the kind of piece generator of the games.
+     */
+    GameSession(final GameServer theServer, final Socket theSocket, final int theWidth,
+                final int theHeight, final GeneratorKind theGenerators) {
+        myServer = theServer;
+        mySocket = theSocket;
+        myGenerators = theGenerators;
+        myBoard = new Board(theWidth, theHeight);
+        myBoard.addBoardListener(this, BoardEvent.Type.PIECE_LOCKED,
+                                 BoardEvent.Type.ROWS_CLEARED, BoardEvent.Type.GAME_OVER);
+    }
+
+    /**
+     * Serves the player until the connection closes or the player quits.
+     */
+    @Override
+    public void run() {
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(
+                 mySocket.getInputStream(), StandardCharsets.US_ASCII), BUFFER_SIZE);
+             Writer out = new BufferedWriter(new OutputStreamWriter(
+                 mySocket.getOutputStream(), StandardCharsets.US_ASCII), BUFFER_SIZE)) {
+            newGame(0);
+            myPlaying = true;
+            out.write("TETRIS " + myBoard.getWidth() + ' ' + myBoard.getHeight() + '\n');
+            out.flush();
+            boolean open = true;
+            while (open) {
+                final String line = in.readLine();
+                if (line == null) {
+                    open = false;
+                } else {
+                    open = handle(line.trim(), out);
+                    out.flush();
+                }
+            }
+        } catch (final IOException e) {
+            // The player disconnected; the session ends either way.
+        } finally {
+            myPlaying = false;
+            myServer.remove(this);
+            close();
+        }
+    }
+
+    /**
+     * Moves the current piece down one row, as a gravity tick.
+     */
+    void gravity() {
+        if (myPlaying) {
+            myLock.lock();
+            try {
+                if (!myGameOver) {
+                    myBoard.down();
+                }
+            } finally {
+                myLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Closes the connection to the player, which ends the session.
+     */
+    void close() {
+        try {
+            mySocket.close();
+        } catch (final IOException e) {
+            // Nothing to do; the connection is gone.
+        }
+    }
+
+    /**
+     * Counts frozen pieces and cleared rows of the current game.
+     *
+     * @param theEvent the change received from the Board.
+     */
+    @Override
+    public void boardChanged(final BoardEvent theEvent) {
+        switch (theEvent.getType()) {
+            case PIECE_LOCKED:
+                myPieces++;
+                break;
+            case ROWS_CLEARED:
+                myLines += theEvent.getRowCount();
+                break;
+            case GAME_OVER:
+                myGameOver = true;
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Answers one request of the player.
+     *
+     * @param theRequest the request line without surrounding white space.
+     * @param theOut the writer of the replies.
+     * @return false if the player quit.
+     * @throws IOException if the reply cannot be written.
+     */
+    private boolean handle(final String theRequest, final Writer theOut) throws IOException {
+        boolean result = true;
+        final String[] words = theRequest.split("\\s+");
+        final String name = words[0].toUpperCase(Locale.ROOT);
+        if ("QUIT".equals(name)) {
+            theOut.write("BYE\n");
+            result = false;
+        } else if ("NEW".equals(name)) {
+            if (words.length == 2) {
+                try {
+                    newGame(Long.parseLong(words[1]));
+                    theOut.write(status());
+                } catch (final NumberFormatException e) {
+                    theOut.write("ERR bad seed " + words[1] + '\n');
+                }
+            } else {
+                theOut.write("ERR usage: NEW seed\n");
+            }
+        } else if ("BOARD".equals(name)) {
+            theOut.write(board());
+        } else {
+            try {
+                apply(Command.valueOf(name));
+                theOut.write(status());
+            } catch (final IllegalArgumentException e) {
+                theOut.write("ERR unknown request " + theRequest + '\n');
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Starts a new game.
+     *
+     * @param theSeed the seed of the pieces of the game.
+     */
+    private void newGame(final long theSeed) {
+        myLock.lock();
+        try {
+            myPieces = 0;
+            myLines = 0;
+            myGameOver = false;
+            myBoard.setPieceGenerator(myGenerators.create(theSeed));
+            myBoard.newGame();
+        } finally {
+            myLock.unlock();
+        }
+    }
+
+    /**
+     * Applies a player command unless the game is over.
+     *
+     * @param theCommand the command.
+     */
+    private void apply(final Command theCommand) {
+        myLock.lock();
+        try {
+            if (!myGameOver) {
+                theCommand.apply(myBoard);
+            }
+        } finally {
+            myLock.unlock();
+        }
+    }
+
+    /**
+     * Returns the reply describing the current game.
+     *
+     * @return "OK pieces lines hash" or "OVER pieces lines", with a line end.
+     */
+    private String status() {
+        final String result;
+        myLock.lock();
+        try {
+            if (myGameOver) {
+                result = "OVER " + myPieces + ' ' + myLines + '\n';
+            } else {
+                result = String.format("OK %d %d %016x\n", myPieces, myLines,
+                                       myBoard.getHash());
+            }
+        } finally {
+            myLock.unlock();
+        }
+        return result;
+    }
+
+    /**
+     * Returns the reply showing the board.
+     *
+     * @return the rows of the board followed by "END", with line ends.
+     */
+    private String board() {
+        final String result;
+        myLock.lock();
+        try {
+            result = myBoard + "\nEND\n";
+        } finally {
+            myLock.unlock();
+        }
+        return result;
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * TCSS 305 - Project Tetris
+ */
+
+package sim;
+
+/**
+ * Parses the optional positional command line arguments of the mains of the
+ * simulator, the bots and the game server, so that each main only lists its
+ * arguments and their defaults.
+ *
+ * @author TCSS 305 Instructors
+ * @version Autumn 2016
+ */
+public final class Arguments {
+
+    /**
+     * Private constructor to prevent instantiation.
+     */
+    private Arguments() {
+        throw new IllegalStateException();
+    }
+
+    /**
+     * Parses an optional integer command line argument.
+     *
+     * @param theArgs the command line arguments.
+     * @param theIndex the index of the argument.
+     * @param theDefault the value used when the argument is missing.
+     * @return the argument value.
+     * @throws NumberFormatException if the argument is not an integer.
+     */
+    public static int intArg(final String[] theArgs, final int theIndex,
+                             final int theDefault) {
+        int result = theDefault;
+        if (theArgs.length > theIndex) {
+            result = Integer.parseInt(theArgs[theIndex]);
+        }
+        return result;
+    }
+
+    /**
+     * Parses an optional long integer command line argument, such as a seed.
+     *
+     * @param theArgs the command line arguments.
+     * @param theIndex the index of the argument.
+     * @param theDefault the value used when the argument is missing.
+     * @return the argument value.
+     * @throws NumberFormatException if the argument is not a long integer.
+     */
+    public static long longArg(final String[] theArgs, final int theIndex,
+                               final long theDefault) {
+        long result = theDefault;
+        if (theArgs.length > theIndex) {
+            result = Long.parseLong(theArgs[theIndex]);
+        }
+        return result;
+    }
+
+    /**
+     * Parses an optional piece generator command line argument.
+     *
+     * @param theArgs the command line arguments.
+     * @param theIndex the index of the argument.
+     * @return the named kind of generator; uniform when the argument is missing.
+     * @throws IllegalArgumentException if the name is not a known generator.
+     */
+    public static GeneratorKind kindArg(final String[] theArgs, final int theIndex) {
+        GeneratorKind result = GeneratorKind.UNIFORM;
+        if (theArgs.length > theIndex) {
+            result = GeneratorKind.forName(theArgs[theIndex]);
+        }
+        return result;
+    }
+}
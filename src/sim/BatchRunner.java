@@ -0,0 +1,337 @@
+/*
+ * TCSS 305 - Project Tetris
+ */
+
+package sim;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.LongFunction;
+
+import model.Board;
+import model.PieceGenerator;
+import model.UniformPieceGenerator;
+
+/**
+ * Plays a batch of independent headless games on all cores.
+ * 
+ * Games are split across a work-stealing ForkJoinPool. Every worker thread
+ * owns its own Board, and every game derives its piece and input seeds from
+ * the batch seed and its index, so a batch is reproducible no matter how the
+ * games are scheduled. Results stream to listeners as each game ends.
+ * 
+ * @author TCSS 305 Instructors
+ * @version Autumn 2016
+ */
+public class BatchRunner {
+
+    /** Odd constant spreading consecutive game indices over the seed space. */
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    /** The number of games below which a task is not split further. */
+    private static final int GAMES_PER_TASK = 4;
+
+    /** Default number of games played by main. */
+    private static final int DEFAULT_GAMES = 100000;
+
+    /** Default piece limit per game used by main. */
+    private static final int DEFAULT_MAX_PIECES = 10000;
+
+    /** Width of the boards. */
+    private final int myWidth;
+
+    /** Height of the boards. */
+    private final int myHeight;
+
+    /** Creates the input source of a game from its input seed. */
+    private final LongFunction<InputSource> myInputs;
+
+    /** A generator of the kind dealing the pieces of every game. */
+    private final PieceGenerator myGenerators;
+
+    /** The pool playing the games. */
+    private final ForkJoinPool myPool;
+
+    /**
+     * Constructs a batch runner using the common ForkJoinPool.
+     * 
+     * @param theWidth Width of the boards.
+     * @param theHeight Height of the boards.
+     * @param theInputs creates the input source of a game from its input seed.
+     */
+    public BatchRunner(final int theWidth, final int theHeight,
+                       final LongFunction<InputSource> theInputs) {
+        this(theWidth, theHeight, theInputs, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructs a batch runner.
+     * 
+     * @param theWidth Width of the boards.
+     * @param theHeight Height of the boards.
+     * @param theInputs creates the input source of a game from its input seed.
+     * @param thePool the pool playing the games.
+     */
+    public BatchRunner(final int theWidth, final int theHeight,
+                       final LongFunction<InputSource> theInputs,
+                       final ForkJoinPool thePool) {
+        this(theWidth, theHeight, theInputs, new UniformPieceGenerator(0), thePool);
+    }
+
+    /**
+     * Constructs a batch runner dealing pieces with a chosen kind of generator.
+     * Every game gets its own generator of that kind, seeded from the game seed.
+     * 
+     * @param theWidth Width of the boards.
+     * @param theHeight Height of the boards.
+     * @param theInputs creates the input source of a game from its input seed.
+     * @param theGenerators a generator of the kind dealing the pieces of every game.
+     * @param thePool the pool playing the games.
+     */
+    public BatchRunner(final int theWidth, final int theHeight,
+                       final LongFunction<InputSource> theInputs,
+                       final PieceGenerator theGenerators, final ForkJoinPool thePool) {
+        myWidth = theWidth;
+        myHeight = theHeight;
+        myInputs = theInputs;
+        myGenerators = theGenerators;
+        myPool = thePool;
+    }
+
+    /**
+     * Plays a batch of games.
+     * 
+     * @param theGames the number of games.
+     * @param theSeed the seed of the batch.
+     * @param theMaxPieces the piece limit of each game.
+     * @return the aggregated results.
+     */
+    public BatchStatistics run(final int theGames, final long theSeed,
+                               final long theMaxPieces) {
+        return run(theGames, theSeed, theMaxPieces, null);
+    }
+
+    /**
+     * Plays a batch of games, streaming every result to a listener.
+     * 
+     * @param theGames the number of games.
+     * @param theSeed the seed of the batch.
+     * @param theMaxPieces the piece limit of each game.
+     * @param theListener a thread safe listener for each result, or null.
+     * @return the aggregated results.
+     */
+    public BatchStatistics run(final int theGames, final long theSeed,
+                               final long theMaxPieces, final GameResultListener theListener) {
+        return play(Collections.singletonList(myInputs), theGames, theSeed, theMaxPieces,
+                    theListener)[0];
+    }
+
+    /**
+     * Plays the same batch of games with each of several players, as one
+     * batch of tasks, so that the pool is kept busy even when each player
+     * plays only a few games. The input sources of this runner are not used
+     * and may be null.
+     * 
+     * @param thePlayers creates the input sources of each player from the input seeds.
+     * @param theGames the number of games per player.
+     * @param theSeed the seed of the batch.
+     * @param theMaxPieces the piece limit of each game.
+     * @return the aggregated results of each player, in order; each reports
+     *         the time of the whole batch.
+     */
+    public BatchStatistics[] runEach(final List<? extends LongFunction<InputSource>> thePlayers,
+                                     final int theGames, final long theSeed,
+                                     final long theMaxPieces) {
+        return play(thePlayers, theGames, theSeed, theMaxPieces, null);
+    }
+
+    /**
+     * Plays a batch of games with each of several players.
+     * 
+     * @param thePlayers creates the input sources of each player.
+     * @param theGames the number of games per player.
+     * @param theSeed the seed of the batch.
+     * @param theMaxPieces the piece limit of each game.
+     * @param theListener a thread safe listener for each result, or null.
+     * @return the aggregated results of each player.
+     */
+    private BatchStatistics[] play(final List<? extends LongFunction<InputSource>> thePlayers,
+                                   final int theGames, final long theSeed,
+                                   final long theMaxPieces,
+                                   final GameResultListener theListener) {
+        final BatchStatistics[] statistics = new BatchStatistics[thePlayers.size()];
+        for (int i = 0; i < statistics.length; i++) {
+            statistics[i] = new BatchStatistics();
+        }
+        final ThreadLocal<GameRunner> runners = new ThreadLocal<GameRunner>() {
+            @Override
+            protected GameRunner initialValue() {
+                return new GameRunner(new Board(myWidth, myHeight));
+            }
+        };
+        final long start = System.nanoTime();
+        myPool.invoke(new GameTask(0, theGames * statistics.length, 
+                                   new Batch(thePlayers, theGames, theSeed, theMaxPieces,
+                                             runners, statistics, theListener)));
+        for (final BatchStatistics player : statistics) {
+            player.setNanos(System.nanoTime() - start);
+        }
+        return statistics;
+    }
+
+    /**
+     * Returns the seed a game of a batch is derived from.
+     * 
+     * @param theSeed the seed of the batch.
+     * @param theGame the index of the game.
+     * @return the seed of the game.
+     */
+    public static long gameSeed(final long theSeed, final int theGame) {
+        return theSeed + theGame * GOLDEN_GAMMA;
+    }
+
+    /**
+     * Plays a batch of random bot games on every core and reports throughput.
+     * 
+     * Arguments, all optional: number of games, piece limit per game,
+     * board width, board height, random seed, parallelism, and the piece
+     * generator: "uniform", "bag" or "history".
+     * 
+     * @param theArgs Command line arguments.
+     */
+    public static void main(final String[] theArgs) {
+        final Board defaults = new Board();
+        final int games = Arguments.intArg(theArgs, 0, DEFAULT_GAMES);
+        final int maxPieces = Arguments.intArg(theArgs, 1, DEFAULT_MAX_PIECES);
+        final int width = Arguments.intArg(theArgs, 2, defaults.getWidth());
+        final int height = Arguments.intArg(theArgs, 3, defaults.getHeight());
+        final long seed = Arguments.longArg(theArgs, 4, 0);
+        final int parallelism = 
+            Arguments.intArg(theArgs, 5, Runtime.getRuntime().availableProcessors());
+        final PieceGenerator generators = Arguments.kindArg(theArgs, 6).create(0);
+        
+        final ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            final BatchRunner runner = new BatchRunner(width, height, RandomInputSource::new,
+                                                       generators, pool);
+            System.out.println(parallelism + " threads: " 
+                               + runner.run(games, seed, maxPieces));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * The games of a batch and where their results go, shared by its tasks.
+     * Game i of the batch is game i % games of player i / games.
+     */
+    private static final class Batch {
+
+        /** Creates the input sources of each player. */
+        private final List<? extends LongFunction<InputSource>> myPlayers;
+
+        /** The number of games per player. */
+        private final int myGames;
+
+        /** The seed of the batch. */
+        private final long mySeed;
+
+        /** The piece limit of each game. */
+        private final long myMaxPieces;
+
+        /** The runner of each worker thread. */
+        private final ThreadLocal<GameRunner> myRunners;
+
+        /** The aggregated results of each player. */
+        private final BatchStatistics[] myStatistics;
+
+        /** The listener for each result, or null. */
+        private final GameResultListener myListener;
+
+        /**
+         * Constructs a batch.
+         * 
+         * @param thePlayers creates the input sources of each player.
+         * @param theGames the number of games per player.
+         * @param theSeed the seed of the batch.
+         * @param theMaxPieces the piece limit of each game.
+         * @param theRunners the runner of each worker thread.
+         * @param theStatistics the aggregated results of each player.
+         * @param theListener the listener for each result, or null.
+         */
+        Batch(final List<? extends LongFunction<InputSource>> thePlayers, final int theGames,
+              final long theSeed, final long theMaxPieces,
+              final ThreadLocal<GameRunner> theRunners, final BatchStatistics[] theStatistics,
+              final GameResultListener theListener) {
+            myPlayers = thePlayers;
+            myGames = theGames;
+            mySeed = theSeed;
+            myMaxPieces = theMaxPieces;
+            myRunners = theRunners;
+            myStatistics = theStatistics;
+            myListener = theListener;
+        }
+    }
+
+    /**
+     * Plays a range of games of the batch, splitting large ranges in halves.
+     */
+    private final class GameTask extends RecursiveAction {
+
+        /**  A generated serial version UID for object Serialization. */
+        private static final long serialVersionUID = -3417360468152021137L;
+
+        /** The first game of the range. */
+        private final int myFrom;
+
+        /** One past the last game of the range. */
+        private final int myTo;
+
+        /** The batch the games belong to. */
+        private final transient Batch myBatch;
+
+        /**
+         * Constructs a task playing a range of games.
+         * 
+         * @param theFrom the first game of the range.
+         * @param theTo one past the last game of the range.
+         * @param theBatch the batch the games belong to.
+         */
+        GameTask(final int theFrom, final int theTo, final Batch theBatch) {
+            super();
+            myFrom = theFrom;
+            myTo = theTo;
+            myBatch = theBatch;
+        }
+
+        @Override
+        protected void compute() {
+            if (myTo - myFrom <= GAMES_PER_TASK) {
+                final GameRunner runner = myBatch.myRunners.get();
+                for (int i = myFrom; i < myTo; i++) {
+                    // Every player plays the same games.
+                    final int player = i / myBatch.myGames;
+                    final int game = i % myBatch.myGames;
+                    final long seed = gameSeed(myBatch.mySeed, game);
+                    final SplittableRandom seeds = new SplittableRandom(seed);
+                    runner.getBoard().setPieceGenerator(
+                        myGenerators.newGenerator(seeds.nextLong()));
+                    final GameResult result = runner.play(
+                        myBatch.myPlayers.get(player).apply(seeds.nextLong()),
+                        myBatch.myMaxPieces);
+                    myBatch.myStatistics[player].gameFinished(game, seed, result);
+                    if (myBatch.myListener != null) {
+                        myBatch.myListener.gameFinished(game, seed, result);
+                    }
+                }
+            } else {
+                final int middle = (myFrom + myTo) >>> 1;
+                invokeAll(new GameTask(myFrom, middle, myBatch),
+                          new GameTask(middle, myTo, myBatch));
+            }
+        }
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * TCSS 305 - Project Tetris
+ */
+
+package sim;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Aggregates the results of a batch of games.
+ * 
+ * Totals are kept in striped adders, so worker threads record results
+ * concurrently without sharing a lock.
+ * 
+ * @author TCSS 305 Instructors
+ * @version Autumn 2016
+ */
+public class BatchStatistics implements GameResultListener {
+
+    /** Nanoseconds per second. */
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    /** The number of finished games. */
+    private final LongAdder myGames = new LongAdder();
+
+    /** The number of games that ended with a full board. */
+    private final LongAdder myGameOvers = new LongAdder();
+
+    /** The number of frozen pieces. */
+    private final LongAdder myPieces = new LongAdder();
+
+    /** The number of cleared rows. */
+    private final LongAdder myLines = new LongAdder();
+
+    /** The number of performed commands. */
+    private final LongAdder myCommands = new LongAdder();
+
+    /** The most rows cleared in a single game. */
+    private final LongAccumulator myMaxLines = new LongAccumulator(Math::max, 0);
+
+    /** The wall clock time of the batch in nanoseconds, set once it finishes. */
+    private volatile long myNanos;
+
+    @Override
+    public void gameFinished(final int theGame, final long theSeed,
+                             final GameResult theResult) {
+        myGames.increment();
+        if (theResult.isGameOver()) {
+            myGameOvers.increment();
+        }
+        myPieces.add(theResult.getPieces());
+        myLines.add(theResult.getLines());
+        myCommands.add(theResult.getCommands());
+        myMaxLines.accumulate(theResult.getLines());
+    }
+
+    /**
+     * Records the wall clock time of the whole batch.
+     * 
+     * @param theNanos the elapsed time in nanoseconds.
+     */
+    void setNanos(final long theNanos) {
+        myNanos = theNanos;
+    }
+
+    /**
+     * Returns the number of finished games.
+     * 
+     * @return the number of games.
+     */
+    public long getGames() {
+        return myGames.sum();
+    }
+
+    /**
+     * Returns the number of games that ended with a full board.
+     * 
+     * @return the number of lost games.
+     */
+    public long getGameOvers() {
+        return myGameOvers.sum();
+    }
+
+    /**
+     * Returns the number of frozen pieces.
+     * 
+     * @return the number of pieces.
+     */
+    public long getPieces() {
+        return myPieces.sum();
+    }
+
+    /**
+     * Returns the number of cleared rows.
+     * 
+     * @return the number of lines.
+     */
+    public long getLines() {
+        return myLines.sum();
+    }
+
+    /**
+     * Returns the number of performed commands.
+     * 
+     * @return the number of commands.
+     */
+    public long getCommands() {
+        return myCommands.sum();
+    }
+
+    /**
+     * Returns the most rows cleared in a single game.
+     * 
+     * @return the best game's line count.
+     */
+    public long getMaxLines() {
+        return myMaxLines.get();
+    }
+
+    /**
+     * Returns the average number of rows cleared per game.
+     * 
+     * @return the mean line count, or 0 if no game finished.
+     */
+    public double getAverageLines() {
+        final long games = getGames();
+        double result = 0;
+        if (games > 0) {
+            result = (double) getLines() / games;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the wall clock time of the batch.
+     * 
+     * @return the elapsed time in nanoseconds.
+     */
+    public long getNanos() {
+        return myNanos;
+    }
+
+    /**
+     * Returns the number of games finished per second of wall clock time.
+     * 
+     * @return the game throughput.
+     */
+    public double getGamesPerSecond() {
+        return perSecond(getGames());
+    }
+
+    /**
+     * Returns the number of pieces frozen per second of wall clock time.
+     * 
+     * @return the piece throughput.
+     */
+    public double getPiecesPerSecond() {
+        return perSecond(getPieces());
+    }
+
+    /**
+     * Divides a count by the elapsed time of the batch.
+     * 
+     * @param theCount the count.
+     * @return the count per second, or 0 if no time was recorded.
+     */
+    private double perSecond(final long theCount) {
+        double result = 0;
+        if (myNanos > 0) {
+            result = theCount * NANOS_PER_SECOND / myNanos;
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d games (%d lost), %d pieces, %d lines "
+                             + "(avg %.2f, max %d) in %.3f s: %.1f games/s, %.0f pieces/s",
+                             getGames(), getGameOvers(), getPieces(), getLines(),
+                             getAverageLines(), getMaxLines(), myNanos / NANOS_PER_SECOND,
+                             getGamesPerSecond(), getPiecesPerSecond());
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * TCSS 305 - Project Tetris
+ */
+
+package sim;
+
+import model.Board;
+
+/**
+ * The player commands that drive a Tetris Board.
+ * 
+ * Recordings store commands by ordinal in three bits, with the last code
+ * reserved, so new commands are added at the end and there are at most seven.
+ * 
+ * @author TCSS 305 Instructors
+ * @version Autumn 2016
+ */
+public enum Command {
+
+    /** Move the current piece left. */
+    LEFT {
+        @Override
+        public void apply(final Board theBoard) {
+            theBoard.left();
+        }
+    },
+
+    /** Move the current piece right. */
+    RIGHT {
+        @Override
+        public void apply(final Board theBoard) {
+            theBoard.right();
+        }
+    },
+
+    /** Rotate the current piece clockwise. */
+    ROTATE {
+        @Override
+        public void apply(final Board theBoard) {
+            theBoard.rotate();
+        }
+    },
+
+    /** Move the current piece down, freezing it if it cannot move. */
+    DOWN {
+        @Override
+        public void apply(final Board theBoard) {
+            theBoard.down();
+        }
+    },
+
+    /** Drop the current piece until it freezes. */
+    DROP {
+        @Override
+        public void apply(final Board theBoard) {
+            theBoard.drop();
+        }
+    },
+
+    /** Rotate the current piece counterclockwise. */
+    ROTATE_CCW {
+        @Override
+        public void apply(final Board theBoard) {
+            theBoard.rotateCounterclockwise();
+        }
+    },
+
+    /** Rotate the current piece a half turn. */
+    ROTATE_180 {
+        @Override
+        public void apply(final Board theBoard) {
+            theBoard.rotateHalfTurn();
+        }
+    };
+
+    /**
+     * Performs this command on a Board.
+     * 
+     * @param theBoard the Board to change.
+     */
+    public abstract void apply(Board theBoard);
+}
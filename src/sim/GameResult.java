@@ -0,0 +1,99 @@
+/*
+ * TCSS 305 - Project Tetris
+ */
+
+package sim;
+
+/**
+ * The outcome of one headless game.
+ * A GameResult is immutable.
+ * 
+ * @author TCSS 305 Instructors
+ * @version Autumn 2016
+ */
+public final class GameResult {
+
+    /** The number of pieces frozen into the board. */
+    private final long myPieces;
+
+    /** The number of rows cleared. */
+    private final long myLines;
+
+    /** The number of commands performed. */
+    private final long myCommands;
+
+    /** If the game ended because the board filled up. */
+    private final boolean myGameOver;
+
+    /** The wall clock time spent playing the game, in nanoseconds. */
+    private final long myNanos;
+
+    /**
+     * Constructs a GameResult.
+     * 
+     * @param thePieces the number of pieces frozen into the board.
+     * @param theLines the number of rows cleared.
+     * @param theCommands the number of commands performed.
+     * @param theGameOver if the game ended because the board filled up.
+     * @param theNanos the time spent playing the game, in nanoseconds.
+     */
+    public GameResult(final long thePieces, final long theLines, final long theCommands,
+                      final boolean theGameOver, final long theNanos) {
+        myPieces = thePieces;
+        myLines = theLines;
+        myCommands = theCommands;
+        myGameOver = theGameOver;
+        myNanos = theNanos;
+    }
+
+    /**
+     * Returns the number of pieces frozen into the board.
+     * 
+     * @return the number of pieces.
+     */
+    public long getPieces() {
+        return myPieces;
+    }
+
+    /**
+     * Returns the number of rows cleared.
+     * 
+     * @return the number of cleared rows.
+     */
+    public long getLines() {
+        return myLines;
+    }
+
+    /**
+     * Returns the number of commands performed.
+     * 
+     * @return the number of commands.
+     */
+    public long getCommands() {
+        return myCommands;
+    }
+
+    /**
+     * Returns if the game ended because the board filled up.
+     * 
+     * @return true if the game is over, false if it stopped for another reason.
+     */
+    public boolean isGameOver() {
+        return myGameOver;
+    }
+
+    /**
+     * Returns the wall clock time spent playing the game.
+     * 
+     * @return the elapsed time in nanoseconds.
+     */
+    public long getNanos() {
+        return myNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("pieces=%d lines=%d commands=%d gameOver=%b time=%.3fms",
+                             myPieces, myLines, myCommands, myGameOver, myNanos / 1e6);
+    }
+}
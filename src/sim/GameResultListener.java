@@ -0,0 +1,26 @@
+/*
+ * TCSS 305 - Project Tetris
+ */
+
+package sim;
+
+/**
+ * Receives the result of each game played by a BatchRunner.
+ * 
+ * Results are delivered from the worker threads as soon as each game ends,
+ * so implementations must be thread safe.
+ * 
+ * @author TCSS 305 Instructors
+ * @version Autumn 2016
+ */
+public interface GameResultListener {
+
+    /**
+     * Called when a game of the batch is finished.
+     * 
+     * @param theGame the index of the game in the batch.
+     * @param theSeed the seed the game was derived from.
+     * @param theResult the result of the game.
+     */
+    void gameFinished(int theGame, long theSeed, GameResult theResult);
+}
@@ -0,0 +1,154 @@
+/*
+ * TCSS 305 - Project Tetris
+ */
+
+package sim;
+
+import model.Board;
+import model.BoardEvent;
+import model.BoardListener;
+
+/**
+ * Plays complete Tetris games without a user interface, as fast as the CPU allows.
+ * 
+ * Commands come from an InputSource and there is no gravity timer; a game ends
+ * when the board fills up, the input is exhausted or a piece limit is reached.
+ * A GameRunner reuses one Board and is not thread safe.
+ * 
+ * @author TCSS 305 Instructors
+ * @version Autumn 2016
+ */
+public class GameRunner implements BoardListener {
+
+    /** Default number of games played by main. */
+    private static final int DEFAULT_GAMES = 1000;
+
+    /** Default piece limit per game used by main. */
+    private static final int DEFAULT_MAX_PIECES = 10000;
+
+    /** Nanoseconds per second. */
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    /** The Board the games are played on. */
+    private final Board myBoard;
+
+    /** Pieces frozen in the current game. */
+    private long myPieces;
+
+    /** Rows cleared in the current game. */
+    private long myLines;
+
+    /** If the current game is over. */
+    private boolean myGameOver;
+
+    /**
+     * Constructs a runner for standard size boards.
+     */
+    public GameRunner() {
+        this(new Board());
+    }
+
+    /**
+     * Constructs a runner playing on the given Board.
+     * 
+     * @param theBoard the Board to play on.
+     */
+    public GameRunner(final Board theBoard) {
+        myBoard = theBoard;
+        myBoard.addBoardListener(this, BoardEvent.Type.PIECE_LOCKED,
+                                 BoardEvent.Type.ROWS_CLEARED, BoardEvent.Type.GAME_OVER);
+    }
+
+    /**
+     * Returns the Board the games are played on.
+     * 
+     * @return the Board.
+     */
+    public Board getBoard() {
+        return myBoard;
+    }
+
+    /**
+     * Plays one game from a new board.
+     * 
+     * @param theInput the source of commands.
+     * @param theMaxPieces the number of pieces after which the game stops.
+     * @return the result of the game.
+     */
+    public GameResult play(final InputSource theInput, final long theMaxPieces) {
+        final long start = System.nanoTime();
+        myPieces = 0;
+        myLines = 0;
+        myGameOver = false;
+        myBoard.newGame();
+        
+        long commands = 0;
+        while (!myGameOver && myPieces < theMaxPieces) {
+            final Command command = theInput.nextCommand(myBoard);
+            if (command == null) {
+                break;
+            }
+            command.apply(myBoard);
+            commands++;
+        }
+        return new GameResult(myPieces, myLines, commands, myGameOver,
+                              System.nanoTime() - start);
+    }
+
+    /**
+     * Counts frozen pieces and cleared rows of the current game.
+     * 
+     * @param theEvent the change received from the Board.
+     */
+    @Override
+    public void boardChanged(final BoardEvent theEvent) {
+        switch (theEvent.getType()) {
+            case PIECE_LOCKED:
+                myPieces++;
+                break;
+            case ROWS_CLEARED:
+                myLines += theEvent.getRowCount();
+                break;
+            case GAME_OVER:
+                myGameOver = true;
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Plays random bot games and reports throughput.
+     * 
+     * Arguments, all optional: number of games, piece limit per game,
+     * board width, board height, random seed, and "-v" to print every game.
+     * 
+     * @param theArgs Command line arguments.
+     */
+    public static void main(final String[] theArgs) {
+        final int games = Arguments.intArg(theArgs, 0, DEFAULT_GAMES);
+        final int maxPieces = Arguments.intArg(theArgs, 1, DEFAULT_MAX_PIECES);
+        final Board board = new Board(Arguments.intArg(theArgs, 2, new Board().getWidth()),
+                                      Arguments.intArg(theArgs, 3, new Board().getHeight()));
+        final long seed = Arguments.longArg(theArgs, 4, 0);
+        final boolean verbose = theArgs.length > 5 && "-v".equals(theArgs[5]);
+        
+        final GameRunner runner = new GameRunner(board);
+        long pieces = 0;
+        long lines = 0;
+        final long start = System.nanoTime();
+        for (int i = 0; i < games; i++) {
+            final GameResult result = runner.play(new RandomInputSource(seed + i), maxPieces);
+            pieces += result.getPieces();
+            lines += result.getLines();
+            if (verbose) {
+                System.out.println("game " + i + ": " + result);
+            }
+        }
+        final double seconds = (System.nanoTime() - start) / NANOS_PER_SECOND;
+        System.out.printf("%d games, %d pieces, %d lines in %.3f s%n",
+                          games, pieces, lines, seconds);
+        System.out.printf("%.1f games/s, %.0f pieces/s%n",
+                          games / seconds, pieces / seconds);
+    }
+}
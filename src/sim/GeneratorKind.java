@@ -0,0 +1,72 @@
+/*
+ * TCSS 305 - Project Tetris
+ */
+
+package sim;
+
+import model.BagPieceGenerator;
+import model.HistoryPieceGenerator;
+import model.PieceGenerator;
+import model.UniformPieceGenerator;
+
+/**
+ * The kinds of piece generators, so that a kind can be named on the command
+ * line and stored in a recording.
+ *
+ * @author TCSS 305 Instructors
+ * @version Autumn 2016
+ */
+public enum GeneratorKind {
+
+    /** Every piece drawn independently. */
+    UNIFORM {
+        @Override
+        public PieceGenerator create(final long theSeed) {
+            return new UniformPieceGenerator(theSeed);
+        }
+    },
+
+    /** Shuffled bags of seven pieces. */
+    BAG {
+        @Override
+        public PieceGenerator create(final long theSeed) {
+            return new BagPieceGenerator(theSeed);
+        }
+    },
+
+    /** Random pieces avoiding the most recent ones. */
+    HISTORY {
+        @Override
+        public PieceGenerator create(final long theSeed) {
+            return new HistoryPieceGenerator(theSeed);
+        }
+    };
+
+    /**
+     * Creates a seeded generator of this kind.
+     *
+     * @param theSeed the seed.
+     * @return the new generator.
+     */
+    public abstract PieceGenerator create(long theSeed);
+
+    /**
+     * Finds a kind by its name, ignoring case.
+     *
+     * @param theName the name of the kind, for example "bag".
+     * @return the kind.
+     * @throws IllegalArgumentException if no kind has that name.
+     */
+    public static GeneratorKind forName(final String theName) {
+        GeneratorKind result = null;
+        for (final GeneratorKind kind : values()) {
+            if (kind.name().equalsIgnoreCase(theName)) {
+                result = kind;
+            }
+        }
+        if (result == null) {
+            throw new IllegalArgumentException("Unknown piece generator: " + theName);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,24 @@
+/*
+ * TCSS 305 - Project Tetris
+ */
+
+package sim;
+
+import model.Board;
+
+/**
+ * A source of player commands for a headless game.
+ * 
+ * @author TCSS 305 Instructors
+ * @version Autumn 2016
+ */
+public interface InputSource {
+
+    /**
+     * Returns the next command to perform.
+     * 
+     * @param theBoard the Board the command will be applied to.
+     * @return the next command, or null when the input is exhausted.
+     */
+    Command nextCommand(Board theBoard);
+}
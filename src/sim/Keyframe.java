@@ -0,0 +1,242 @@
+/*
+ * TCSS 305 - Project Tetris
+ */
+
+package sim;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import model.BitBoard;
+import model.Block;
+import model.BoardState;
+import model.GeneratorState;
+import model.TetrisPiece;
+
+/**
+ * A Board snapshot stored in a recording, with the number of commands and
+ * the game time it was taken at.
+ *
+ * The encoding holds, in order: the command count and time as varints, the
+ * board width and height as varints, the number of rows holding blocks as a
+ * varint, then for each of those rows its occupied bits as a varint followed
+ * by one Block ordinal byte per occupied cell from left to right. It ends with
+ * the packed current piece as an int, the next piece ordinal as a byte (-1 for
+ * none), the game over flag as a byte, the 8 byte generator seed and the
+ * number of dealt pieces as a varint. From version 3 the state of the piece
+ * generator follows: the 8 byte SplitMixRandom state, the number of pieces
+ * generated but not dealt as a varint and their ordinals as bytes, the number
+ * of pieces the generator remembers as a varint, their ordinals as bytes and
+ * the position of the generator in them as a varint.
+ *
+ * @author TCSS 305 Instructors
+ * @version Autumn 2016
+ */
+final class Keyframe {
+
+    /** The Block types indexed by ordinal. */
+    private static final Block[] BLOCKS = Block.values();
+
+    /** The TetrisPieces indexed by ordinal. */
+    private static final TetrisPiece[] PIECES = TetrisPiece.values();
+
+    /** The number of commands applied before the snapshot. */
+    private final int myCommands;
+
+    /** The game time of the snapshot in milliseconds. */
+    private final long myTime;
+
+    /** The snapshot. */
+    private final BoardState myState;
+
+    /** The state of the piece generator, or null in a version 2 keyframe. */
+    private final GeneratorState myGenerator;
+
+    /**
+     * Constructs a Keyframe.
+     *
+     * @param theCommands the number of commands applied before the snapshot.
+     * @param theTime the game time of the snapshot in milliseconds.
+     * @param theState the snapshot.
+     * @param theGenerator the state of the piece generator, or null if only
+     *        its seed and dealt pieces are known.
+     */
+    Keyframe(final int theCommands, final long theTime, final BoardState theState,
+             final GeneratorState theGenerator) {
+        myCommands = theCommands;
+        myTime = theTime;
+        myState = theState;
+        myGenerator = theGenerator;
+    }
+
+    /**
+     * Returns the number of commands applied before the snapshot.
+     *
+     * @return the number of commands.
+     */
+    int getCommands() {
+        return myCommands;
+    }
+
+    /**
+     * Returns the game time of the snapshot.
+     *
+     * @return the time in milliseconds.
+     */
+    long getTime() {
+        return myTime;
+    }
+
+    /**
+     * Returns the snapshot.
+     *
+     * @return the board state.
+     */
+    BoardState getState() {
+        return myState;
+    }
+
+    /**
+     * Returns the state of the piece generator.
+     *
+     * @return the generator state, or null if the keyframe holds only the seed
+     *         and the number of dealt pieces.
+     */
+    GeneratorState getGenerator() {
+        return myGenerator;
+    }
+
+    /**
+     * Encodes this keyframe.
+     *
+     * @return the encoded bytes.
+     */
+    byte[] encode() {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            Varint.write(out, myCommands);
+            Varint.write(out, myTime);
+            final BitBoard frozen = myState.getFrozenBlocks();
+            Varint.write(out, frozen.getWidth());
+            Varint.write(out, frozen.getHeight());
+            int rows = 0;
+            for (int x = 0; x < frozen.getWidth(); x++) {
+                rows = Math.max(rows, frozen.getColumnHeight(x));
+            }
+            Varint.write(out, rows);
+            for (int y = 0; y < rows; y++) {
+                Varint.write(out, frozen.getRow(y));
+                for (int x = 0; x < frozen.getWidth(); x++) {
+                    if (frozen.isOccupied(x, y)) {
+                        out.writeByte(frozen.getBlock(x, y).ordinal());
+                    }
+                }
+            }
+            out.writeInt(myState.getCurrentPiece());
+            if (myState.getNextPiece() == null) {
+                out.writeByte(-1);
+            } else {
+                out.writeByte(myState.getNextPiece().ordinal());
+            }
+            out.writeBoolean(myState.isGameOver());
+            out.writeLong(myState.getGeneratorSeed());
+            Varint.write(out, myState.getDealtPieces());
+            out.writeLong(myGenerator.getRandomState());
+            writePieces(out, myGenerator.getLookahead());
+            writePieces(out, myGenerator.getMemory());
+            Varint.write(out, myGenerator.getPosition());
+        } catch (final IOException e) {
+            // A ByteArrayOutputStream never fails.
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decodes a keyframe at the position of a buffer, advancing the position.
+     *
+     * @param theBuffer the buffer.
+     * @param theVersion the format version of the recording.
+     * @return the keyframe.
+     * @throws IOException if the keyframe is malformed.
+     */
+    static Keyframe decode(final ByteBuffer theBuffer, final int theVersion)
+        throws IOException {
+        try {
+            final int commands = (int) Varint.read(theBuffer);
+            final long time = Varint.read(theBuffer);
+            final BitBoard frozen = new BitBoard((int) Varint.read(theBuffer),
+                                                 (int) Varint.read(theBuffer));
+            final int rows = (int) Varint.read(theBuffer);
+            for (int y = 0; y < rows; y++) {
+                final long mask = Varint.read(theBuffer);
+                for (int x = 0; x < frozen.getWidth(); x++) {
+                    if ((mask & (1L << x)) != 0) {
+                        frozen.setBlock(x, y, BLOCKS[theBuffer.get()]);
+                    }
+                }
+            }
+            final int current = theBuffer.getInt();
+            final int next = theBuffer.get();
+            TetrisPiece nextPiece = null;
+            if (next >= 0) {
+                nextPiece = PIECES[next];
+            }
+            final boolean gameOver = theBuffer.get() != 0;
+            final long seed = theBuffer.getLong();
+            final long dealt = Varint.read(theBuffer);
+            GeneratorState generator = null;
+            if (theVersion > Recording.VERSION_2) {
+                final long random = theBuffer.getLong();
+                final TetrisPiece[] lookahead = readPieces(theBuffer);
+                final TetrisPiece[] memory = readPieces(theBuffer);
+                generator = new GeneratorState(seed, random, dealt, lookahead, memory,
+                                               (int) Varint.read(theBuffer));
+            }
+            return new Keyframe(commands, time,
+                                new BoardState(frozen, current, nextPiece, gameOver,
+                                               seed, dealt),
+                                generator);
+        } catch (final RuntimeException e) {
+            // Out of range sizes, ordinals or rows, or a truncated keyframe.
+            throw new IOException("Malformed keyframe", e);
+        }
+    }
+
+    /**
+     * Writes pieces as their number followed by their ordinals.
+     *
+     * @param theOutput the output.
+     * @param thePieces the pieces.
+     * @throws IOException if the output cannot be written.
+     */
+    private static void writePieces(final DataOutputStream theOutput,
+                                    final TetrisPiece[] thePieces) throws IOException {
+        Varint.write(theOutput, thePieces.length);
+        for (final TetrisPiece piece : thePieces) {
+            theOutput.writeByte(piece.ordinal());
+        }
+    }
+
+    /**
+     * Reads pieces written by writePieces.
+     *
+     * @param theBuffer the buffer.
+     * @return the pieces.
+     * @throws IOException if the number of pieces is malformed.
+     */
+    private static TetrisPiece[] readPieces(final ByteBuffer theBuffer) throws IOException {
+        final long count = Varint.read(theBuffer);
+        if (count > theBuffer.remaining()) {
+            throw new IOException("Malformed piece count: " + count);
+        }
+        final TetrisPiece[] result = new TetrisPiece[(int) count];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = PIECES[theBuffer.get()];
+        }
+        return result;
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * TCSS 305 - Project Tetris
+ */
+
+package sim;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.SplittableRandom;
+
+import model.Board;
+
+/**
+ * A simple bot that drops every piece at a random rotation and column.
+ * The same seed always produces the same commands.
+ * 
+ * @author TCSS 305 Instructors
+ * @version Autumn 2016
+ */
+public class RandomInputSource implements InputSource {
+
+    /** The largest number of clockwise rotations worth performing. */
+    private static final int MAX_ROTATIONS = 3;
+
+    /** The random number generator choosing placements. */
+    private final SplittableRandom myRandom;
+
+    /** The remaining commands planned for the current piece. */
+    private final Deque<Command> myPlan;
+
+    /**
+     * Constructs a random bot.
+     * 
+     * @param theSeed the seed of the placement choices.
+     */
+    public RandomInputSource(final long theSeed) {
+        myRandom = new SplittableRandom(theSeed);
+        myPlan = new ArrayDeque<Command>();
+    }
+
+    @Override
+    public Command nextCommand(final Board theBoard) {
+        if (myPlan.isEmpty()) {
+            final int rotations = myRandom.nextInt(MAX_ROTATIONS + 1);
+            for (int i = 0; i < rotations; i++) {
+                myPlan.add(Command.ROTATE);
+            }
+            final int shift = myRandom.nextInt(theBoard.getWidth()) - theBoard.getWidth() / 2;
+            final Command direction;
+            if (shift < 0) {
+                direction = Command.LEFT;
+            } else {
+                direction = Command.RIGHT;
+            }
+            for (int i = 0; i < Math.abs(shift); i++) {
+                myPlan.add(direction);
+            }
+            myPlan.add(Command.DROP);
+        }
+        return myPlan.poll();
+    }
+}
@@ -0,0 +1,389 @@
+/*
+ * TCSS 305 - Project Tetris
+ */
+
+package sim;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import model.Board;
+
+/**
+ * A recorded game: the board size, the piece generator and its seed, and every
+ * command with the time it was given.
+ *
+ * The binary format starts with a header:
+ * <ul>
+ * <li>the magic number 0x54455452 ("TETR") and a format version byte,</li>
+ * <li>the board width and height as varints,</li>
+ * <li>the GeneratorKind ordinal as a byte and the 8 byte seed.</li>
+ * </ul>
+ * The header is followed by one varint per command. The low 3 bits of a
+ * varint hold the Command ordinal; the remaining bits hold the milliseconds
+ * since the previous command, or since the start of the game for the first
+ * command. Most commands therefore take a single byte or two.
+ *
+ * The code 7 marks a control varint instead of a command; its remaining bits
+ * hold the control type. Version 2 and later recordings use two controls:
+ * <ul>
+ * <li>KEYFRAME is followed by the length of a Board snapshot as a varint and
+ * the snapshot itself; from version 3 the snapshot includes the state of the
+ * piece generator,</li>
+ * <li>END ends the commands. It is followed by the keyframe index: for each
+ * keyframe its byte offset as a long, its game time as a long and the number
+ * of commands before it as an int. The file ends with a trailer holding the
+ * offset of the index as a long, the number of keyframes and commands as ints
+ * and the magic number 0x54455849 ("TEXI").</li>
+ * </ul>
+ * A recording that was not closed, for example after a crash, has no END and
+ * no index; its commands can still be read.
+ *
+ * Replaying the commands on a board built by newBoard() reproduces the game.
+ *
+ * @author TCSS 305 Instructors
+ * @version Autumn 2016
+ * @see RecordingWriter
+ * @see SeekableRecording
+ */
+public final class Recording {
+
+    /** The first four bytes of every recording. */
+    static final int MAGIC = 0x54455452;
+
+    /** The last four bytes of a recording with a keyframe index. */
+    static final int TRAILER_MAGIC = 0x54455849;
+
+    /** The size of the trailer in bytes. */
+    static final int TRAILER_SIZE = Long.BYTES + 3 * Integer.BYTES;
+
+    /** The size of a keyframe index entry in bytes. */
+    static final int INDEX_ENTRY_SIZE = 2 * Long.BYTES + Integer.BYTES;
+
+    /** The first version of the format, without keyframes. */
+    static final int VERSION_1 = 1;
+
+    /** The version whose keyframes hold the seed and dealt pieces of the generator. */
+    static final int VERSION_2 = 2;
+
+    /** The current version of the format. */
+    static final int VERSION = 3;
+
+    /** The number of low bits of a command varint holding the command. */
+    static final int COMMAND_BITS = 3;
+
+    /** The mask of the command bits. */
+    static final int COMMAND_MASK = (1 << COMMAND_BITS) - 1;
+
+    /** The command code marking a control varint. */
+    static final int CONTROL = COMMAND_MASK;
+
+    /** The control type followed by a keyframe. */
+    static final int CONTROL_KEYFRAME = 0;
+
+    /** The control type ending the commands. */
+    static final int CONTROL_END = 1;
+
+    /** The initial capacity of the command arrays. */
+    private static final int INITIAL_CAPACITY = 256;
+
+    /** The commands indexed by ordinal. */
+    private static final Command[] COMMANDS = Command.values();
+
+    /** The board size and piece generator. */
+    private final Header myHeader;
+
+    /** The recorded commands. */
+    private final Command[] myCommands;
+
+    /** The time of each command in milliseconds since the start of the game. */
+    private final long[] myTimes;
+
+    /**
+     * Constructs a recording.
+     *
+     * @param theHeader the board size and piece generator.
+     * @param theCommands the recorded commands.
+     * @param theTimes the time of each command in milliseconds.
+     */
+    private Recording(final Header theHeader, final Command[] theCommands,
+                      final long[] theTimes) {
+        myHeader = theHeader;
+        myCommands = theCommands;
+        myTimes = theTimes;
+    }
+
+    /**
+     * Reads a recording from a file.
+     *
+     * @param thePath the file.
+     * @return the recording.
+     * @throws IOException if the file cannot be read or is not a recording.
+     */
+    public static Recording read(final Path thePath) throws IOException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(thePath))) {
+            return read(in);
+        }
+    }
+
+    /**
+     * Reads a recording from a stream, up to the end of the stream.
+     *
+     * @param theInput the stream.
+     * @return the recording.
+     * @throws IOException if the stream cannot be read or is not a recording.
+     */
+    public static Recording read(final InputStream theInput) throws IOException {
+        final DataInputStream in = new DataInputStream(theInput);
+        final Header header = Header.read(in);
+
+        Command[] commands = new Command[INITIAL_CAPACITY];
+        long[] times = new long[INITIAL_CAPACITY];
+        int count = 0;
+        long time = 0;
+        int first = in.read();
+        while (first >= 0) {
+            final long value = Varint.read(in, first);
+            final int code = (int) (value & COMMAND_MASK);
+            if (code == CONTROL) {
+                if (value >>> COMMAND_BITS == CONTROL_END) {
+                    break;
+                }
+                final long length = Varint.read(in);
+                if (length > Integer.MAX_VALUE || in.skipBytes((int) length) != length) {
+                    throw new IOException("Malformed keyframe");
+                }
+            } else {
+                if (code >= COMMANDS.length) {
+                    throw new IOException("Unknown command: " + code);
+                }
+                time += value >>> COMMAND_BITS;
+                if (count == commands.length) {
+                    commands = Arrays.copyOf(commands, count * 2);
+                    times = Arrays.copyOf(times, count * 2);
+                }
+                commands[count] = COMMANDS[code];
+                times[count] = time;
+                count++;
+            }
+            first = in.read();
+        }
+        return new Recording(header, Arrays.copyOf(commands, count),
+                             Arrays.copyOf(times, count));
+    }
+
+    /**
+     * Creates a new Board of the recorded size dealing the recorded pieces.
+     * Call newGame() on it before applying the commands.
+     *
+     * @return the new Board.
+     */
+    public Board newBoard() {
+        return myHeader.newBoard();
+    }
+
+    /**
+     * Creates an InputSource playing the recorded commands once, as fast as
+     * they are requested.
+     *
+     * @return the new InputSource.
+     */
+    public InputSource newInput() {
+        return new ScriptedInputSource(Arrays.asList(myCommands));
+    }
+
+    /**
+     * Get the width of the recorded board.
+     *
+     * @return Width of the board.
+     */
+    public int getWidth() {
+        return myHeader.myWidth;
+    }
+
+    /**
+     * Get the height of the recorded board.
+     *
+     * @return Height of the board.
+     */
+    public int getHeight() {
+        return myHeader.myHeight;
+    }
+
+    /**
+     * Returns the kind of piece generator.
+     *
+     * @return the kind of piece generator.
+     */
+    public GeneratorKind getGenerator() {
+        return myHeader.myGenerator;
+    }
+
+    /**
+     * Returns the seed of the piece generator.
+     *
+     * @return the seed.
+     */
+    public long getSeed() {
+        return myHeader.mySeed;
+    }
+
+    /**
+     * Returns the number of recorded commands.
+     *
+     * @return the number of commands.
+     */
+    public int size() {
+        return myCommands.length;
+    }
+
+    /**
+     * Returns a recorded command.
+     *
+     * @param theIndex the index of the command.
+     * @return the command.
+     */
+    public Command getCommand(final int theIndex) {
+        return myCommands[theIndex];
+    }
+
+    /**
+     * Returns the time of a recorded command.
+     *
+     * @param theIndex the index of the command.
+     * @return the milliseconds since the start of the game.
+     */
+    public long getTime(final int theIndex) {
+        return myTimes[theIndex];
+    }
+
+    @Override
+    public String toString() {
+        return myHeader + ", " + myCommands.length + " commands";
+    }
+
+    /**
+     * The header of a recording: the board size and the piece generator.
+     */
+    static final class Header {
+
+        /** Width of the board. */
+        private final int myWidth;
+
+        /** Height of the board. */
+        private final int myHeight;
+
+        /** The kind of piece generator. */
+        private final GeneratorKind myGenerator;
+
+        /** The seed of the piece generator. */
+        private final long mySeed;
+
+        /** The format version. */
+        private final int myVersion;
+
+        /**
+         * Constructs a Header.
+         *
+         * @param theWidth Width of the board.
+         * @param theHeight Height of the board.
+         * @param theGenerator the kind of piece generator.
+         * @param theSeed the seed of the piece generator.
+         * @param theVersion the format version.
+         */
+        Header(final int theWidth, final int theHeight, final GeneratorKind theGenerator,
+               final long theSeed, final int theVersion) {
+            myWidth = theWidth;
+            myHeight = theHeight;
+            myGenerator = theGenerator;
+            mySeed = theSeed;
+            myVersion = theVersion;
+        }
+
+        /**
+         * Reads a header.
+         *
+         * @param theInput the input positioned at the start of the recording.
+         * @return the header.
+         * @throws IOException if the input cannot be read or is not a recording.
+         */
+        static Header read(final DataInputStream theInput) throws IOException {
+            if (theInput.readInt() != MAGIC) {
+                throw new IOException("Not a Tetris recording");
+            }
+            final int version = theInput.readUnsignedByte();
+            if (version < VERSION_1 || version > VERSION) {
+                throw new IOException("Unsupported recording version: " + version);
+            }
+            final int width = readSize(theInput);
+            final int height = readSize(theInput);
+            final int generator = theInput.readUnsignedByte();
+            if (generator >= GeneratorKind.values().length) {
+                throw new IOException("Unknown piece generator: " + generator);
+            }
+            return new Header(width, height, GeneratorKind.values()[generator],
+                              theInput.readLong(), version);
+        }
+
+        /**
+         * Writes this header.
+         *
+         * @param theOutput the output.
+         * @throws IOException if the output cannot be written.
+         */
+        void write(final DataOutput theOutput) throws IOException {
+            theOutput.writeInt(MAGIC);
+            theOutput.writeByte(myVersion);
+            Varint.write(theOutput, myWidth);
+            Varint.write(theOutput, myHeight);
+            theOutput.writeByte(myGenerator.ordinal());
+            theOutput.writeLong(mySeed);
+        }
+
+        /**
+         * Returns the format version.
+         *
+         * @return the version.
+         */
+        int getVersion() {
+            return myVersion;
+        }
+
+        /**
+         * Creates a new Board of the recorded size dealing the recorded pieces.
+         *
+         * @return the new Board.
+         */
+        Board newBoard() {
+            final Board board = new Board(myWidth, myHeight);
+            board.setPieceGenerator(myGenerator.create(mySeed));
+            return board;
+        }
+
+        @Override
+        public String toString() {
+            return myWidth + " x " + myHeight + ' ' + myGenerator + " seed " + mySeed;
+        }
+
+        /**
+         * Reads a board dimension written as a varint.
+         *
+         * @param theInput the input.
+         * @return the dimension.
+         * @throws IOException if the input cannot be read or the dimension is too large.
+         */
+        private static int readSize(final InputStream theInput) throws IOException {
+            final long result = Varint.read(theInput);
+            if (result > Integer.MAX_VALUE) {
+                throw new IOException("Malformed board size: " + result);
+            }
+            return (int) result;
+        }
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * TCSS 305 - Project Tetris
+ */
+
+package sim;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import model.Board;
+import model.BoardState;
+import model.GeneratorState;
+
+/**
+ * Writes a game recording as the commands are given.
+ *
+ * The header is written when the writer is created and every command is
+ * appended as a single varint, so a recording can be written while the game
+ * is played. Board snapshots written between the commands as keyframes let a
+ * SeekableRecording jump into the middle of the game; their index is written
+ * when the writer is closed. See Recording for the format.
+ *
+ * @author TCSS 305 Instructors
+ * @version Autumn 2016
+ * @see Recording
+ */
+public final class RecordingWriter implements Closeable {
+
+    /** The default number of commands between keyframes. */
+    public static final int DEFAULT_KEYFRAME_INTERVAL = 1000;
+
+    /** The stream the recording is written to. */
+    private final DataOutputStream myOutput;
+
+    /** The keyframe index, written when the writer is closed. */
+    private final ByteArrayOutputStream myIndexBytes = new ByteArrayOutputStream();
+
+    /** The stream the keyframe index is collected in. */
+    private final DataOutputStream myIndex = new DataOutputStream(myIndexBytes);
+
+    /** The number of commands between keyframes written by writeKeyframeIfDue. */
+    private int myKeyframeInterval = DEFAULT_KEYFRAME_INTERVAL;
+
+    /** The time of the last command in milliseconds. */
+    private long myLastTime;
+
+    /** The number of commands written. */
+    private int myCommands;
+
+    /** The number of commands written before the last keyframe. */
+    private int myLastKeyframe;
+
+    /** The number of keyframes written. */
+    private int myKeyframes;
+
+    /**
+     * Creates a writer and writes the header of the recording.
+     *
+     * @param theOutput the stream to write to; closed by close().
+     * @param theWidth Width of the board.
+     * @param theHeight Height of the board.
+     * @param theGenerator the kind of piece generator of the board.
+     * @param theSeed the seed of the piece generator.
+     * @throws IOException if the header cannot be written.
+     */
+    public RecordingWriter(final OutputStream theOutput, final int theWidth,
+                           final int theHeight, final GeneratorKind theGenerator,
+                           final long theSeed) throws IOException {
+        myOutput = new DataOutputStream(theOutput);
+        new Recording.Header(theWidth, theHeight, theGenerator, theSeed,
+                             Recording.VERSION).write(myOutput);
+    }
+
+    /**
+     * Creates a writer for a new file and writes the header of the recording.
+     *
+     * @param thePath the file to create or replace.
+     * @param theWidth Width of the board.
+     * @param theHeight Height of the board.
+     * @param theGenerator the kind of piece generator of the board.
+     * @param theSeed the seed of the piece generator.
+     * @return the writer.
+     * @throws IOException if the file cannot be written.
+     */
+    public static RecordingWriter create(final Path thePath, final int theWidth,
+                                         final int theHeight,
+                                         final GeneratorKind theGenerator,
+                                         final long theSeed) throws IOException {
+        return new RecordingWriter(new BufferedOutputStream(Files.newOutputStream(thePath)),
+                                   theWidth, theHeight, theGenerator, theSeed);
+    }
+
+    /**
+     * Appends a command.
+     *
+     * @param theCommand the command.
+     * @param theTime the time of the command in milliseconds since the start of the game.
+     * @throws IOException if the command cannot be written.
+     * @throws IllegalArgumentException if the time is before the previous command.
+     */
+    public void write(final Command theCommand, final long theTime) throws IOException {
+        if (theTime < myLastTime) {
+            throw new IllegalArgumentException("Command time " + theTime
+                                               + " is before the previous command");
+        }
+        Varint.write(myOutput, (theTime - myLastTime) << Recording.COMMAND_BITS
+                               | theCommand.ordinal());
+        myLastTime = theTime;
+        myCommands++;
+    }
+
+    /**
+     * Appends a keyframe holding the state of the board after the last command.
+     *
+     * @param theState the state of the board.
+     * @param theGenerator the state of the piece generator of the board.
+     * @throws IOException if the keyframe cannot be written.
+     */
+    public void writeKeyframe(final BoardState theState, final GeneratorState theGenerator)
+        throws IOException {
+        final long offset = myOutput.size();
+        final byte[] keyframe =
+            new Keyframe(myCommands, myLastTime, theState, theGenerator).encode();
+        Varint.write(myOutput, Recording.CONTROL_KEYFRAME << Recording.COMMAND_BITS
+                               | Recording.CONTROL);
+        Varint.write(myOutput, keyframe.length);
+        myOutput.write(keyframe);
+        myIndex.writeLong(offset);
+        myIndex.writeLong(myLastTime);
+        myIndex.writeInt(myCommands);
+        myLastKeyframe = myCommands;
+        myKeyframes++;
+    }
+
+    /**
+     * Appends a keyframe holding the state of the board if the keyframe
+     * interval has passed since the last one.
+     *
+     * @param theBoard the board the commands are applied to.
+     * @throws IOException if the keyframe cannot be written.
+     */
+    public void writeKeyframeIfDue(final Board theBoard) throws IOException {
+        if (myCommands - myLastKeyframe >= myKeyframeInterval) {
+            writeKeyframe(theBoard.getState(), theBoard.getGeneratorState());
+        }
+    }
+
+    /**
+     * Sets the number of commands between keyframes written by writeKeyframeIfDue.
+     * Shorter intervals make seeking faster and recordings larger.
+     *
+     * @param theInterval the number of commands.
+     * @throws IllegalArgumentException if the interval is not positive.
+     */
+    public void setKeyframeInterval(final int theInterval) {
+        if (theInterval <= 0) {
+            throw new IllegalArgumentException("Keyframe interval must be positive: "
+                                               + theInterval);
+        }
+        myKeyframeInterval = theInterval;
+    }
+
+    /**
+     * Writes buffered commands to the underlying stream.
+     *
+     * @throws IOException if the commands cannot be written.
+     */
+    public void flush() throws IOException {
+        myOutput.flush();
+    }
+
+    /**
+     * Ends the commands, writes the keyframe index and closes the stream.
+     *
+     * @throws IOException if the index cannot be written.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            Varint.write(myOutput, Recording.CONTROL_END << Recording.COMMAND_BITS
+                                   | Recording.CONTROL);
+            final long indexOffset = myOutput.size();
+            myIndexBytes.writeTo(myOutput);
+            myOutput.writeLong(indexOffset);
+            myOutput.writeInt(myKeyframes);
+            myOutput.writeInt(myCommands);
+            myOutput.writeInt(Recording.TRAILER_MAGIC);
+        } finally {
+            myOutput.close();
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * TCSS 305 - Project Tetris
+ */
+
+package sim;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Replays recorded games headless, as fast as the CPU allows.
+ *
+ * Every recording is played on a new board built from its header, and the
+ * result of each game and a hash of its final board are printed on their own
+ * line. Printing the results of the same recordings before and after a rule
+ * change shows every game whose outcome changed.
+ *
+ * @author TCSS 305 Instructors
+ * @version Autumn 2016
+ */
+public final class Replay {
+
+    /** The file name extension of recordings. */
+    public static final String EXTENSION = ".tetr";
+
+    /** Nanoseconds per second. */
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    /**
+     * Private constructor, to prevent instantiation of this class.
+     */
+    private Replay() {
+        throw new IllegalStateException();
+    }
+
+    /**
+     * Replays a recording.
+     *
+     * @param theRecording the recording.
+     * @return the result of the game.
+     */
+    public static GameResult play(final Recording theRecording) {
+        return new GameRunner(theRecording.newBoard()).play(theRecording.newInput(),
+                                                            Long.MAX_VALUE);
+    }
+
+    /**
+     * Replays recordings and prints their results.
+     *
+     * Arguments: recording files, or directories whose recordings are replayed
+     * in name order.
+     *
+     * @param theArgs Command line arguments.
+     * @throws IOException if a recording cannot be read.
+     */
+    public static void main(final String[] theArgs) throws IOException {
+        final List<Path> files = new ArrayList<Path>();
+        for (final String arg : theArgs) {
+            final Path path = Paths.get(arg);
+            if (Files.isDirectory(path)) {
+                final List<Path> found = new ArrayList<Path>();
+                try (DirectoryStream<Path> entries =
+                         Files.newDirectoryStream(path, '*' + EXTENSION)) {
+                    for (final Path entry : entries) {
+                        found.add(entry);
+                    }
+                }
+                Collections.sort(found);
+                files.addAll(found);
+            } else {
+                files.add(path);
+            }
+        }
+
+        long commands = 0;
+        long pieces = 0;
+        long nanos = 0;
+        for (final Path file : files) {
+            final Recording recording = Recording.read(file);
+            final GameRunner runner = new GameRunner(recording.newBoard());
+            final GameResult result = runner.play(recording.newInput(), Long.MAX_VALUE);
+            // No timings here, so that the output of two runs can be compared.
+            System.out.printf("%s: pieces=%d lines=%d gameOver=%b board=%08x%n", file,
+                              result.getPieces(), result.getLines(), result.isGameOver(),
+                              runner.getBoard().toString().hashCode());
+            commands += result.getCommands();
+            pieces += result.getPieces();
+            nanos += result.getNanos();
+        }
+        final double seconds = nanos / NANOS_PER_SECOND;
+        System.out.printf("%d games, %d commands, %d pieces in %.3f s: %.0f commands/s%n",
+                          files.size(), commands, pieces, seconds, commands / seconds);
+    }
+}
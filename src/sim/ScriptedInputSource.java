@@ -0,0 +1,59 @@
+/*
+ * TCSS 305 - Project Tetris
+ */
+
+package sim;
+
+import java.util.List;
+
+import model.Board;
+
+/**
+ * An InputSource that plays back a fixed sequence of commands.
+ * 
+ * @author TCSS 305 Instructors
+ * @version Autumn 2016
+ */
+public class ScriptedInputSource implements InputSource {
+
+    /** The commands to play. */
+    private final Command[] myCommands;
+
+    /** If the sequence starts over once it is exhausted. */
+    private final boolean myLoop;
+
+    /** The index of the next command. */
+    private int myIndex;
+
+    /**
+     * Constructs an InputSource that plays the commands once.
+     * 
+     * @param theCommands the commands to play.
+     */
+    public ScriptedInputSource(final List<Command> theCommands) {
+        this(theCommands, false);
+    }
+
+    /**
+     * Constructs an InputSource that plays the commands.
+     * 
+     * @param theCommands the commands to play.
+     * @param theLoop true to start the sequence over once it is exhausted.
+     */
+    public ScriptedInputSource(final List<Command> theCommands, final boolean theLoop) {
+        myCommands = theCommands.toArray(new Command[theCommands.size()]);
+        myLoop = theLoop;
+    }
+
+    @Override
+    public Command nextCommand(final Board theBoard) {
+        if (myLoop && myIndex == myCommands.length) {
+            myIndex = 0;
+        }
+        Command result = null;
+        if (myIndex < myCommands.length) {
+            result = myCommands[myIndex++];
+        }
+        return result;
+    }
+}
@@ -0,0 +1,286 @@
+/*
+ * TCSS 305 - Project Tetris
+ */
+
+package sim;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import model.Board;
+
+/**
+ * A closed recording mapped into memory, whose keyframe index lets any point
+ * of the game be reached without replaying it from the start.
+ *
+ * Seeking restores the last keyframe at or before the target and replays only
+ * the commands after it, so it takes time proportional to the keyframe
+ * interval rather than to the length of the game. Keyframes of version 2
+ * recordings hold only the seed and the number of dealt pieces of the piece
+ * generator, so restoring them also deals every piece of the game again.
+ * Only the index is read when the recording is opened; the keyframes and
+ * commands are decoded from the mapped file when they are needed.
+ * Recordings are limited to 2 GB.
+ *
+ * @author TCSS 305 Instructors
+ * @version Autumn 2016
+ * @see Recording
+ */
+public final class SeekableRecording {
+
+    /** The commands indexed by ordinal. */
+    private static final Command[] COMMANDS = Command.values();
+
+    /** The mask of an unsigned byte. */
+    private static final int BYTE_MASK = 0xFF;
+
+    /** The mapped file. */
+    private final ByteBuffer myBuffer;
+
+    /** The board size and piece generator. */
+    private final Recording.Header myHeader;
+
+    /** The offset of the first command. */
+    private final int myCommandsOffset;
+
+    /** The number of recorded commands. */
+    private final int myCommands;
+
+    /** The offset of each keyframe. */
+    private final long[] myKeyframeOffsets;
+
+    /** The game time of each keyframe in milliseconds. */
+    private final long[] myKeyframeTimes;
+
+    /** The number of commands before each keyframe. */
+    private final long[] myKeyframeCommands;
+
+    /**
+     * Parses the header and the keyframe index of a mapped recording.
+     *
+     * @param theBuffer the mapped file.
+     * @throws IOException if the file is not a closed recording.
+     */
+    private SeekableRecording(final ByteBuffer theBuffer) throws IOException {
+        myBuffer = theBuffer;
+        final ByteBuffer header = theBuffer.duplicate();
+        myHeader = Recording.Header.read(new DataInputStream(asStream(header)));
+        myCommandsOffset = header.position();
+
+        final int trailer = theBuffer.limit() - Recording.TRAILER_SIZE;
+        if (trailer < myCommandsOffset
+            || theBuffer.getInt(theBuffer.limit() - Integer.BYTES) != Recording.TRAILER_MAGIC) {
+            throw new IOException("Recording has no keyframe index");
+        }
+        final long indexOffset = theBuffer.getLong(trailer);
+        final int keyframes = theBuffer.getInt(trailer + Long.BYTES);
+        myCommands = theBuffer.getInt(trailer + Long.BYTES + Integer.BYTES);
+        if (keyframes < 0 || myCommands < 0 || indexOffset < myCommandsOffset
+            || indexOffset + (long) keyframes * Recording.INDEX_ENTRY_SIZE != trailer) {
+            throw new IOException("Malformed keyframe index");
+        }
+
+        myKeyframeOffsets = new long[keyframes];
+        myKeyframeTimes = new long[keyframes];
+        myKeyframeCommands = new long[keyframes];
+        final ByteBuffer index = theBuffer.duplicate();
+        index.position((int) indexOffset);
+        for (int i = 0; i < keyframes; i++) {
+            myKeyframeOffsets[i] = index.getLong();
+            myKeyframeTimes[i] = index.getLong();
+            myKeyframeCommands[i] = index.getInt();
+        }
+    }
+
+    /**
+     * Maps a recording into memory and reads its keyframe index.
+     *
+     * @param thePath the file, written by a RecordingWriter that was closed.
+     * @return the recording.
+     * @throws IOException if the file cannot be read or is not a closed recording.
+     */
+    public static SeekableRecording open(final Path thePath) throws IOException {
+        try (FileChannel channel = FileChannel.open(thePath, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Recording is too large: " + channel.size() + " bytes");
+            }
+            // The mapping stays valid after the channel is closed.
+            return new SeekableRecording(channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                                                     channel.size()));
+        }
+    }
+
+    /**
+     * Creates a new Board of the recorded size dealing the recorded pieces.
+     * Call newGame() on it before applying the commands.
+     *
+     * @return the new Board.
+     */
+    public Board newBoard() {
+        return myHeader.newBoard();
+    }
+
+    /**
+     * Returns the number of recorded commands.
+     *
+     * @return the number of commands.
+     */
+    public int size() {
+        return myCommands;
+    }
+
+    /**
+     * Returns the number of keyframes.
+     *
+     * @return the number of keyframes.
+     */
+    public int getKeyframeCount() {
+        return myKeyframeOffsets.length;
+    }
+
+    /**
+     * Creates a Board in the state the recorded game was in after a number of
+     * commands.
+     *
+     * @param theCommands the number of commands; 0 for the start of the game.
+     * @return the new Board.
+     * @throws IOException if the recording is malformed.
+     * @throws IllegalArgumentException if the number of commands is negative or
+     *         larger than the size of the recording.
+     */
+    public Board seek(final int theCommands) throws IOException {
+        if (theCommands < 0 || theCommands > myCommands) {
+            throw new IllegalArgumentException("Command " + theCommands + " is outside 0.."
+                                               + myCommands);
+        }
+        return play(floor(myKeyframeCommands, theCommands), theCommands, Long.MAX_VALUE);
+    }
+
+    /**
+     * Creates a Board in the state the recorded game was in at a game time,
+     * after every command given up to and including that time.
+     *
+     * @param theTime the milliseconds since the start of the game.
+     * @return the new Board.
+     * @throws IOException if the recording is malformed.
+     */
+    public Board seekTime(final long theTime) throws IOException {
+        return play(floor(myKeyframeTimes, theTime), myCommands, theTime);
+    }
+
+    @Override
+    public String toString() {
+        return myHeader + ", " + myCommands + " commands, "
+               + myKeyframeOffsets.length + " keyframes";
+    }
+
+    /**
+     * Restores a keyframe and replays the commands after it.
+     *
+     * @param theKeyframe the index of the keyframe, or -1 to start a new game.
+     * @param theMaxCommands the number of commands to stop after.
+     * @param theMaxTime the game time to stop after.
+     * @return the board.
+     * @throws IOException if the recording is malformed.
+     */
+    private Board play(final int theKeyframe, final int theMaxCommands,
+                       final long theMaxTime) throws IOException {
+        final Board board = newBoard();
+        final ByteBuffer in = myBuffer.duplicate();
+        int commands = 0;
+        long time = 0;
+        if (theKeyframe < 0) {
+            board.newGame();
+            in.position(myCommandsOffset);
+        } else {
+            in.position((int) myKeyframeOffsets[theKeyframe]);
+            final long control = Varint.read(in);
+            if (control != (Recording.CONTROL_KEYFRAME << Recording.COMMAND_BITS
+                            | Recording.CONTROL)) {
+                throw new IOException("Malformed keyframe index");
+            }
+            final int length = (int) Varint.read(in);
+            final ByteBuffer payload = in.slice();
+            payload.limit(length);
+            final Keyframe keyframe = Keyframe.decode(payload, myHeader.getVersion());
+            if (keyframe.getGenerator() == null) {
+                board.setState(keyframe.getState());
+            } else {
+                board.setState(keyframe.getState(), keyframe.getGenerator());
+            }
+            commands = keyframe.getCommands();
+            time = keyframe.getTime();
+            in.position(in.position() + length);
+        }
+
+        boolean done = false;
+        while (!done && commands < theMaxCommands) {
+            final long value = Varint.read(in);
+            final int code = (int) (value & Recording.COMMAND_MASK);
+            if (code == Recording.CONTROL) {
+                if (value >>> Recording.COMMAND_BITS == Recording.CONTROL_END) {
+                    done = true;
+                } else {
+                    final int length = (int) Varint.read(in);
+                    in.position(in.position() + length);
+                }
+            } else if (code >= COMMANDS.length) {
+                throw new IOException("Unknown command: " + code);
+            } else {
+                time += value >>> Recording.COMMAND_BITS;
+                if (time > theMaxTime) {
+                    done = true;
+                } else {
+                    COMMANDS[code].apply(board);
+                    commands++;
+                }
+            }
+        }
+        return board;
+    }
+
+    /**
+     * Finds the last keyframe whose key is at most a value.
+     *
+     * @param theKeys the ascending keys of the keyframes.
+     * @param theValue the value.
+     * @return the index of the keyframe, or -1 if every key is larger.
+     */
+    private static int floor(final long[] theKeys, final long theValue) {
+        int low = 0;
+        int high = theKeys.length - 1;
+        while (low <= high) {
+            final int middle = (low + high) >>> 1;
+            if (theKeys[middle] <= theValue) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return high;
+    }
+
+    /**
+     * Wraps a buffer as a stream reading from its position.
+     *
+     * @param theBuffer the buffer; its position advances as the stream is read.
+     * @return the stream.
+     */
+    private static InputStream asStream(final ByteBuffer theBuffer) {
+        return new InputStream() {
+            @Override
+            public int read() {
+                int result = -1;
+                if (theBuffer.hasRemaining()) {
+                    result = theBuffer.get() & BYTE_MASK;
+                }
+                return result;
+            }
+        };
+    }
+}
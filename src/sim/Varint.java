@@ -0,0 +1,121 @@
+/*
+ * TCSS 305 - Project Tetris
+ */
+
+package sim;
+
+import java.io.DataOutput;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Reads and writes unsigned LEB128 varints: 7 bits per byte, low bits first,
+ * with the high bit set on every byte but the last.
+ *
+ * @author TCSS 305 Instructors
+ * @version Autumn 2016
+ */
+final class Varint {
+
+    /** The payload bits of a varint byte. */
+    private static final int BITS = 7;
+
+    /** The mask of the payload bits of a varint byte. */
+    private static final int MASK = 0x7F;
+
+    /** The flag marking a varint byte that is followed by another. */
+    private static final int MORE = 0x80;
+
+    /** The mask of an unsigned byte. */
+    private static final int BYTE_MASK = 0xFF;
+
+    /** The largest number of bytes of a varint holding a long. */
+    private static final int MAX_BYTES = 10;
+
+    /**
+     * Private constructor, to prevent instantiation of this class.
+     */
+    private Varint() {
+        throw new IllegalStateException();
+    }
+
+    /**
+     * Writes a varint.
+     *
+     * @param theOutput the output.
+     * @param theValue the value, treated as unsigned.
+     * @throws IOException if the output cannot be written.
+     */
+    static void write(final DataOutput theOutput, final long theValue) throws IOException {
+        long value = theValue;
+        while ((value & ~MASK) != 0) {
+            theOutput.writeByte((int) (value & MASK) | MORE);
+            value >>>= BITS;
+        }
+        theOutput.writeByte((int) value);
+    }
+
+    /**
+     * Reads a varint whose first byte was already read.
+     *
+     * @param theInput the stream.
+     * @param theFirst the first byte of the varint.
+     * @return the value.
+     * @throws IOException if the stream cannot be read or ends inside the varint.
+     */
+    static long read(final InputStream theInput, final int theFirst) throws IOException {
+        long result = theFirst & MASK;
+        int current = theFirst;
+        for (int i = 1; (current & MORE) != 0; i++) {
+            if (i == MAX_BYTES) {
+                throw new IOException("Malformed varint");
+            }
+            current = theInput.read();
+            if (current < 0) {
+                throw new EOFException();
+            }
+            result |= (long) (current & MASK) << (BITS * i);
+        }
+        return result;
+    }
+
+    /**
+     * Reads a varint.
+     *
+     * @param theInput the stream.
+     * @return the value.
+     * @throws IOException if the stream cannot be read or ends inside the varint.
+     */
+    static long read(final InputStream theInput) throws IOException {
+        final int first = theInput.read();
+        if (first < 0) {
+            throw new EOFException();
+        }
+        return read(theInput, first);
+    }
+
+    /**
+     * Reads a varint at the position of a buffer, advancing the position.
+     *
+     * @param theBuffer the buffer.
+     * @return the value.
+     * @throws IOException if the varint is malformed or runs past the limit.
+     */
+    static long read(final ByteBuffer theBuffer) throws IOException {
+        long result = 0;
+        int current = MORE;
+        for (int i = 0; (current & MORE) != 0; i++) {
+            if (i == MAX_BYTES) {
+                throw new IOException("Malformed varint");
+            }
+            if (!theBuffer.hasRemaining()) {
+                throw new EOFException();
+            }
+            current = theBuffer.get() & BYTE_MASK;
+            result |= (long) (current & MASK) << (BITS * i);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * TCSS 305 Autumn 2016
+ * Assignment 6 - Tetris
+ */
+
+package view;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.RoundRectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Pre-rasterized images of Tetris blocks, one per color at the current
+ * block size and shape, so that each block is drawn with a single image copy.
+ * The images are drawn again only when the block size or shape changes.
+ *
+ * Also deals the colors of the "Light them up!" mode from a fixed sequence
+ * of palette indices, so that painting does not create random generators.
+ *
+ * @author Phu-Lam Pham
+ * @version 9 December 2016
+ */
+final class BlockSprites {
+
+    /** The space around a block in its image, for the outline drawn over the edge. */
+    private static final int MARGIN = 1;
+
+    /** The stroke of the block outlines. */
+    private static final BasicStroke OUTLINE_STROKE = new BasicStroke(2);
+
+    /** The length of the palette index sequence; a power of two. */
+    private static final int SEQUENCE_LENGTH = 4096;
+
+    /** The seed of the palette index sequence. */
+    private static final long SEQUENCE_SEED = 20161209L;
+
+    /** Random palette indices, reduced by the palette size when used. */
+    private static final int[] SEQUENCE = new int[SEQUENCE_LENGTH];
+
+    static {
+        final Random random = new Random(SEQUENCE_SEED);
+        for (int i = 0; i < SEQUENCE_LENGTH; i++) {
+            SEQUENCE[i] = random.nextInt(Integer.MAX_VALUE);
+        }
+    }
+
+    /** The block images by color. */
+    private final Map<Color, BufferedImage> mySprites = new HashMap<>();
+
+    /** The Rectangle object used to draw the blocks. */
+    private final RoundRectangle2D myRect = new RoundRectangle2D.Double();
+
+    /** The size of the blocks in the images. */
+    private double mySize;
+
+    /** If the blocks in the images are circles. */
+    private boolean myIsCircle;
+
+    /**
+     * Draw a block.
+     *
+     * @param theGraphics the Graphics object used for drawing.
+     * @param theColor the fill color of the block.
+     * @param theSize the width and height of the block.
+     * @param theCircle if the block is a circle rather than a rectangle.
+     * @param theX the x coordinate of the top left corner of the block.
+     * @param theY the y coordinate of the top left corner of the block.
+     */
+    void draw(final Graphics theGraphics, final Color theColor, final double theSize,
+              final boolean theCircle, final double theX, final double theY) {
+        if (theSize != mySize || theCircle != myIsCircle) {
+            mySprites.clear();
+            mySize = theSize;
+            myIsCircle = theCircle;
+        }
+        BufferedImage sprite = mySprites.get(theColor);
+        if (sprite == null) {
+            sprite = createSprite(theColor);
+            mySprites.put(theColor, sprite);
+        }
+        theGraphics.drawImage(sprite, (int) Math.round(theX) - MARGIN,
+                              (int) Math.round(theY) - MARGIN, null);
+    }
+
+    /**
+     * Draw the image of a block of the current size and shape.
+     *
+     * @param theColor the fill color of the block.
+     * @return the image of the block.
+     */
+    private BufferedImage createSprite(final Color theColor) {
+        final int side = (int) Math.ceil(mySize) + 2 * MARGIN;
+        final BufferedImage sprite =
+                        new BufferedImage(side, side, BufferedImage.TYPE_INT_ARGB_PRE);
+        final Graphics2D g2d = sprite.createGraphics();
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+                             RenderingHints.VALUE_ANTIALIAS_ON);
+        g2d.setStroke(OUTLINE_STROKE);
+
+        double roundness = 0;
+        if (myIsCircle) {
+
+            // The size gives a perfect roundness value to make the rectangle a circle.
+            roundness = mySize;
+        }
+        myRect.setRoundRect(MARGIN, MARGIN, mySize, mySize, roundness, roundness);
+        g2d.setColor(theColor);
+        g2d.fill(myRect);
+        g2d.setColor(Color.WHITE);
+        g2d.draw(myRect);
+        g2d.dispose();
+        return sprite;
+    }
+
+    /**
+     * Return a color of the "Light them up!" mode. Consecutive positions give
+     * random looking colors, and a position always gives the same color.
+     *
+     * @param thePalette the colors to choose from.
+     * @param thePosition the position in the color sequence.
+     * @return the color at the position.
+     */
+    static Color paletteColor(final Color[] thePalette, final int thePosition) {
+        return thePalette[SEQUENCE[thePosition & (SEQUENCE_LENGTH - 1)] % thePalette.length];
+    }
+}
@@ -0,0 +1,306 @@
+/*
+ * TCSS 305 Autumn 2016
+ * Assignment 6 - Tetris
+ */
+
+package view;
+
+import java.awt.Color;
+
+import model.BoardState;
+import model.PieceState;
+
+/**
+ * An immutable frame of the game panel: the state of the game to draw, the
+ * landing position of its current piece and the options it is drawn with.
+ *
+ * The thread changing the board replaces the state and the event dispatch
+ * thread replaces the options, so that the thread painting reads both from
+ * one published frame.
+ *
+ * @author Phu-Lam Pham
+ * @version 9 December 2016
+ */
+final class GameFrame {
+
+    /** The number of columns of the board. */
+    private final int myColumns;
+
+    /** The number of rows of the board. */
+    private final int myRows;
+
+    /** The state of the game, or null before the first game on the board. */
+    private final BoardState myState;
+
+    /** The packed state of the current piece at its landing row, or PieceState.NONE. */
+    private final int myGhost;
+
+    /** The color for Tetris blocks. */
+    private final Color myBlockColor;
+
+    /** If special color mode is selected. */
+    private final boolean myIsSpecialColor;
+
+    /** If Tetris block shape circle is selected. */
+    private final boolean myIsCircle;
+
+    /** If showing grid option is enabled. */
+    private final boolean myIsGridEnabled;
+
+    /** If showing the ghost piece is enabled. */
+    private final boolean myIsGhostEnabled;
+
+    /** If game is paused. */
+    private final boolean myIsPaused;
+
+    /** If game is over. */
+    private final boolean myIsGameOver;
+
+    /**
+     * Constructs the frame of a board before its first game, with the
+     * default options.
+     *
+     * @param theColumns the number of columns of the board.
+     * @param theRows the number of rows of the board.
+     * @param theBlockColor the color for Tetris blocks.
+     */
+    GameFrame(final int theColumns, final int theRows, final Color theBlockColor) {
+        this(theColumns, theRows, null, PieceState.NONE, theBlockColor,
+             false, false, false, true, false, false);
+    }
+
+    /**
+     * Constructs a frame.
+     *
+     * @param theColumns the number of columns of the board.
+     * @param theRows the number of rows of the board.
+     * @param theState the state of the game, or null.
+     * @param theGhost the packed state of the current piece at its landing row.
+     * @param theBlockColor the color for Tetris blocks.
+     * @param theSpecialColor if special color mode is selected.
+     * @param theCircle if Tetris block shape circle is selected.
+     * @param theGrid if showing grid option is enabled.
+     * @param theGhostEnabled if showing the ghost piece is enabled.
+     * @param thePaused if game is paused.
+     * @param theGameOver if game is over.
+     */
+    private GameFrame(final int theColumns, final int theRows, final BoardState theState,
+                      final int theGhost, final Color theBlockColor,
+                      final boolean theSpecialColor, final boolean theCircle,
+                      final boolean theGrid, final boolean theGhostEnabled,
+                      final boolean thePaused, final boolean theGameOver) {
+        myColumns = theColumns;
+        myRows = theRows;
+        myState = theState;
+        myGhost = theGhost;
+        myBlockColor = theBlockColor;
+        myIsSpecialColor = theSpecialColor;
+        myIsCircle = theCircle;
+        myIsGridEnabled = theGrid;
+        myIsGhostEnabled = theGhostEnabled;
+        myIsPaused = thePaused;
+        myIsGameOver = theGameOver;
+    }
+
+    /**
+     * Return this frame for a new board, before its first game.
+     *
+     * @param theColumns the number of columns of the board.
+     * @param theRows the number of rows of the board.
+     * @return the frame with the same options and no game.
+     */
+    GameFrame withSize(final int theColumns, final int theRows) {
+        return new GameFrame(theColumns, theRows, null, PieceState.NONE, myBlockColor,
+                             myIsSpecialColor, myIsCircle, myIsGridEnabled, myIsGhostEnabled,
+                             myIsPaused, myIsGameOver);
+    }
+
+    /**
+     * Return this frame with another state of the game.
+     *
+     * @param theState the state of the game.
+     * @param theGhost the packed state of its current piece at its landing row,
+     *        or PieceState.NONE.
+     * @return the frame with the same options.
+     */
+    GameFrame withState(final BoardState theState, final int theGhost) {
+        return new GameFrame(myColumns, myRows, theState, theGhost, myBlockColor,
+                             myIsSpecialColor, myIsCircle, myIsGridEnabled, myIsGhostEnabled,
+                             myIsPaused, myIsGameOver);
+    }
+
+    /**
+     * Return this frame with another block color.
+     *
+     * @param theBlockColor the color for Tetris blocks, or null for the special color mode.
+     * @return the frame with the new color.
+     */
+    GameFrame withBlockColor(final Color theBlockColor) {
+        Color color = theBlockColor;
+        if (color == null) {
+            color = myBlockColor;
+        }
+        return new GameFrame(myColumns, myRows, myState, myGhost, color,
+                             theBlockColor == null, myIsCircle, myIsGridEnabled,
+                             myIsGhostEnabled, myIsPaused, myIsGameOver);
+    }
+
+    /**
+     * Return this frame with circle blocks selected or not.
+     *
+     * @param theCircle if the blocks are circles.
+     * @return the frame with the new option.
+     */
+    GameFrame withCircle(final boolean theCircle) {
+        return new GameFrame(myColumns, myRows, myState, myGhost, myBlockColor,
+                             myIsSpecialColor, theCircle, myIsGridEnabled, myIsGhostEnabled,
+                             myIsPaused, myIsGameOver);
+    }
+
+    /**
+     * Return this frame with the grid shown or not.
+     *
+     * @param theGrid if the grid is shown.
+     * @return the frame with the new option.
+     */
+    GameFrame withGrid(final boolean theGrid) {
+        return new GameFrame(myColumns, myRows, myState, myGhost, myBlockColor,
+                             myIsSpecialColor, myIsCircle, theGrid, myIsGhostEnabled,
+                             myIsPaused, myIsGameOver);
+    }
+
+    /**
+     * Return this frame with the ghost piece shown or not.
+     *
+     * @param theGhost if the ghost piece is shown.
+     * @return the frame with the new option.
+     */
+    GameFrame withGhostEnabled(final boolean theGhost) {
+        return new GameFrame(myColumns, myRows, myState, myGhost, myBlockColor,
+                             myIsSpecialColor, myIsCircle, myIsGridEnabled, theGhost,
+                             myIsPaused, myIsGameOver);
+    }
+
+    /**
+     * Return this frame with the game paused or not.
+     *
+     * @param thePaused if the game is paused.
+     * @return the frame with the new option.
+     */
+    GameFrame withPaused(final boolean thePaused) {
+        return new GameFrame(myColumns, myRows, myState, myGhost, myBlockColor,
+                             myIsSpecialColor, myIsCircle, myIsGridEnabled, myIsGhostEnabled,
+                             thePaused, myIsGameOver);
+    }
+
+    /**
+     * Return this frame with the game over or not. The game is no longer paused.
+     *
+     * @param theGameOver if the game is over.
+     * @return the frame with the new option.
+     */
+    GameFrame withGameOver(final boolean theGameOver) {
+        return new GameFrame(myColumns, myRows, myState, myGhost, myBlockColor,
+                             myIsSpecialColor, myIsCircle, myIsGridEnabled, myIsGhostEnabled,
+                             false, theGameOver);
+    }
+
+    /**
+     * Return the number of columns of the board.
+     *
+     * @return the number of columns.
+     */
+    int getColumns() {
+        return myColumns;
+    }
+
+    /**
+     * Return the number of rows of the board.
+     *
+     * @return the number of rows.
+     */
+    int getRows() {
+        return myRows;
+    }
+
+    /**
+     * Return the state of the game.
+     *
+     * @return the state, or null before the first game on the board.
+     */
+    BoardState getState() {
+        return myState;
+    }
+
+    /**
+     * Return where the current piece would land.
+     *
+     * @return the packed state of the current piece at its landing row, or PieceState.NONE.
+     */
+    int getGhost() {
+        return myGhost;
+    }
+
+    /**
+     * Return the color for Tetris blocks.
+     *
+     * @return the block color.
+     */
+    Color getBlockColor() {
+        return myBlockColor;
+    }
+
+    /**
+     * Return if special color mode is selected.
+     *
+     * @return true in the special color mode.
+     */
+    boolean isSpecialColor() {
+        return myIsSpecialColor;
+    }
+
+    /**
+     * Return if Tetris block shape circle is selected.
+     *
+     * @return true if the blocks are circles.
+     */
+    boolean isCircle() {
+        return myIsCircle;
+    }
+
+    /**
+     * Return if showing grid option is enabled.
+     *
+     * @return true if the grid is shown.
+     */
+    boolean isGridEnabled() {
+        return myIsGridEnabled;
+    }
+
+    /**
+     * Return if showing the ghost piece is enabled.
+     *
+     * @return true if the ghost piece is shown.
+     */
+    boolean isGhostEnabled() {
+        return myIsGhostEnabled;
+    }
+
+    /**
+     * Return if game is paused.
+     *
+     * @return true if the game is paused.
+     */
+    boolean isPaused() {
+        return myIsPaused;
+    }
+
+    /**
+     * Return if game is over, ended by the player or by the board.
+     *
+     * @return true if the game is over.
+     */
+    boolean isGameOver() {
+        return myIsGameOver || myState != null && myState.isGameOver();
+    }
+}
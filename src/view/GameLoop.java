@@ -0,0 +1,451 @@
+/*
+ * TCSS 305 Autumn 2016
+ * Assignment 6 - Tetris
+ */
+
+package view;
+
+import java.awt.Canvas;
+import java.awt.DisplayMode;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Toolkit;
+import java.awt.image.BufferStrategy;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.swing.Timer;
+
+import model.BoardEvent;
+import model.BoardListener;
+
+/**
+ * A game loop driving a Tetris game instead of a Swing timer, on two threads
+ * of its own.
+ *
+ * The game thread changes the board. Gravity ticks at fixed times measured
+ * with System.nanoTime: each tick is scheduled one gravity interval after the
+ * previous one was due, so late ticks do not shift the ones after them. Other
+ * threads hand it work through execute, which it runs before its next tick.
+ * Subscribed to GAME_OVER without an executor, the loop learns on the game
+ * thread that the game is over, and from then on neither ticks nor runs the
+ * work handed to it, so no command reaches the board or its recording after
+ * the piece that ended the game.
+ *
+ * The render thread draws the game actively into the BufferStrategy of a
+ * Canvas at the refresh rate of the display. It never touches the board or
+ * the game panel: its own GameRenderer draws the last immutable GameFrame
+ * the panel published, so a slow frame does not delay gravity or input, and
+ * the game thread may change the board many times between two frames.
+ *
+ * @author Phu-Lam Pham
+ * @version 9 December 2016
+ */
+final class GameLoop implements Executor, Runnable, BoardListener {
+
+    /** The refresh rate used when the display does not report one. */
+    private static final int DEFAULT_REFRESH_RATE = 60;
+
+    /** The number of buffers of the BufferStrategy. */
+    private static final int BUFFERS = 2;
+
+    /** The most late gravity ticks run at once before the late ones are dropped. */
+    private static final int MAX_CATCH_UP = 5;
+
+    /** Nanoseconds before a deadline from which the loop spins instead of sleeping. */
+    private static final long SPIN_NANOS = TimeUnit.MICROSECONDS.toNanos(200);
+
+    /** Nanoseconds per second. */
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    /** Nanoseconds per millisecond, as a double for the statistics. */
+    private static final double NANOS_PER_MILLI = 1e6;
+
+    /** The canvas drawn on. */
+    private final Canvas myCanvas;
+
+    /** The panel publishing the frames of the game; it is not displayed. */
+    private final GamePanel myPanel;
+
+    /** Draws the frames of the game, used only by the render thread. */
+    private final GameRenderer myRenderer;
+
+    /** The timer whose delay is the gravity interval; it is not started. */
+    private final Timer myGravity;
+
+    /** Moves the current piece down one row. */
+    private final Runnable myTick;
+
+    /** The work handed to the loop by other threads. */
+    private final Queue<Runnable> myTasks = new ConcurrentLinkedQueue<>();
+
+    /** The game thread, changing the board. */
+    private final Thread myThread;
+
+    /** The render thread, drawing the game. */
+    private final Thread myRenderThread;
+
+    /** If the loop has not been stopped. */
+    private volatile boolean myIsRunning = true;
+
+    /** If the board reported that the game is over; set on the game thread. */
+    private boolean myIsGameOver;
+
+    /** If gravity is paused; the render thread keeps drawing. */
+    private volatile boolean myIsPaused = true;
+
+    /** The number of gravity ticks. */
+    private volatile long myTicks;
+
+    /** The total time gravity ticks started after they were due, in nanoseconds. */
+    private volatile long myTickLateness;
+
+    /** The longest time a gravity tick started after it was due, in nanoseconds. */
+    private volatile long myMaxTickLateness;
+
+    /** The number of gravity ticks dropped because the loop fell too far behind. */
+    private volatile long myDroppedTicks;
+
+    /** The number of frames drawn. */
+    private volatile long myFrames;
+
+    /** The total time spent drawing frames, in nanoseconds. */
+    private volatile long myFrameTime;
+
+    /** The longest time spent drawing a frame, in nanoseconds. */
+    private volatile long myMaxFrameTime;
+
+    /**
+     * Constructs a paused game loop. The canvas must be displayable.
+     *
+     * @param theCanvas the canvas to draw on.
+     * @param thePanel the panel publishing the frames of the game; it is not displayed.
+     * @param theGravity the timer whose delay is the gravity interval.
+     * @param theTick moves the current piece down one row.
+     */
+    GameLoop(final Canvas theCanvas, final GamePanel thePanel, final Timer theGravity,
+             final Runnable theTick) {
+        myCanvas = theCanvas;
+        myPanel = thePanel;
+        myRenderer = thePanel.createRenderer();
+        myGravity = theGravity;
+        myTick = theTick;
+        myCanvas.createBufferStrategy(BUFFERS);
+        myThread = new Thread(this, "Tetris game loop");
+        myThread.setDaemon(true);
+        myRenderThread = new Thread(new Runnable() {
+            /**
+             * Draw frames until the loop is stopped.
+             */
+            @Override
+            public void run() {
+                render();
+            }
+        }, "Tetris renderer");
+        myRenderThread.setDaemon(true);
+    }
+
+    /**
+     * Start the game and render threads. Gravity stays paused until setPaused(false).
+     */
+    void start() {
+        myThread.start();
+        myRenderThread.start();
+    }
+
+    /**
+     * Stop the loop and wait until the game and render threads end.
+     */
+    void stop() {
+        myIsRunning = false;
+        LockSupport.unpark(myThread);
+        LockSupport.unpark(myRenderThread);
+        try {
+            myThread.join();
+            myRenderThread.join();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Pause or resume gravity. A resumed game gets a full gravity interval
+     * before its first tick.
+     *
+     * @param thePaused true to pause gravity.
+     */
+    void setPaused(final boolean thePaused) {
+        myIsPaused = thePaused;
+        LockSupport.unpark(myThread);
+    }
+
+    /**
+     * Return if gravity is paused.
+     *
+     * @return true if gravity is paused.
+     */
+    boolean isPaused() {
+        return myIsPaused;
+    }
+
+    /**
+     * Run a task on the game thread before the next tick.
+     *
+     * @param theTask the task.
+     */
+    @Override
+    public void execute(final Runnable theTask) {
+        myTasks.add(theTask);
+        LockSupport.unpark(myThread);
+    }
+
+    /**
+     * Stop ticking and running the work handed to the loop when the board
+     * reports that the game is over. Called on the game thread.
+     *
+     * @param theEvent the GAME_OVER event received from the board.
+     */
+    @Override
+    public void boardChanged(final BoardEvent theEvent) {
+        if (theEvent.getType() == BoardEvent.Type.GAME_OVER) {
+            myIsGameOver = true;
+        }
+    }
+
+    /**
+     * Run gravity ticks when they are due and the tasks handed to the loop
+     * until the loop is stopped.
+     */
+    @Override
+    public void run() {
+        long nextTick = System.nanoTime() + getTickPeriod();
+        while (myIsRunning) {
+            runTasks();
+            if (myIsPaused || myIsGameOver) {
+                nextTick = System.nanoTime() + getTickPeriod();
+            } else {
+                nextTick = runTicks(nextTick);
+            }
+            waitUntil(nextTick, true);
+        }
+        runTasks();
+    }
+
+    /**
+     * Draw frames at the refresh rate of the display until the loop is stopped.
+     */
+    private void render() {
+        final long framePeriod = NANOS_PER_SECOND / getRefreshRate();
+        long nextFrame = System.nanoTime();
+        while (myIsRunning) {
+            drawFrame();
+            nextFrame += framePeriod;
+            if (System.nanoTime() - nextFrame >= 0) {
+                nextFrame = System.nanoTime() + framePeriod;
+            }
+            waitUntil(nextFrame, false);
+        }
+    }
+
+    /**
+     * Run the gravity ticks that are due.
+     *
+     * @param theNextTick the time the next tick is due.
+     * @return the time the tick after the last one run is due.
+     */
+    private long runTicks(final long theNextTick) {
+        long next = theNextTick;
+        int ticks = 0;
+        while (System.nanoTime() - next >= 0 && ticks < MAX_CATCH_UP && !myIsGameOver) {
+            final long lateness = System.nanoTime() - next;
+            myTick.run();
+            myTicks++;
+            myTickLateness += lateness;
+            myMaxTickLateness = Math.max(myMaxTickLateness, lateness);
+            next += getTickPeriod();
+            ticks++;
+        }
+        final long now = System.nanoTime();
+        if (now - next >= 0 && !myIsGameOver) {
+            final long period = getTickPeriod();
+            myDroppedTicks += (now - next) / period + 1;
+            next = now + period;
+        }
+        return next;
+    }
+
+    /**
+     * Run the tasks handed to the loop, or drop them once the game is over.
+     */
+    private void runTasks() {
+        Runnable task = myTasks.poll();
+        while (task != null) {
+            if (!myIsGameOver) {
+                task.run();
+            }
+            task = myTasks.poll();
+        }
+    }
+
+    /**
+     * Draw the game into the back buffer of the canvas and show it.
+     */
+    private void drawFrame() {
+        final long start = System.nanoTime();
+        final BufferStrategy strategy = myCanvas.getBufferStrategy();
+        final GameFrame frame = myPanel.getFrame();
+        final int width = myCanvas.getWidth();
+        final int height = myCanvas.getHeight();
+        do {
+            do {
+                final Graphics2D g = (Graphics2D) strategy.getDrawGraphics();
+                try {
+                    myRenderer.draw(g, width, height, frame);
+                } finally {
+                    g.dispose();
+                }
+            } while (strategy.contentsRestored());
+            strategy.show();
+        } while (strategy.contentsLost());
+        Toolkit.getDefaultToolkit().sync();
+
+        final long time = System.nanoTime() - start;
+        myFrames++;
+        myFrameTime += time;
+        myMaxFrameTime = Math.max(myMaxFrameTime, time);
+    }
+
+    /**
+     * Wait until a deadline, sleeping until shortly before it and spinning
+     * for the rest, since sleeping threads often wake up late.
+     *
+     * @param theDeadline the System.nanoTime to wait for.
+     * @param theTasks true to stop waiting when work is handed to the loop.
+     */
+    private void waitUntil(final long theDeadline, final boolean theTasks) {
+        long remaining = theDeadline - System.nanoTime();
+        while (remaining > 0 && myIsRunning && (!theTasks || myTasks.isEmpty())) {
+            if (remaining > SPIN_NANOS) {
+                LockSupport.parkNanos(this, remaining - SPIN_NANOS);
+            } else {
+                Thread.onSpinWait();
+            }
+            remaining = theDeadline - System.nanoTime();
+        }
+    }
+
+    /**
+     * Return the gravity interval.
+     *
+     * @return the delay of the gravity timer in nanoseconds.
+     */
+    private long getTickPeriod() {
+        return TimeUnit.MILLISECONDS.toNanos(Math.max(1, myGravity.getDelay()));
+    }
+
+    /**
+     * Return the refresh rate of the display showing the canvas.
+     *
+     * @return the refresh rate in frames per second.
+     */
+    private int getRefreshRate() {
+        int result = DEFAULT_REFRESH_RATE;
+        final GraphicsConfiguration config = myCanvas.getGraphicsConfiguration();
+        if (config != null) {
+            final DisplayMode mode = config.getDevice().getDisplayMode();
+            if (mode.getRefreshRate() != DisplayMode.REFRESH_RATE_UNKNOWN) {
+                result = mode.getRefreshRate();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Return the number of gravity ticks.
+     *
+     * @return the number of ticks.
+     */
+    long getTicks() {
+        return myTicks;
+    }
+
+    /**
+     * Return the mean time gravity ticks started after they were due.
+     *
+     * @return the mean lateness in nanoseconds.
+     */
+    long getMeanTickLateness() {
+        long result = 0;
+        if (myTicks > 0) {
+            result = myTickLateness / myTicks;
+        }
+        return result;
+    }
+
+    /**
+     * Return the longest time a gravity tick started after it was due.
+     *
+     * @return the maximum lateness in nanoseconds.
+     */
+    long getMaxTickLateness() {
+        return myMaxTickLateness;
+    }
+
+    /**
+     * Return the number of gravity ticks dropped because the loop fell behind.
+     *
+     * @return the number of dropped ticks.
+     */
+    long getDroppedTicks() {
+        return myDroppedTicks;
+    }
+
+    /**
+     * Return the number of frames drawn.
+     *
+     * @return the number of frames.
+     */
+    long getFrames() {
+        return myFrames;
+    }
+
+    /**
+     * Return the mean time spent drawing a frame.
+     *
+     * @return the mean frame time in nanoseconds.
+     */
+    long getMeanFrameTime() {
+        long result = 0;
+        if (myFrames > 0) {
+            result = myFrameTime / myFrames;
+        }
+        return result;
+    }
+
+    /**
+     * Return the longest time spent drawing a frame.
+     *
+     * @return the maximum frame time in nanoseconds.
+     */
+    long getMaxFrameTime() {
+        return myMaxFrameTime;
+    }
+
+    /**
+     * Return the timing statistics of the loop.
+     *
+     * @return the statistics as one line of text.
+     */
+    @Override
+    public String toString() {
+        return String.format("%d ticks, lateness mean %.3f ms max %.3f ms, %d dropped; "
+                             + "%d frames, draw time mean %.3f ms max %.3f ms",
+                             getTicks(), getMeanTickLateness() / NANOS_PER_MILLI,
+                             getMaxTickLateness() / NANOS_PER_MILLI, getDroppedTicks(),
+                             getFrames(), getMeanFrameTime() / NANOS_PER_MILLI,
+                             getMaxFrameTime() / NANOS_PER_MILLI);
+    }
+}
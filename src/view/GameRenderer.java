@@ -0,0 +1,488 @@
+/*
+ * TCSS 305 Autumn 2016
+ * Assignment 6 - Tetris
+ */
+
+package view;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Image;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.geom.Line2D;
+import java.awt.geom.RoundRectangle2D;
+import java.awt.image.BufferedImage;
+
+import model.BoardState;
+import model.PersistentBoard;
+import model.PieceState;
+import model.Point;
+
+/**
+ * Draws the frames of the main game panel of a Tetris game on any Graphics:
+ * the game panel paints with one on the event dispatch thread and a game
+ * loop draws into its BufferStrategy with another on its render thread.
+ * 
+ * A renderer is not a Swing component and keeps the layout of the last
+ * frame and the images it draws with, so each renderer is used by one
+ * thread at a time.
+ * 
+ * @author Phu-Lam Pham
+ * @version 9 December 2016
+ */
+final class GameRenderer {
+    
+    /** The color for Tetris blocks before one is selected. */
+    static final Color DEFAULT_BLOCK_COLOR = new Color(26 , 49, 18, 200);
+    
+    /** Background color under the background image. */
+    private static final Color BACKGROUND_COLOR = Color.WHITE;
+    
+    /** Message to display when game is over. */
+    private static final String GAME_OVER_MESSAGE = "Game Over";
+    
+    /** The stroke of the grid lines. */
+    private static final BasicStroke GRID_STROKE = new BasicStroke(1);
+    
+    /** The stroke of the block outlines. */
+    private static final BasicStroke BLOCK_STROKE = new BasicStroke(2);
+
+    /** 
+     * The pixels around the changed cells that are also repainted, for the
+     * block outlines drawn over the cell edges and the rounding of cell positions.
+     */
+    private static final int DIRTY_MARGIN = 2;
+
+    /** Outline color of the ghost piece. */
+    private static final Color GHOST_COLOR = new Color(255, 255, 255, 160);
+
+    /** Layout color of the Tetris board. */
+    private static final Color LAYOUT_COLOR = new Color(153, 33, 20, 127);
+
+    /** List of different Christmas colors used in the panel. */
+    private static final Color[] CHRISTMAS_COLORS = 
+    {new Color(153, 33, 20, 200), 
+        DEFAULT_BLOCK_COLOR, 
+        new Color(197, 164, 54, 200), 
+        new Color(42, 143, 189, 200)};
+    
+    /** If the board was wider than high when the panel was created. */
+    private final boolean myIsWide;
+    
+    /** The ratio of game height to game width .*/
+    private final int myHeightToWidthRatio;
+    
+    /** The background image; null if it could not be read. */
+    private final Image myBackgroundImage;
+    
+    /** The Rectangle object used to draw rectangle shapes. */
+    private final RoundRectangle2D myRect = new RoundRectangle2D.Double();
+    
+    /** The Line object used to draw lines. */
+    private final Line2D myLine = new Line2D.Double();
+
+    /** The images of the blocks. */
+    private final BlockSprites mySprites = new BlockSprites();
+    
+    /** The position in the color sequence of the special color mode. */
+    private int myPalettePosition;
+    
+    /** The width of the drawing area of the last frame. */
+    private int myWidth;
+    
+    /** The height of the drawing area of the last frame. */
+    private int myHeight;
+    
+    /** 
+     * The background, grid and layout drawn for the last size of the drawing
+     * area, or null before the first frame.
+     */
+    private BufferedImage myStaticLayer;
+    
+    /** The frame the static layer was drawn for, or null before the first frame. */
+    private GameFrame myStaticFrame;
+    
+    /** The scale of the last frame, or 0 before the first frame. */
+    private double myPaintedScale;
+    
+    /** The horizontal padding of the last frame. */
+    private double myPaintedPaddingX;
+    
+    /** The vertical padding of the last frame. */
+    private double myPaintedPaddingY;
+    
+    /**
+     * Constructs a renderer.
+     * 
+     * @param theColumns the number of columns of the board the panel was created for.
+     * @param theRows the number of rows of the board the panel was created for.
+     * @param theBackgroundImage the background image, or null.
+     */
+    GameRenderer(final int theColumns, final int theRows, final Image theBackgroundImage) {
+        myIsWide = theColumns >= theRows;
+        if (theRows == theColumns) {
+            myHeightToWidthRatio = 1;
+        } else {
+            myHeightToWidthRatio = 2;
+        }
+        myBackgroundImage = theBackgroundImage;
+    }
+    
+    /**
+     * Draw a frame of the game.
+     * 
+     * @param theGraphics the graphics object used for drawing.
+     * @param theWidth the width of the drawing area.
+     * @param theHeight the height of the drawing area.
+     * @param theFrame the frame to draw.
+     */
+    void draw(final Graphics2D theGraphics, final int theWidth, final int theHeight,
+              final GameFrame theFrame) {
+        myWidth = theWidth;
+        myHeight = theHeight;
+        final double scale = getScale(theFrame);
+        double paddingX = 0;
+        double paddingY = 0;
+        
+        theGraphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+                                     RenderingHints.VALUE_ANTIALIAS_ON);
+        
+        // Different conditions to obtain the reasonable
+        // padding of the game relative to window size.
+        if (!myIsWide) {
+            if (myWidth > (myHeight / myHeightToWidthRatio)) {
+                paddingX = myWidth / 2.0 - scale * theFrame.getColumns() / 2.0;
+            } else {
+                paddingY = myHeight / 2.0 - scale * theFrame.getRows() / 2.0;
+            }
+        } else {
+            if (myHeight > (myWidth / myHeightToWidthRatio)) {
+                paddingY = myHeight / 2.0 - scale * theFrame.getRows() / 2.0;
+            } else {
+                paddingX = myWidth / 2.0 - scale * theFrame.getColumns() / 2.0;
+            }
+        }
+        myPaintedScale = scale;
+        myPaintedPaddingX = paddingX;
+        myPaintedPaddingY = paddingY;
+
+        if (myStaticLayer == null || myStaticLayer.getWidth() != myWidth 
+                        || myStaticLayer.getHeight() != myHeight
+                        || myStaticFrame.isGridEnabled() != theFrame.isGridEnabled()
+                        || myStaticFrame.getColumns() != theFrame.getColumns()
+                        || myStaticFrame.getRows() != theFrame.getRows()) {
+            myStaticLayer = createStaticLayer(theGraphics.getDeviceConfiguration(), theFrame,
+                                              scale, paddingX, paddingY);
+            myStaticFrame = theFrame;
+        }
+        if (myStaticLayer != null) {
+            theGraphics.drawImage(myStaticLayer, 0, 0, null);
+        }
+        
+        // To prevent showing the game while paused
+        if (theFrame.isPaused()) {
+            drawMessage(theGraphics, "Paused", scale);
+        } else {
+            final BoardState state = theFrame.getState();
+            if (state != null 
+                            && state.getPersistentBlocks().getWidth() == theFrame.getColumns()
+                            && state.getPersistentBlocks().getHeight() == theFrame.getRows()) {
+                drawGame(theGraphics, theFrame, scale, paddingX, paddingY);
+            }
+        }
+        
+        // Will allow user to see their game after the game is over.
+        if (theFrame.isGameOver()) {
+            drawMessage(theGraphics, GAME_OVER_MESSAGE, scale);
+        }
+    }
+    
+    /**
+     * Get the scale to draw objects in the drawing area based on current size.
+     * 
+     * @param theFrame the frame to draw.
+     * @return the scale to draw objects in the drawing area based on current size.
+     */
+    private double getScale(final GameFrame theFrame) {
+        double scale = 0;
+        
+        // Different conditions to obtain the reasonable
+        // scale of everything in the drawing area based on the board's dimension and 
+        // the drawing area's current size.
+        if (!myIsWide) {
+            if (myWidth <= myHeight / myHeightToWidthRatio) {
+                scale = 1.0 * myWidth / theFrame.getColumns();
+            } else {
+                scale = 1.0 * myHeight / theFrame.getRows();
+            }
+        } else {
+            if (myHeight < myWidth / myHeightToWidthRatio) {
+                scale = 1.0 * myHeight / theFrame.getRows();
+            } else  {
+                scale = 1.0 * myWidth / theFrame.getColumns();
+            }
+        }
+        
+        return scale;
+    }
+    
+    /**
+     * Draw the background, grid and layout into an image the size of the drawing area,
+     * so that they are not drawn again until the drawing area size or options change.
+     * 
+     * @param theConfig the configuration of the device drawn on, or null.
+     * @param theFrame the frame to draw.
+     * @param theScale the scale to draw objects in the drawing area based on current size.
+     * @param thePaddingX the horizontal padding.
+     * @param thePaddingY the vertical padding.
+     * @return the image, or null if the drawing area is empty.
+     */
+    private BufferedImage createStaticLayer(final GraphicsConfiguration theConfig,
+                                            final GameFrame theFrame, final double theScale, 
+                                            final double thePaddingX, 
+                                            final double thePaddingY) {
+        BufferedImage layer = null;
+        if (myWidth > 0 && myHeight > 0) {
+            if (theConfig == null) {
+                layer = new BufferedImage(myWidth, myHeight, 
+                                          BufferedImage.TYPE_INT_RGB);
+            } else {
+                layer = theConfig.createCompatibleImage(myWidth, myHeight);
+            }
+            final Graphics2D g2d = layer.createGraphics();
+            g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+                                 RenderingHints.VALUE_ANTIALIAS_ON);
+            g2d.setColor(BACKGROUND_COLOR);
+            g2d.fillRect(0, 0, myWidth, myHeight);
+            drawBackGroundAndLayout(g2d, theFrame, theScale, thePaddingX, thePaddingY);
+            g2d.dispose();
+        }
+        return layer;
+    }
+    
+    /** Draw the background and game panel layout. 
+     * 
+     * @param theGraphics the Graphics object used for drawing.
+     * @param theFrame the frame to draw.
+     * @param theScale the scale to draw objects in the drawing area based on current size.
+     * @param thePaddingX the horizontal padding.
+     * @param thePaddingY the vertical padding.
+     */
+    private void drawBackGroundAndLayout(final Graphics2D theGraphics, 
+                                         final GameFrame theFrame, final double theScale,
+                                         final double thePaddingX, final double thePaddingY) {
+        
+        // Always paint background image first.
+        if (myBackgroundImage != null) {
+            theGraphics.drawImage(myBackgroundImage, 0, 0, myWidth, myHeight, null);
+        }
+        
+        theGraphics.setColor(Color.WHITE);
+        
+        // Show grids option.
+        if (theFrame.isGridEnabled()) {
+            theGraphics.setStroke(GRID_STROKE);
+            for (int i = 0; i <= theFrame.getRows(); i++) {
+                myLine.setLine(thePaddingX, i * theScale + thePaddingY, 
+                               myWidth - thePaddingX, i * theScale + thePaddingY);
+                theGraphics.draw(myLine);
+            }
+            
+            for (int i = 1; i <= theFrame.getColumns() - 1; i++) {
+                myLine.setLine(i * theScale + thePaddingX, thePaddingY,  
+                               i * theScale + thePaddingX,  myHeight + thePaddingY);
+                theGraphics.draw(myLine);
+            }
+        }
+        
+        
+        // The half transparent layout under the area that Tetris game is using.
+        myRect.setRoundRect(thePaddingX, thePaddingY, theFrame.getColumns() * theScale, 
+                                                     theFrame.getRows() * theScale, 0, 0);
+        
+        theGraphics.setColor(LAYOUT_COLOR);
+        theGraphics.fill(myRect);
+    }
+    
+    /**
+     * Draw the playing game.
+     * 
+     * @param theGraphics the Graphics object used for drawing.
+     * @param theFrame the frame to draw, with a state of the game.
+     * @param theScale the scale to draw objects in the drawing area based on current size.
+     * @param thePaddingX the horizontal padding.
+     * @param thePaddingY the vertical padding.
+     */
+    private void drawGame(final Graphics2D theGraphics, final GameFrame theFrame,
+                          final double theScale, final double thePaddingX, 
+                          final double thePaddingY) {
+        theGraphics.setStroke(BLOCK_STROKE);
+        
+        double roundness = 0;
+        if (theFrame.isCircle()) {
+            
+            // Using Rounded Rectangle to draw circles.
+            // theScale gives a perfect roundness value to make the rectangle a circle.
+            roundness = theScale;
+        }
+        
+        final PersistentBoard blocks = theFrame.getState().getPersistentBlocks();
+        final int width = blocks.getWidth();
+        final int height = blocks.getHeight();
+        final int piece = theFrame.getState().getCurrentPiece();
+        
+        // Only the rows inside the area being repainted are drawn.
+        int firstRow = 0;
+        int lastRow = height - 1;
+        final Rectangle clip = theGraphics.getClipBounds();
+        if (clip != null && !theFrame.isSpecialColor()) {
+            firstRow = Math.max(firstRow, (int) Math.floor(
+                (clip.y - DIRTY_MARGIN - thePaddingY) / theScale));
+            lastRow = Math.min(lastRow, (int) Math.floor(
+                (clip.y + clip.height + DIRTY_MARGIN - thePaddingY) / theScale));
+        }
+        for (int i = firstRow; i <= lastRow; i++) {
+            final int y = height - 1 - i;
+            final long row = blocks.getRow(y) | pieceRow(piece, y);
+            for (int j = 0; j < width; j++) {
+                if ((row & (1L << j)) != 0) {
+                    
+                    // Set block/fill color based on color selected or special color mode.
+                    Color color = theFrame.getBlockColor();
+                    if (theFrame.isSpecialColor()) {
+                        color = BlockSprites.paletteColor(CHRISTMAS_COLORS, 
+                                                          myPalettePosition++);
+                    }
+                    mySprites.draw(theGraphics, color, theScale, theFrame.isCircle(),
+                                   j * theScale + thePaddingX, i * theScale + thePaddingY);
+                }
+            }
+        }    
+        
+        if (theFrame.isGhostEnabled() && !theFrame.isGameOver() 
+                        && theFrame.getGhost() != PieceState.NONE) {
+            drawGhost(theGraphics, height, piece, theFrame.getGhost(), theScale, 
+                      thePaddingX, thePaddingY, roundness);
+        }
+    }
+    
+    /**
+     * Return the cells of a row covered by a piece.
+     * 
+     * @param thePiece the packed state of the piece, or PieceState.NONE.
+     * @param theY the row.
+     * @return the row mask, bit x set when the piece covers column x.
+     */
+    private static long pieceRow(final int thePiece, final int theY) {
+        long result = 0;
+        if (thePiece != PieceState.NONE) {
+            for (int i = 0; i < PieceState.BLOCKS; i++) {
+                if (PieceState.getCellY(thePiece, i) == theY) {
+                    result |= 1L << PieceState.getCellX(thePiece, i);
+                }
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Draw the outline of the cells where the current piece would land.
+     * Cells already covered by the current piece are skipped.
+     * 
+     * @param theGraphics the Graphics object used for drawing.
+     * @param theHeight the height of the board.
+     * @param thePiece the packed state of the current piece.
+     * @param theGhost the packed state of the current piece at its landing row.
+     * @param theScale the scale to draw objects in the drawing area based on current size.
+     * @param thePaddingX the horizontal padding.
+     * @param thePaddingY the vertical padding.
+     * @param theRoundness the roundness of the block corners.
+     */
+    private void drawGhost(final Graphics2D theGraphics, final int theHeight,
+                           final int thePiece, final int theGhost, final double theScale, 
+                           final double thePaddingX, final double thePaddingY,
+                           final double theRoundness) {
+        theGraphics.setPaint(GHOST_COLOR);
+        for (int i = 0; i < PieceState.BLOCKS; i++) {
+            final int x = PieceState.getCellX(theGhost, i);
+            final int y = PieceState.getCellY(theGhost, i);
+            if (y < theHeight && (pieceRow(thePiece, y) & (1L << x)) == 0) {
+                myRect.setRoundRect(x * theScale + thePaddingX, 
+                                    (theHeight - 1 - y) * theScale + thePaddingY,
+                                    theScale, theScale, theRoundness, theRoundness);
+                theGraphics.draw(myRect);
+            }
+        }
+    }
+
+    /**
+     * Draw a message based on current game's state.
+     * 
+     * @param theGraphics the Graphics object used for drawing.
+     * @param theMessage the message to be painted.
+     * @param theScale the scale to draw objects in the drawing area based on current size.
+     */
+    private void drawMessage(final Graphics2D theGraphics, final String theMessage, 
+                             final double theScale) {
+        
+        theGraphics.setFont(new Font("TimesRoman", Font.BOLD, (int) theScale));
+        
+        // Using FontMetrics to get the precise center of the string.
+        final FontMetrics fm = theGraphics.getFontMetrics();
+        final int stringWidth = fm.stringWidth(theMessage);
+        
+        theGraphics.setColor(Color.WHITE);
+        theGraphics.drawString(theMessage, (myWidth - stringWidth) / 2, myHeight / 2);
+    }
+    
+    /**
+     * Return if a frame was drawn, so that the area of cells is known.
+     * 
+     * @return true after the first frame.
+     */
+    boolean hasDrawn() {
+        return myPaintedScale != 0;
+    }
+    
+    /**
+     * Return the area covering the given cells in the layout of the last frame.
+     * 
+     * @param theRows the number of rows of the board.
+     * @param theCellGroups the board cells.
+     * @return the area, or null if no cell is inside the board.
+     */
+    Rectangle getArea(final int theRows, final Point[]... theCellGroups) {
+        Rectangle result = null;
+        int minX = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE;
+        int minY = Integer.MAX_VALUE;
+        int maxY = Integer.MIN_VALUE;
+        for (final Point[] cells : theCellGroups) {
+            for (final Point p : cells) {
+                if (p.getY() < theRows) {
+                    minX = Math.min(minX, p.getX());
+                    maxX = Math.max(maxX, p.getX());
+                    minY = Math.min(minY, p.getY());
+                    maxY = Math.max(maxY, p.getY());
+                }
+            }
+        }
+        if (minX <= maxX) {
+            final int left = (int) Math.floor(minX * myPaintedScale 
+                                              + myPaintedPaddingX) - DIRTY_MARGIN;
+            final int top = (int) Math.floor((theRows - 1 - maxY) * myPaintedScale 
+                                             + myPaintedPaddingY) - DIRTY_MARGIN;
+            final int right = (int) Math.ceil((maxX + 1) * myPaintedScale 
+                                              + myPaintedPaddingX) + DIRTY_MARGIN;
+            final int bottom = (int) Math.ceil((theRows - minY) * myPaintedScale 
+                                               + myPaintedPaddingY) + DIRTY_MARGIN;
+            result = new Rectangle(left, top, right - left, bottom - top);
+        }
+        return result;
+    }
+}
@@ -17,21 +17,22 @@ import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Observable;
-import java.util.Observer;
 
 import javax.swing.BorderFactory;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
 import javax.swing.Timer;
 
+import model.BoardEvent;
+import model.BoardListener;
+
 /**
  * JPanel displaying the current score and stats of Tetris game.
  * 
  * @author Phu-Lam Pham
  * @version 9 December 2016
  */
-public class GameStatsPanel extends JPanel implements Observer, PropertyChangeListener {
+public class GameStatsPanel extends JPanel implements BoardListener, PropertyChangeListener {
     
     /** The sound file path one line cleared sound. */
     private static final String ONE_LINE_CLEARED_SOUND = "sounds/snowball.wav";
@@ -210,38 +211,34 @@ public class GameStatsPanel extends JPanel implements Observer, PropertyChangeLi
     }
 
     /**
-     * Update the statistic panel when being notified by the observable.
+     * Update the statistic panel when rows are cleared on the board.
      * 
-     * @param theObservable the observable class/object that the panel is observing.
-     * @param theObject the object data received from the observable.
+     * @param theEvent the ROWS_CLEARED event received from the board.
      */
     @Override
-    public void update(final Observable theObservable, final Object theObject) {
-        if (theObject instanceof Integer[]) {
-
-            final int linesCleared = ((Integer[]) theObject).length;
-            final int oldLevel = getLevel();
-            
-            // getLevel() method interprets myLinesCleared to get current level.
-            myLinesCleared += linesCleared;
-            if (getLevel() > oldLevel) {
-                mySoundPlayer.play(LEVEL_UP_SOUND);
-            }
-            
-            // Tetris game can only clear at max 4 rows per turn.
-            if (linesCleared == NUM_LINES_CLEARED_FOR_BONUS) {
-                myScore += FOUR_LINES_CLEARED_SCORE;
-                mySoundPlayer.play(BONUS_POINTS_SOUND);
-            } else {
-                myScore += ONE_LINE_CLEARED_SCORE * linesCleared;
-                mySoundPlayer.play(ONE_LINE_CLEARED_SOUND);
-            }
-            
-            myTimer.setDelay(DEFAULT_INITIAL_DELAY 
-                             - myLinesCleared / LINES_CLEARED_PER_NEXT_LEVEL 
-                             * LESS_DELAY_TIME_PER_LEVEL);
-            updateStatMessageList();
-            repaint();
+    public void boardChanged(final BoardEvent theEvent) {
+        final int linesCleared = theEvent.getRowCount();
+        final int oldLevel = getLevel();
+        
+        // getLevel() method interprets myLinesCleared to get current level.
+        myLinesCleared += linesCleared;
+        if (getLevel() > oldLevel) {
+            mySoundPlayer.play(LEVEL_UP_SOUND);
         }
+        
+        // Tetris game can only clear at max 4 rows per turn.
+        if (linesCleared == NUM_LINES_CLEARED_FOR_BONUS) {
+            myScore += FOUR_LINES_CLEARED_SCORE;
+            mySoundPlayer.play(BONUS_POINTS_SOUND);
+        } else {
+            myScore += ONE_LINE_CLEARED_SCORE * linesCleared;
+            mySoundPlayer.play(ONE_LINE_CLEARED_SOUND);
+        }
+        
+        myTimer.setDelay(DEFAULT_INITIAL_DELAY 
+                         - myLinesCleared / LINES_CLEARED_PER_NEXT_LEVEL 
+                         * LESS_DELAY_TIME_PER_LEVEL);
+        updateStatMessageList();
+        repaint();
     }
 }
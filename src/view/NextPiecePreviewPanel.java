@@ -5,25 +5,21 @@
 
 package view;
 
-import java.awt.BasicStroke;
 import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.Font;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.RenderingHints;
-import java.awt.geom.RoundRectangle2D;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
-import java.util.Observable;
-import java.util.Observer;
-import java.util.Random;
 
 import javax.swing.BorderFactory;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
 
-import model.MovableTetrisPiece;
+import model.BoardEvent;
+import model.BoardListener;
 
 /**
  * JPanel drawing the next piece of a Tetris game.
@@ -31,7 +27,7 @@ import model.MovableTetrisPiece;
  * @author Phu-Lam Pham
  * @version 9 December 2016
  */
-public class NextPiecePreviewPanel extends JPanel implements Observer, PropertyChangeListener {
+public class NextPiecePreviewPanel extends JPanel implements BoardListener, PropertyChangeListener {
     
     /**  A generated serial version UID for object Serialization. */
     private static final long serialVersionUID = 2329425972910077478L;
@@ -67,8 +63,11 @@ public class NextPiecePreviewPanel extends JPanel implements Observer, PropertyC
     /** String representation of the next piece. */
     private String[] myNextPiece;
     
-    /** The Rectangle object used to draw rectangle shapes in the panel. */
-    private final RoundRectangle2D myRect;
+    /** The images of the blocks. */
+    private final BlockSprites mySprites;
+    
+    /** The position in the color sequence of the special color mode. */
+    private int myPalettePosition;
     
     /** If Tetris block shape circle is selected. */
     private boolean myIsCircleSelected;
@@ -86,7 +85,7 @@ public class NextPiecePreviewPanel extends JPanel implements Observer, PropertyC
         super();
         this.setBackground(DEFAULT_COLOR);
         setMaximumSize(DEFAULT_SIZE);
-        myRect = new RoundRectangle2D.Double();
+        mySprites = new BlockSprites();
         myBlockColor = DEFAULT_BLOCK_COLOR;
         
         setBorder(BorderFactory.createLineBorder(DEFAULT_BLOCK_COLOR, BORDER_SIZE));
@@ -114,13 +113,7 @@ public class NextPiecePreviewPanel extends JPanel implements Observer, PropertyC
         if (myNextPiece != null) {
             final int blockSize = getWidth() / NUM_OF_BLOCKS_PER_COL_AND_ROW;
             final int longPadding = getWidth() / SHORTER_PADDING_RATIO;
-            int roundness = 0;
-            
-            if (myIsCircleSelected) {
-                roundness = blockSize;
-            }
-            
-            drawNextPiece(g2d, blockSize, longPadding, roundness);
+            drawNextPiece(g2d, blockSize, longPadding);
         }
     }
     
@@ -130,45 +123,28 @@ public class NextPiecePreviewPanel extends JPanel implements Observer, PropertyC
      * @param theGraphics the Graphics object used for drawing.
      * @param theBlockSize the size of each block.
      * @param theLongPadding the long padding for the piece.
-     * @param theRoundness the roundness of the block shape.
      */
     private void drawNextPiece(final Graphics2D theGraphics, final int theBlockSize, 
-                               final int theLongPadding, final int theRoundness) {
-        theGraphics.setStroke(new BasicStroke(2));
-        
+                               final int theLongPadding) {
         for (int i = 0; i < myNextPiece.length; i++) {
             for (int j = 0; j < myNextPiece[i].length(); j++) {
-                if (myIsSpecialColor) {
-                    theGraphics.setColor(CHRISTMAS_COLORS
-                                    [new Random().nextInt(CHRISTMAS_COLORS.length)]);
-                } else {
-                    theGraphics.setColor(myBlockColor);
-                }
                 if (myNextPiece[i].charAt(j) != ' ' 
                                 && myNextPiece[i].charAt(j) != '|' 
                                 && myNextPiece[i].charAt(j) != '-') {
+                    Color color = myBlockColor;
+                    if (myIsSpecialColor) {
+                        color = BlockSprites.paletteColor(CHRISTMAS_COLORS, 
+                                                          myPalettePosition++);
+                    }
                     
                     // Block I and O have different starting locations than other blocks.
+                    int x = theBlockSize + j * theBlockSize;
                     if (myNextPiece[i].charAt(j) == 'I' 
                                     || myNextPiece[i].charAt(j) == 'O') {
-                        
-                        myRect.setRoundRect(theLongPadding + j * theBlockSize, 
-                                            theLongPadding + i * theBlockSize, 
-                                     theBlockSize, theBlockSize, theRoundness, theRoundness);
-                        
-                        theGraphics.fill(myRect);
-                        theGraphics.setColor(Color.WHITE);
-                        theGraphics.draw(myRect);
-                    } else {
-                        
-                        myRect.setRoundRect(theBlockSize + j * theBlockSize, 
-                                            theLongPadding + i * theBlockSize, 
-                                       theBlockSize, theBlockSize, theRoundness, theRoundness);
-                        
-                        theGraphics.fill(myRect);
-                        theGraphics.setColor(Color.WHITE);
-                        theGraphics.draw(myRect);
+                        x = theLongPadding + j * theBlockSize;
                     }
+                    mySprites.draw(theGraphics, color, theBlockSize, myIsCircleSelected,
+                                   x, theLongPadding + i * theBlockSize);
                 }
             }
         }
@@ -196,17 +172,13 @@ public class NextPiecePreviewPanel extends JPanel implements Observer, PropertyC
     }
 
     /**
-     * Update the next piece of the game when being notified by the observable.
+     * Update the next piece of the game when the board prepares a new one.
      * 
-     * @param theObservable the class/object that this panel is observing.
-     * @param theObject the new data being sent from the observable. 
+     * @param theEvent the NEXT_PIECE event received from the board. 
      */
     @Override
-    public void update(final Observable theObservable, final Object theObject) {
-        if (theObject instanceof MovableTetrisPiece) {
-            myNextPiece = theObject.toString().split("\\r?\\n");
-        }
+    public void boardChanged(final BoardEvent theEvent) {
+        myNextPiece = theEvent.getNextPiece().toString().split("\\r?\\n");
         repaint();
-
     }
 }
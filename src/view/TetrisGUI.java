@@ -8,6 +8,7 @@ package view;
 import audio.SoundPlayer;
 
 import java.awt.BorderLayout;
+import java.awt.Canvas;
 import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.event.ActionEvent;
@@ -16,23 +17,41 @@ import java.awt.event.FocusEvent;
 import java.awt.event.FocusListener;
 import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
-import java.util.Observable;
-import java.util.Observer;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.SplittableRandom;
+import java.util.concurrent.Executor;
 
 import javax.swing.Box;
 import javax.swing.BoxLayout;
 import javax.swing.ButtonGroup;
 import javax.swing.JCheckBoxMenuItem;
+import javax.swing.JFileChooser;
 import javax.swing.JFrame;
 import javax.swing.JMenu;
 import javax.swing.JMenuBar;
 import javax.swing.JMenuItem;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
+import javax.swing.JPopupMenu;
 import javax.swing.JRadioButtonMenuItem;
+import javax.swing.SwingUtilities;
 import javax.swing.Timer;
+import javax.swing.filechooser.FileNameExtensionFilter;
 
 import model.Board;
+import model.BoardEvent;
+import model.BoardListener;
+import sim.Command;
+import sim.GeneratorKind;
+import sim.Recording;
+import sim.RecordingWriter;
+import sim.Replay;
 
 
 /**
@@ -41,7 +60,7 @@ import model.Board;
  * @author Phu-Lam Pham
  * @version 9 December 2016
  */
-public class TetrisGUI extends JFrame implements Observer, FocusListener {
+public class TetrisGUI extends JFrame implements BoardListener, FocusListener {
     
     /** String used to split size menu text to get new dimension for the game. */
     private static final String SPLIT_SIZE_MENU_TEXT_KEY = " x ";
@@ -73,6 +92,22 @@ public class TetrisGUI extends JFrame implements Observer, FocusListener {
     /** Default initial delay for timer. */
     private static final int DEFAULT_INITIAL_DELAY = 1000;
     
+    /** Delay of the replay timer in milliseconds. */
+    private static final int REPLAY_DELAY = 10;
+
+    /** The number of moves a player can undo in practice mode. */
+    private static final int PRACTICE_UNDO_LIMIT = 1000;
+    
+    /** Nanoseconds per millisecond. */
+    private static final long NANOS_PER_MILLI = 1000000L;
+    
+    /** Directory the recorded games are written to. */
+    private static final String RECORDINGS_DIRECTORY = "recordings";
+    
+    /** Date format of the file names of recorded games. */
+    private static final DateTimeFormatter RECORDING_NAME_FORMAT =
+        DateTimeFormatter.ofPattern("'tetris-'yyyyMMdd-HHmmss");
+    
     /** Default size of the right panel. */
     private static final Dimension DEFAULT_RIGHT_PANEL_SIZE = new Dimension(300, 400);
     
@@ -94,12 +129,64 @@ public class TetrisGUI extends JFrame implements Observer, FocusListener {
     /** Christmas blue color. */
     private static final Color CHRISTMAS_BLUE = new Color(42, 143, 189, 200);
     
+    /** Calls board listeners of a game loop game on the event dispatch thread. */
+    private static final Executor EVENT_DISPATCH_THREAD = new Executor() {
+        /**
+         * Run a task later on the event dispatch thread.
+         * 
+         * @param theTask the task.
+         */
+        @Override
+        public void execute(final Runnable theTask) {
+            SwingUtilities.invokeLater(theTask);
+        }
+    };
+    
     /** The Board object managing the current state of the game. */
     private Board myBoard;
     
     /** Timer to set difficulties level of the game. */
     private final Timer myTimer; 
     
+    /** Timer applying the commands of a replayed game when their time comes. */
+    private final Timer myReplayTimer;
+    
+    /** Random seeds of the piece generators of new games. */
+    private final SplittableRandom mySeeds = new SplittableRandom();
+    
+    /** The recording being replayed, or null when the player is playing. */
+    private Recording myReplay;
+    
+    /** The index of the next command of the recording being replayed. */
+    private int myReplayIndex;
+    
+    /** If new games are recorded. */
+    private boolean myIsRecordingEnabled;
+
+    /** If the player can undo and redo moves of games that are not recorded. */
+    private boolean myIsPracticeMode;
+    
+    /** If new games are driven by a game loop thread instead of the Swing timer. */
+    private boolean myIsGameLoopMode;
+    
+    /** The game loop driving the current game, or null if the timers drive it. */
+    private GameLoop myGameLoop;
+    
+    /** The timing statistics of the last game loop, or null before its game ends. */
+    private String myGameLoopStatistics;
+    
+    /** Writes the commands of the current game, or null if it is not recorded. */
+    private RecordingWriter myRecorder;
+    
+    /** 
+     * System.nanoTime() at the start of the game, moved forward by every pause.
+     * A game loop reads it to record commands.
+     */
+    private volatile long myClockStart;
+    
+    /** System.nanoTime() when the game was last paused. */
+    private long myClockPaused;
+    
     /** If game is over. */
     private boolean myIsGameOver = true;
     
@@ -109,12 +196,18 @@ public class TetrisGUI extends JFrame implements Observer, FocusListener {
     /** Menu item to start a new game. */
     private JMenuItem myNewGame;
     
+    /** Menu item to replay a recorded game. */
+    private JMenuItem myReplayGame;
+    
     /** The panel displaying the preview of next Tetris piece. */
     private NextPiecePreviewPanel myPreviewPanel;
     
     /** The panel displaying the Tetris main game panel. */
     private GamePanel myGamePanel;
     
+    /** The canvas a game loop draws the game on instead of the game panel. */
+    private Canvas myGameCanvas;
+    
     /** The sound player to play game sounds. */
     private SoundPlayer mySoundPlayer;
     
@@ -141,7 +234,19 @@ public class TetrisGUI extends JFrame implements Observer, FocusListener {
              */
             @Override
             public void actionPerformed(final ActionEvent theEvent) {
-                myBoard.down();
+                perform(Command.DOWN);
+            }
+        });
+        
+        myReplayTimer = new Timer(REPLAY_DELAY, new ActionListener() {
+            /** 
+             * Apply the recorded commands whose time has come.
+             * 
+             * @param theEvent the timer action event.
+             */
+            @Override
+            public void actionPerformed(final ActionEvent theEvent) {
+                replayCommands();
             }
         });
 
@@ -158,6 +263,13 @@ public class TetrisGUI extends JFrame implements Observer, FocusListener {
      */
     private void createPanels() {
         myGamePanel = new GamePanel(myBoard);
+        
+        // Game loops draw on their own thread, so Swing must not paint the canvas,
+        // and menus must be heavyweight to open above it.
+        JPopupMenu.setDefaultLightWeightPopupEnabled(false);
+        myGameCanvas = new Canvas();
+        myGameCanvas.setIgnoreRepaint(true);
+        myGameCanvas.setFocusable(false);
 
         final JPanel rightPanel = new JPanel();
         rightPanel.setLayout(new BoxLayout(rightPanel, BoxLayout.PAGE_AXIS));
@@ -247,11 +359,26 @@ public class TetrisGUI extends JFrame implements Observer, FocusListener {
             }
         });
         
+        myReplayGame = new JMenuItem("Replay Recording...");
+        myReplayGame.setMnemonic(KeyEvent.VK_R); 
+        myReplayGame.addActionListener(new ActionListener() {
+            /** 
+             * Choose a recorded game and replay it.
+             * 
+             * @param theEvent the replay option action event.
+             */ 
+            @Override
+            public void actionPerformed(final ActionEvent theEvent) {
+                chooseReplay();
+            }
+        });
+        
         createSizeMenu(); // Initialize mySizeMenu before adding it to File Menu.
         
         fileMenu.add(myEndGame);
         fileMenu.add(myNewGame);
         fileMenu.add(mySizeMenu);
+        fileMenu.add(myReplayGame);
         fileMenu.addSeparator();
         fileMenu.add(quit);
         
@@ -374,6 +501,9 @@ public class TetrisGUI extends JFrame implements Observer, FocusListener {
                                 + "\nMove Right:                Right Arrow" 
                                 + "\nMoveDown:                Down Arrow" 
                                 + "\nRotate Clockwise:   Space"
+                                + "\nRotate Counterclockwise:   Z"
+                                + "\nRotate Half Turn:   A"
+                                + "\nUndo / Redo (Practice Mode):   U / Y"
                                 + "\nDrop the piece:         Enter"
                                 + "\n\nScoring Rules:"
                                 + "\n 1-3 Lines cleared:    100 points per line"
@@ -406,7 +536,26 @@ public class TetrisGUI extends JFrame implements Observer, FocusListener {
             } 
         });
         
+        final JMenuItem statistics = new JMenuItem("Game Loop Statistics...");
+        statistics.setMnemonic(KeyEvent.VK_G); 
+        statistics.addActionListener(new ActionListener() {
+            /** 
+             * Pop up a message dialog with the timing of the last game loop.
+             * 
+             * @param theEvent the statistics dialog action event.
+             */
+            @Override
+            public void actionPerformed(final ActionEvent theEvent) {
+                String message = "No game in game loop mode has ended yet.";
+                if (myGameLoopStatistics != null) {
+                    message = "Last game loop:\n" + myGameLoopStatistics;
+                }
+                JOptionPane.showMessageDialog(null, message);
+            } 
+        });
+        
         helpMenu.add(howToPlay);
+        helpMenu.add(statistics);
         helpMenu.add(about);
         
         return helpMenu;
@@ -534,20 +683,103 @@ public class TetrisGUI extends JFrame implements Observer, FocusListener {
             
         });
         
+        final JCheckBoxMenuItem showGhost = new JCheckBoxMenuItem("Show Ghost Piece", true);
+        showGhost.setMnemonic(KeyEvent.VK_P);
+        showGhost.addActionListener(new ActionListener() {
+            /** 
+             * Show/Hide where the current piece will land. 
+             * 
+             * @param theEvent the ghost piece option action event.
+             */
+            @Override
+            public void actionPerformed(final ActionEvent theEvent) {
+                firePropertyChange("ghost", null, showGhost.isSelected());
+            }
+            
+        });
+        
+        final JCheckBoxMenuItem recordGames = new JCheckBoxMenuItem("Record Games");
+        recordGames.setMnemonic(KeyEvent.VK_R);
+        recordGames.addActionListener(new ActionListener() {
+            /** 
+             * Turn the recording of new games on or off. 
+             * 
+             * @param theEvent the record option action event.
+             */
+            @Override
+            public void actionPerformed(final ActionEvent theEvent) {
+                myIsRecordingEnabled = recordGames.isSelected();
+            }
+            
+        });
+        
+        final JCheckBoxMenuItem practiceMode = new JCheckBoxMenuItem("Practice Mode (Undo)");
+        practiceMode.setMnemonic(KeyEvent.VK_U);
+        practiceMode.addActionListener(new ActionListener() {
+            /** 
+             * Turn undo and redo of moves on or off. 
+             * 
+             * @param theEvent the practice mode option action event.
+             */
+            @Override
+            public void actionPerformed(final ActionEvent theEvent) {
+                myIsPracticeMode = practiceMode.isSelected();
+                updateUndoLimit();
+            }
+            
+        });
+        
+        final JCheckBoxMenuItem gameLoop = new JCheckBoxMenuItem("Game Loop Mode");
+        gameLoop.setMnemonic(KeyEvent.VK_L);
+        gameLoop.addActionListener(new ActionListener() {
+            /** 
+             * Drive new games by a game loop thread or by the Swing timer. 
+             * 
+             * @param theEvent the game loop option action event.
+             */
+            @Override
+            public void actionPerformed(final ActionEvent theEvent) {
+                myIsGameLoopMode = gameLoop.isSelected();
+            }
+            
+        });
+        
         theOptionsMenu.add(muteSounds);
+        theOptionsMenu.add(recordGames);
+        theOptionsMenu.add(practiceMode);
+        theOptionsMenu.add(gameLoop);
         theOptionsMenu.addSeparator();
         theOptionsMenu.add(showGrids);
+        theOptionsMenu.add(showGhost);
         
     }
     
     /**
-     * Add/or update observers of a new game.
+     * Add/or update listeners of a new game. The game panel is called on the
+     * thread changing the board, where it publishes the state it draws. The
+     * other listeners are Swing components, called on the event dispatch
+     * thread when a game loop changes the board.
      */
-    private void addObservers() {
-        myBoard.addObserver(this);
-        myBoard.addObserver(myGamePanel);
-        myBoard.addObserver(myScorePanel);
-        myBoard.addObserver(myPreviewPanel);
+    private void addListeners() {
+        myBoard.removeBoardListener(this);
+        myBoard.removeBoardListener(myScorePanel);
+        myBoard.removeBoardListener(myPreviewPanel);
+        myBoard.addBoardListener(myGamePanel, BoardEvent.Type.NEW_GAME,
+                                 BoardEvent.Type.PIECE_MOVED, BoardEvent.Type.ROWS_CLEARED,
+                                 BoardEvent.Type.GAME_OVER, BoardEvent.Type.BOARD_RESTORED);
+        if (myGameLoop == null) {
+            myBoard.addBoardListener(this, BoardEvent.Type.GAME_OVER);
+            myBoard.addBoardListener(myScorePanel, BoardEvent.Type.ROWS_CLEARED);
+            myBoard.addBoardListener(myPreviewPanel, BoardEvent.Type.NEXT_PIECE);
+        } else {
+            // The loop stops on its own thread, before the report reaches this frame.
+            myBoard.addBoardListener(myGameLoop, BoardEvent.Type.GAME_OVER);
+            myBoard.addBoardListener(this, EVENT_DISPATCH_THREAD, BoardEvent.Type.GAME_OVER);
+            myBoard.addBoardListener(myScorePanel, EVENT_DISPATCH_THREAD, 
+                                     BoardEvent.Type.ROWS_CLEARED);
+            myBoard.addBoardListener(myPreviewPanel, EVENT_DISPATCH_THREAD, 
+                                     BoardEvent.Type.NEXT_PIECE);
+        }
     }
 
 
@@ -569,21 +801,38 @@ public class TetrisGUI extends JFrame implements Observer, FocusListener {
         
         myNewGame.setEnabled(myIsGameOver);
         mySizeMenu.setEnabled(myNewGame.isEnabled());
+        myReplayGame.setEnabled(myNewGame.isEnabled());
     }
     
     /**
      * Start/or Restart the game and change the GUI acoordingly.
      */
     private void startGame() {
+        if (myIsGameLoopMode && myReplay == null) {
+            showGameLoop();
+        } else {
+            showGamePanel();
+        }
         
         // If new size is selected, the program needs to create a new Board,
-        // hence the new board needs to add the observers that the game is using.
-        addObservers();
+        // hence the new board needs to add the listeners that the game is using.
+        addListeners();
         
+        if (myReplay == null) {
+            final long seed = mySeeds.nextLong();
+            myBoard.setPieceGenerator(GeneratorKind.UNIFORM.create(seed));
+            startRecording(seed);
+        }
+        updateUndoLimit();
         myBoard.newGame();
 
         myTimer.setDelay(DEFAULT_INITIAL_DELAY);
-        myTimer.start();
+        myClockStart = System.nanoTime();
+        myClockPaused = myClockStart;
+        if (myGameLoop != null) {
+            myGameLoop.start();
+        }
+        startTimer();
         
         mySoundPlayer.stopAll();
         mySoundPlayer.loop(BACKGROUND_SOUND);
@@ -598,34 +847,244 @@ public class TetrisGUI extends JFrame implements Observer, FocusListener {
     private void endGame() {
         mySoundPlayer.stopAll();
         myIsGameOver = true;
-        myTimer.stop();
+        stopTimer();
+        if (myGameLoop != null) {
+            myGameLoop.stop();
+            myBoard.removeBoardListener(myGameLoop);
+            myGameLoopStatistics = myGameLoop.toString();
+            myGameLoop = null;
+            showGamePanel();
+        }
+        myReplay = null;
+        stopRecording();
         mySoundPlayer.play(LOSE_SOUND);
         switchFileMenuButtonsState();
         firePropertyChange(END_GAME_PROPERTY_CHANGE_MESSAGE, null, true);
     }
     
+    /**
+     * Show the canvas a new game loop draws on. The game panel publishes the
+     * frames the loop draws without being displayed.
+     */
+    private void showGameLoop() {
+        remove(myGamePanel);
+        add(myGameCanvas, BorderLayout.CENTER);
+        validate();
+        myGameLoop = new GameLoop(myGameCanvas, myGamePanel, myTimer, new Runnable() {
+            /** 
+             * Advance the Tetris Board every gravity interval.
+             */
+            @Override
+            public void run() {
+                perform(Command.DOWN);
+            }
+        });
+    }
+    
+    /**
+     * Show the game panel, drawn by Swing.
+     */
+    private void showGamePanel() {
+        remove(myGameCanvas);
+        add(myGamePanel, BorderLayout.CENTER);
+        validate();
+        myGamePanel.repaint();
+    }
+    
     /**
      * Pause/Or Resume the game.
      */
     private void pauseOrResumeGame() {
-        if (myTimer.isRunning() && !myIsGameOver) {
-            myTimer.stop();
+        if (isGameRunning() && !myIsGameOver) {
+            stopTimer();
         } else {
-            myTimer.start();
+            startTimer();
+        }
+        firePropertyChange(PAUSE_GAME_PROPERTY_CHANGE_MESSAGE, null, !isGameRunning());
+    }
+    
+    /**
+     * Return if the game is running: not paused, and not over.
+     * 
+     * @return true if the timer or game loop driving the game is running.
+     */
+    private boolean isGameRunning() {
+        boolean result = getActiveTimer().isRunning();
+        if (myGameLoop != null) {
+            result = !myGameLoop.isPaused();
+        }
+        return result;
+    }
+    
+    /**
+     * Get the timer driving the current game: the gravity timer while the player
+     * is playing, or the replay timer while a recording is replayed.
+     * 
+     * @return the timer driving the game.
+     */
+    private Timer getActiveTimer() {
+        Timer result = myTimer;
+        if (myReplay != null) {
+            result = myReplayTimer;
+        }
+        return result;
+    }
+    
+    /**
+     * Start the timer driving the game, resuming the game clock.
+     */
+    private void startTimer() {
+        myClockStart += System.nanoTime() - myClockPaused;
+        if (myGameLoop == null) {
+            getActiveTimer().start();
+        } else {
+            myGameLoop.setPaused(false);
+        }
+    }
+    
+    /**
+     * Stop the timer driving the game, pausing the game clock.
+     */
+    private void stopTimer() {
+        if (myGameLoop == null) {
+            getActiveTimer().stop();
+        } else {
+            myGameLoop.setPaused(true);
+        }
+        myClockPaused = System.nanoTime();
+    }
+    
+    /**
+     * Get the time the current game has been running, without pauses.
+     * 
+     * @return the game time in milliseconds.
+     */
+    private long getGameTime() {
+        return (System.nanoTime() - myClockStart) / NANOS_PER_MILLI;
+    }
+    
+    /**
+     * Record a command of the player and apply it to the board. In game loop
+     * mode this is called on the game loop thread.
+     * 
+     * @param theCommand the command.
+     */
+    private void perform(final Command theCommand) {
+        if (myRecorder != null) {
+            try {
+                myRecorder.write(theCommand, getGameTime());
+            } catch (final IOException e) {
+                e.printStackTrace();
+                stopRecording();
+            }
+        }
+        theCommand.apply(myBoard);
+        // The command may have ended the game and closed the recording.
+        if (myRecorder != null) {
+            try {
+                myRecorder.writeKeyframeIfDue(myBoard);
+            } catch (final IOException e) {
+                e.printStackTrace();
+                stopRecording();
+            }
         }
-        firePropertyChange(PAUSE_GAME_PROPERTY_CHANGE_MESSAGE, null, !myTimer.isRunning());
     }
     
     /**
-     * Update the GUI based on information received from the Observable model.
+     * Let the player undo moves in practice mode, unless the game is recorded
+     * or replayed: undoing is not a command a recording can hold.
+     */
+    private void updateUndoLimit() {
+        int limit = 0;
+        if (myIsPracticeMode && myRecorder == null && myReplay == null) {
+            limit = PRACTICE_UNDO_LIMIT;
+        }
+        myBoard.setUndoLimit(limit);
+    }
+
+    /**
+     * Start recording a new game if recording is enabled.
      * 
-     * @param theObservable the observable class/object that the panel is observing.
-     * @param theObject the object data received from the observable.
+     * @param theSeed the seed of the piece generator of the game.
+     */
+    private void startRecording(final long theSeed) {
+        if (myIsRecordingEnabled) {
+            final Path file = Paths.get(RECORDINGS_DIRECTORY, 
+                                        LocalDateTime.now().format(RECORDING_NAME_FORMAT)
+                                        + Replay.EXTENSION);
+            try {
+                Files.createDirectories(file.getParent());
+                myRecorder = RecordingWriter.create(file, myBoard.getWidth(), 
+                                                    myBoard.getHeight(), 
+                                                    GeneratorKind.UNIFORM, theSeed);
+            } catch (final IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+    
+    /**
+     * Finish recording the current game, if it is recorded.
+     */
+    private void stopRecording() {
+        if (myRecorder != null) {
+            try {
+                myRecorder.close();
+            } catch (final IOException e) {
+                e.printStackTrace();
+            }
+            myRecorder = null;
+        }
+    }
+    
+    /**
+     * Let the player choose a recorded game and replay it in real time.
+     */
+    private void chooseReplay() {
+        final JFileChooser chooser = new JFileChooser(new File(RECORDINGS_DIRECTORY));
+        chooser.setFileFilter(new FileNameExtensionFilter("Tetris recordings", 
+                                                          Replay.EXTENSION.substring(1)));
+        if (chooser.showOpenDialog(this) == JFileChooser.APPROVE_OPTION) {
+            try {
+                myReplay = Recording.read(chooser.getSelectedFile().toPath());
+            } catch (final IOException e) {
+                JOptionPane.showMessageDialog(this, "Cannot replay "
+                                + chooser.getSelectedFile().getName() + ":\n"
+                                + e.getMessage());
+            }
+            if (myReplay != null) {
+                myReplayIndex = 0;
+                myBoard = myReplay.newBoard();
+                firePropertyChange(NEW_SIZE_PROPERTY_CHANGE_MESSAGE, null, myBoard);
+                startGame();
+            }
+        }
+    }
+    
+    /**
+     * Apply the commands of the replayed game whose time has come,
+     * and end the game once every command is applied.
+     */
+    private void replayCommands() {
+        final long now = getGameTime();
+        while (!myIsGameOver && myReplayIndex < myReplay.size()
+                        && myReplay.getTime(myReplayIndex) <= now) {
+            myReplay.getCommand(myReplayIndex++).apply(myBoard);
+        }
+        if (!myIsGameOver && myReplayIndex == myReplay.size()) {
+            endGame();
+        }
+    }
+    
+    /**
+     * End the game when the board reports that the game is over. The report
+     * of a game loop arrives later, when the player may have ended the game.
+     * 
+     * @param theEvent the GAME_OVER event received from the board.
      */
     @Override
-    public void update(final Observable theObservable, final Object theObject) {
-        // End the game if notified by observable that the game is over.
-        if (theObject instanceof Boolean) {
+    public void boardChanged(final BoardEvent theEvent) {
+        if (!myIsGameOver) {
             endGame();
         }
     }
@@ -637,8 +1096,8 @@ public class TetrisGUI extends JFrame implements Observer, FocusListener {
      */
     @Override
     public void focusGained(final FocusEvent theEvent) {
-        if (!myTimer.isRunning() && !myIsGameOver) {
-            myTimer.start();
+        if (!isGameRunning() && !myIsGameOver) {
+            startTimer();
             firePropertyChange(PAUSE_GAME_PROPERTY_CHANGE_MESSAGE, null, false);
         }
     }
@@ -650,8 +1109,8 @@ public class TetrisGUI extends JFrame implements Observer, FocusListener {
      */
     @Override
     public void focusLost(final FocusEvent theEvent) {
-        if (myTimer.isRunning() && !myIsGameOver) {
-            myTimer.stop();
+        if (isGameRunning() && !myIsGameOver) {
+            stopTimer();
             firePropertyChange(PAUSE_GAME_PROPERTY_CHANGE_MESSAGE, null, true);
         }
     }
@@ -698,33 +1157,71 @@ public class TetrisGUI extends JFrame implements Observer, FocusListener {
                     pauseOrResumeGame(); // This method can stop or restart the timer.
                 }
                 
-                if (myTimer.isRunning()) {
-                    switch (key) {
-                        case KeyEvent.VK_LEFT:
-                            myBoard.left();
-                            break;
-
-                        case KeyEvent.VK_RIGHT:
-                            myBoard.right();
-                            break;
-                            
-                        case KeyEvent.VK_DOWN:
-                            myBoard.down();
-                            break;
-
-                        case KeyEvent.VK_SPACE:
-                            myBoard.rotate();
-                            break;
-
-                        case KeyEvent.VK_ENTER:
-                            myBoard.drop();
-                            break;
-
-                        default:
-                            break;
+                // The keys do not control a replayed game.
+                if (myReplay == null && isGameRunning()) {
+                    if (myGameLoop == null) {
+                        control(key);
+                    } else {
+                        myGameLoop.execute(new Runnable() {
+                            /** 
+                             * Apply the key on the game loop thread.
+                             */
+                            @Override
+                            public void run() {
+                                control(key);
+                            }
+                        });
                     }
                 }
             }
         }
+        
+        /**
+         * Apply a key controlling the current piece to the board.
+         * 
+         * @param theKey the key code of the pressed key.
+         */
+        private void control(final int theKey) {
+            switch (theKey) {
+                case KeyEvent.VK_LEFT:
+                    perform(Command.LEFT);
+                    break;
+
+                case KeyEvent.VK_RIGHT:
+                    perform(Command.RIGHT);
+                    break;
+                    
+                case KeyEvent.VK_DOWN:
+                    perform(Command.DOWN);
+                    break;
+
+                case KeyEvent.VK_SPACE:
+                    perform(Command.ROTATE);
+                    break;
+
+                case KeyEvent.VK_Z:
+                    perform(Command.ROTATE_CCW);
+                    break;
+
+                case KeyEvent.VK_A:
+                    perform(Command.ROTATE_180);
+                    break;
+
+                case KeyEvent.VK_U:
+                    myBoard.undo();
+                    break;
+
+                case KeyEvent.VK_Y:
+                    myBoard.redo();
+                    break;
+
+                case KeyEvent.VK_ENTER:
+                    perform(Command.DROP);
+                    break;
+
+                default:
+                    break;
+            }
+        }
     }
 }